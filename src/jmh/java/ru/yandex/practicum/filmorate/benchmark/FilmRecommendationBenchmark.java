@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.ServiceFixtures;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ParallelCounter;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации фильмов на синтетической матрице лайков: популярность фильмов убывает по степенному закону,
+ * поэтому у первых фильмов сотни тысяч лайков, а у хвоста — единицы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilmRecommendationBenchmark {
+
+    private static final int BATCH = 4096;
+
+    @Param({"1000000"})
+    int users;
+
+    @Param({"100000"})
+    int films;
+
+    @Param({"10"})
+    int likesPerUser;
+
+    @Param({"1", "0"})
+    int parallelism;
+
+    ParallelCounter counter;
+    FilmService filmService;
+
+    @Setup
+    public void setUp() {
+        FilmStorage filmStorage = new InMemoryFilmStorage();
+        UserStorage userStorage = new InMemoryUserStorage();
+        counter = new ParallelCounter(parallelism);
+        filmService = new FilmService(filmStorage, userStorage, new ObjectMapper(), 10, Duration.ZERO,
+                50, 1_000_000, counter, ServiceFixtures.activityFeed(userStorage));
+
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            userStorage.create(user);
+        }
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+
+        Random random = new Random(42);
+        long[] filmIds = new long[BATCH];
+        long[] userIds = new long[BATCH];
+        int size = 0;
+        for (long userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                double skew = random.nextDouble();
+                filmIds[size] = (long) (films * skew * skew * skew) + 1;
+                userIds[size++] = userId;
+                if (size == BATCH) {
+                    filmStorage.addLikes(filmIds, userIds);
+                    size = 0;
+                }
+            }
+        }
+        filmStorage.addLikes(Arrays.copyOf(filmIds, size), Arrays.copyOf(userIds, size));
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        counter.destroy();
+    }
+
+    @Benchmark
+    public List<Film> recommendedFilms() {
+        return filmService.getRecommendedFilms(ThreadLocalRandom.current().nextLong(users) + 1, 10);
+    }
+}
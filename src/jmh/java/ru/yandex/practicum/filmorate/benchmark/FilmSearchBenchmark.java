@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка полнотекстового поиска на синтетическом каталоге. Слова названий и описаний выбираются
+ * из словаря по закону Ципфа, поэтому в запросах встречаются и слова из сотен тысяч фильмов, и редкие слова.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilmSearchBenchmark {
+
+    private static final String[] SYLLABLES = {
+        "ма", "три", "ца", "ко", "смо", "дра", "ка", "ни", "ло", "ве", "star", "war", "ter", "mi", "na", "tor"
+    };
+
+    @Param({"1000000"})
+    int films;
+
+    @Param({"50000"})
+    int vocabulary;
+
+    FilmStorage filmStorage;
+
+    String[] words;
+
+    /**
+     * Кумулятивные веса слов словаря для выбора по закону Ципфа.
+     */
+    double[] cumulative;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        words = new String[vocabulary];
+        cumulative = new double[vocabulary];
+        double sum = 0;
+        for (int i = 0; i < vocabulary; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int rest = i + 1; rest > 0; rest /= SYLLABLES.length) {
+                word.append(SYLLABLES[rest % SYLLABLES.length]);
+            }
+            words[i] = word.toString();
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName(phrase(random, 1 + random.nextInt(4)));
+            film.setDescription(phrase(random, 10 + random.nextInt(15)));
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+    }
+
+    @Benchmark
+    public List<Film> oneWord() {
+        return filmStorage.search(word(ThreadLocalRandom.current()), 10);
+    }
+
+    @Benchmark
+    public List<Film> twoWords() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return filmStorage.search(word(random) + " " + word(random), 10);
+    }
+
+    @Benchmark
+    public List<Film> threeWords() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return filmStorage.search(word(random) + " " + word(random) + " " + word(random), 10);
+    }
+
+    private String phrase(Random random, int length) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            phrase.append(i == 0 ? "" : " ").append(word(random));
+        }
+        return phrase.toString();
+    }
+
+    private String word(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[vocabulary - 1]);
+        return words[index < 0 ? Math.min(-index - 1, vocabulary - 1) : index];
+    }
+}
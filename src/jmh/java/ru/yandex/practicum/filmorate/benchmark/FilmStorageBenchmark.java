@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.ServiceFixtures;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции с каталогом фильмов: создание, чтение, обновление, лайки и топ популярных.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilmStorageBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int LIKES_PER_FILM = 20;
+
+    @Param({"10000", "100000"})
+    int films;
+
+    FilmStorage filmStorage;
+    FilmService filmService;
+
+    @Setup
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        UserStorage userStorage = new InMemoryUserStorage();
+        filmService = ServiceFixtures.filmService(filmStorage, userStorage, ServiceFixtures.activityFeed(userStorage));
+
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            userStorage.create(user);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < films; i++) {
+            long id = filmStorage.create(film("Film " + i)).getId();
+            for (int like = 0; like < LIKES_PER_FILM; like++) {
+                filmStorage.addLike(id, random.nextLong(USERS) + 1);
+            }
+        }
+    }
+
+    /**
+     * Создание фильма вместе с удалением, чтобы размер каталога не рос во время замера.
+     */
+    @Benchmark
+    public Film createAndDelete() {
+        Film film = filmStorage.create(film("New film"));
+        filmStorage.delete(film.getId());
+        return film;
+    }
+
+    @Benchmark
+    public Optional<Film> getById() {
+        return filmStorage.getById(randomFilm());
+    }
+
+    @Benchmark
+    public Film update() {
+        Film patch = new Film();
+        patch.setId(randomFilm());
+        patch.setName("Updated");
+        return filmStorage.update(patch);
+    }
+
+    /**
+     * Лайк и его отмена со сдвигом индекса популярности в обе стороны.
+     */
+    @Benchmark
+    public void likeChurn() {
+        long filmId = randomFilm();
+        long userId = ThreadLocalRandom.current().nextLong(USERS) + 1;
+        filmService.addLike(filmId, userId);
+        filmService.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    public List<Film> topFilms() {
+        return filmService.getTopFilms(10);
+    }
+
+    private long randomFilm() {
+        return ThreadLocalRandom.current().nextLong(films) + 1;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.user.User;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация и разбор фильма и пользователя в JSON с настройками Jackson как в приложении.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SerializationBenchmark {
+
+    /**
+     * Количество лайков фильма и друзей пользователя.
+     */
+    @Param({"0", "100", "10000"})
+    int edges;
+
+    ObjectMapper objectMapper;
+    Film film;
+    User user;
+    byte[] filmJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        film = new Film();
+        film.setId(1L);
+        film.setName("Film");
+        film.setDescription("Description of the film");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setGenres(EnumSet.of(Genre.COMEDY, Genre.DRAMA));
+        film.setRating(Mpa.PG_13);
+
+        user = new User();
+        user.setId(1L);
+        user.setEmail("user@mail.ru");
+        user.setLogin("user");
+        user.setName("User");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+
+        for (long i = 1; i <= edges; i++) {
+            film.getLikes().add(i * 7);
+            user.getFriends().add(i * 11);
+        }
+        filmJson = objectMapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    public byte[] writeFilm() throws IOException {
+        return objectMapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws IOException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public Film readFilm() throws IOException {
+        return objectMapper.readValue(filmJson, Film.class);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.ServiceFixtures;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongSetType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Список друзей и общие друзья на случайном графе дружбы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SocialGraphBenchmark {
+
+    @Param({"10000", "100000"})
+    int users;
+
+    @Param({"10", "100"})
+    int friendsPerUser;
+
+    @Param({"HASH", "BITMAP"})
+    LongSetType adjacency;
+
+    UserService userService;
+
+    @Setup
+    public void setUp() {
+        UserStorage userStorage = new InMemoryUserStorage(adjacency);
+        userService = ServiceFixtures.userService(userStorage, ServiceFixtures.activityFeed(userStorage));
+
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            userStorage.create(user);
+        }
+
+        Random random = new Random(42);
+        long edges = (long) users * friendsPerUser / 2;
+        long[] ids = new long[1024];
+        long[] friendIds = new long[1024];
+        int size = 0;
+        for (long edge = 0; edge < edges; edge++) {
+            ids[size] = random.nextLong(users) + 1;
+            friendIds[size++] = random.nextLong(users) + 1;
+            if (size == ids.length) {
+                userStorage.addFriends(ids, friendIds);
+                size = 0;
+            }
+        }
+        userStorage.addFriends(Arrays.copyOf(ids, size), Arrays.copyOf(friendIds, size));
+    }
+
+    @Benchmark
+    public List<User> friends() {
+        return userService.getFriends(randomUser());
+    }
+
+    @Benchmark
+    public List<User> commonFriends() {
+        return userService.getCommonFriends(randomUser(), randomUser());
+    }
+
+    private long randomUser() {
+        return ThreadLocalRandom.current().nextLong(users) + 1;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Пакет содержит JMH-бенчмарки горячих путей хранилищ, сервисов и сериализации.
+ * Запуск: mvn test -Pjmh, выбор бенчмарков и параметров JMH: -Djmh.args="FilmStorage -p films=10000".
+ * Результаты сохраняются в target/jmh-result.json.
+ */
+package ru.yandex.practicum.filmorate.benchmark;
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.util.WeightedCache;
+
+import java.util.List;
+
+/**
+ * Кэши прочитанных данных и их метрики.
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Кэш списков друзей по id пользователя. Вес списка равен количеству друзей.
+     *
+     * @param maxEntries максимальное количество списков
+     * @param maxWeight  максимальное суммарное количество друзей во всех списках
+     * @return кэш списков друзей.
+     */
+    @Bean
+    public WeightedCache<List<User>> friendListCache(
+            @Value("${filmorate.cache.friends.max-entries:100000}") long maxEntries,
+            @Value("${filmorate.cache.friends.max-weight:5000000}") long maxWeight) {
+        return new WeightedCache<>(maxEntries, maxWeight, List::size);
+    }
+
+    @Bean
+    public MeterBinder friendListCacheMetrics(WeightedCache<List<User>> friendListCache) {
+        return new WeightedCacheMetrics(friendListCache, "friends");
+    }
+
+    /**
+     * Кэш рекомендаций по id пользователя. Вес записи равен количеству рекомендованных id.
+     *
+     * @param maxEntries максимальное количество списков
+     * @param maxWeight  максимальное суммарное количество id во всех списках
+     * @return кэш рекомендаций.
+     */
+    @Bean
+    public WeightedCache<long[]> recommendationCache(
+            @Value("${filmorate.cache.recommendations.max-entries:100000}") long maxEntries,
+            @Value("${filmorate.cache.recommendations.max-weight:5000000}") long maxWeight) {
+        return new WeightedCache<>(maxEntries, maxWeight, ids -> ids.length);
+    }
+
+    @Bean
+    public MeterBinder recommendationCacheMetrics(WeightedCache<long[]> recommendationCache) {
+        return new WeightedCacheMetrics(recommendationCache, "recommendations");
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.Strategy;
+
+/**
+ * Настройка журналирования HTTP-обменов.
+ */
+@Configuration
+public class LogbookConfig {
+
+    /**
+     * Стратегия с выборкой успешных обменов; ошибки записываются всегда.
+     *
+     * @param sampleRate доля записываемых успешных обменов
+     * @return стратегия журналирования.
+     */
+    @Bean
+    public Strategy strategy(@Value("${filmorate.logging.http.sample-rate:1}") double sampleRate) {
+        return new SampledHttpLogStrategy(sampleRate);
+    }
+}
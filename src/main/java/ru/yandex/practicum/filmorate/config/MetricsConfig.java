@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+/**
+ * Метрики приложения: таймеры методов с аннотацией {@code @Timed} и размеры хранилищ.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Включает таймеры для классов и методов с аннотацией {@code @Timed}.
+     *
+     * @param registry реестр метрик
+     * @return аспект таймеров.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    /**
+     * Регистрирует размеры каталога фильмов и графа пользователей.
+     *
+     * @param filmStorage хранилище фильмов
+     * @param userStorage хранилище пользователей
+     * @return регистратор метрик.
+     */
+    @Bean
+    public MeterBinder storageSizeMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        return registry -> {
+            Gauge.builder("filmorate.films", filmStorage, FilmStorage::size)
+                    .description("Количество фильмов")
+                    .register(registry);
+            Gauge.builder("filmorate.likes", filmStorage, FilmStorage::likeCount)
+                    .description("Количество лайков")
+                    .register(registry);
+            Gauge.builder("filmorate.users", userStorage, UserStorage::size)
+                    .description("Количество пользователей")
+                    .register(registry);
+            Gauge.builder("filmorate.friend.links", userStorage, UserStorage::friendLinkCount)
+                    .description("Количество записей в списках друзей, взаимная дружба учитывается дважды")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.ForwardingHttpRequest;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+import ru.yandex.practicum.filmorate.controller.NdjsonWriter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Стратегия журналирования HTTP-обменов с выборкой.
+ * Решение о выборке принимается при получении запроса: тела обменов, не попавших в выборку,
+ * не буферизуются. Обмены с ответом 4xx и 5xx записываются всегда, вне выборки — без тел.
+ * При неполной выборке запрос и ответ записываются одним сообщением после ответа,
+ * когда известен код. Тело потоковых ответов не буферизуется:
+ * иначе Logbook накопил бы в памяти весь выгружаемый каталог.
+ */
+public class SampledHttpLogStrategy implements Strategy {
+
+    private static final int MIN_ERROR_STATUS = 400;
+
+    private final double sampleRate;
+
+    /**
+     * Создаёт стратегию.
+     *
+     * @param sampleRate доля записываемых успешных обменов от 0 до 1; при 1 записывается каждый обмен.
+     */
+    public SampledHttpLogStrategy(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Доля выборки должна быть от 0 до 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        boolean sampled = draw();
+        return new SampledRequest(sampled ? request.withBody() : request.withoutBody(), sampled);
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        String accept = request.getHeaders().getFirst("Accept");
+        if (!isSampled(request) || (accept != null && accept.contains(NdjsonWriter.MEDIA_TYPE))) {
+            return response.withoutBody();
+        }
+        return response.withBody();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) throws IOException {
+        if (sampleRate >= 1) {
+            sink.write(precorrelation, request);
+        }
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (sampleRate >= 1) {
+            sink.write(correlation, request, response);
+        } else if (response.getStatus() >= MIN_ERROR_STATUS || isSampled(request)) {
+            sink.writeBoth(correlation, request, response);
+        }
+    }
+
+    private boolean draw() {
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Находит решение о выборке в цепочке обёрток запроса. Если запрос не проходил через
+     * {@link #process(HttpRequest)}, решение принимается сейчас.
+     */
+    private boolean isSampled(HttpRequest request) {
+        HttpRequest current = request;
+        while (current instanceof ForwardingHttpRequest forwarding) {
+            if (forwarding instanceof SampledRequest sampled) {
+                return sampled.sampled;
+            }
+            current = forwarding.delegate();
+        }
+        return draw();
+    }
+
+    /**
+     * Запрос с решением о выборке; Logbook оборачивает его, сохраняя цепочку до исходного запроса.
+     */
+    private static final class SampledRequest implements ForwardingHttpRequest {
+
+        private final HttpRequest delegate;
+        private final boolean sampled;
+
+        SampledRequest(HttpRequest delegate, boolean sampled) {
+            this.delegate = delegate;
+            this.sampled = sampled;
+        }
+
+        @Override
+        public HttpRequest delegate() {
+            return delegate;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import ru.yandex.practicum.filmorate.util.WeightedCache;
+
+/**
+ * Метрики кэша в стандартном для Micrometer виде: cache.gets, cache.puts, cache.evictions и cache.size,
+ * а также суммарный вес и количество инвалидаций.
+ */
+public class WeightedCacheMetrics extends CacheMeterBinder<WeightedCache<?>> {
+
+    public WeightedCacheMetrics(WeightedCache<?> cache, String cacheName) {
+        super(cache, cacheName, Tags.empty());
+    }
+
+    @Override
+    protected Long size() {
+        WeightedCache<?> cache = getCache();
+        return cache == null ? null : cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        WeightedCache<?> cache = getCache();
+        return cache == null ? 0 : cache.hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        WeightedCache<?> cache = getCache();
+        return cache == null ? null : cache.missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        WeightedCache<?> cache = getCache();
+        return cache == null ? null : cache.evictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        WeightedCache<?> cache = getCache();
+        return cache == null ? 0 : cache.putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        WeightedCache<?> cache = getCache();
+        Gauge.builder("cache.weight", cache, WeightedCache::weight)
+                .tags(getTagsWithCacheName())
+                .description("Суммарный вес записей кэша")
+                .register(registry);
+        FunctionCounter.builder("cache.invalidations", cache, WeightedCache::invalidationCount)
+                .tags(getTagsWithCacheName())
+                .description("Количество записей, удалённых при изменении данных")
+                .register(registry);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Пакет содержит конфигурацию приложения Filmorate.
+ */
+package ru.yandex.practicum.filmorate.config;
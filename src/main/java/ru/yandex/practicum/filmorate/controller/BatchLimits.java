@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.controller;
+
+/**
+ * Ограничения пакетных операций.
+ */
+final class BatchLimits {
+
+    /**
+     * Максимальное количество элементов в одном пакете.
+     */
+    static final int MAX_BATCH_SIZE = 10_000;
+
+    private BatchLimits() {
+    }
+}
@@ -1,17 +1,39 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Like;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularChart;
 import ru.yandex.practicum.filmorate.validator.Marker;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Контроллер для операций с фильмами.
@@ -23,18 +45,98 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FilmController {
 
+    /**
+     * Максимальная длина поискового запроса.
+     */
+    private static final int MAX_QUERY_LENGTH = 200;
+
     private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
 
     /**
      * Возвращает список всех фильмов.
+     * Если каталог не менялся с версии из If-None-Match, отвечает 304 без чтения фильмов.
      *
+     * @param request запрос с условными заголовками
      * @return коллекция фильмов.
      */
     @GetMapping
-    public Collection<Film> getAll() {
+    public Collection<Film> getAll(WebRequest request) {
+        if (request.checkNotModified(filmService.getCatalogETag())) {
+            return null;
+        }
         return filmService.getAll();
     }
 
+    /**
+     * Возвращает страницу фильмов с id больше курсора.
+     *
+     * @param after курсор: id последнего элемента предыдущей страницы
+     * @param limit   размер страницы, не больше {@value PageLimits#MAX_PAGE_SIZE}
+     * @param request запрос с условными заголовками
+     * @return страница фильмов и курсор следующей страницы.
+     */
+    @GetMapping(params = "limit")
+    public Page<Film> getPage(@RequestParam(defaultValue = "0") @PositiveOrZero long after,
+                              @RequestParam @Positive @Max(PageLimits.MAX_PAGE_SIZE) int limit,
+                              WebRequest request) {
+        if (request.checkNotModified(filmService.getCatalogETag())) {
+            return null;
+        }
+        return filmService.getPage(after, limit);
+    }
+
+    /**
+     * Выгружает все фильмы построчно в формате NDJSON, не собирая их в память.
+     *
+     * @param response HTTP-ответ, в поток которого пишутся фильмы.
+     */
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonWriter.MEDIA_TYPE);
+        ndjsonWriter.write(filmService.stream(), response.getOutputStream());
+    }
+
+    /**
+     * Возвращает фильмы, вышедшие в период, по возрастанию даты выхода, при равенстве — по возрастанию id.
+     *
+     * @param from    первый день периода в формате ISO, включительно
+     * @param to      последний день периода в формате ISO, включительно
+     * @param limit   количество фильмов, не больше {@value PageLimits#MAX_PAGE_SIZE}
+     * @param request запрос с условными заголовками
+     * @return список фильмов.
+     */
+    @GetMapping("/released")
+    public List<Film> getReleased(@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+                                  @RequestParam(defaultValue = "100")
+                                  @Positive @Max(PageLimits.MAX_PAGE_SIZE) int limit,
+                                  WebRequest request) {
+        if (request.checkNotModified(filmService.getCatalogETag())) {
+            return null;
+        }
+        return filmService.getReleased(from, to, limit);
+    }
+
+    /**
+     * Ищет фильмы по словам из названия и описания: фильм должен содержать все слова запроса.
+     *
+     * @param q       текст запроса
+     * @param limit   количество фильмов, не больше {@value FilmService#MAX_SEARCH_RESULTS}
+     * @param request запрос с условными заголовками
+     * @return фильмы в порядке убывания релевантности.
+     */
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam @NotBlank @Size(max = MAX_QUERY_LENGTH) String q,
+                             @RequestParam(defaultValue = "10")
+                             @Positive @Max(FilmService.MAX_SEARCH_RESULTS) int limit,
+                             WebRequest request) {
+        if (request.checkNotModified(filmService.getCatalogETag())) {
+            return null;
+        }
+        return filmService.search(q, limit);
+    }
+
     /**
      * Создаёт новый фильм.
      *
@@ -68,15 +170,70 @@ public class FilmController {
         filmService.addLike(id, userId);
     }
 
+    /**
+     * Добавляет лайки пакетом. Ошибки отдельных элементов не отменяют остальные.
+     *
+     * @param likes пары фильм-пользователь, не больше {@value BatchLimits#MAX_BATCH_SIZE}
+     * @return количество применённых лайков и ошибки по элементам.
+     */
+    @PostMapping("/likes:batch")
+    public BatchResult addLikes(@RequestBody @NotNull @Size(max = BatchLimits.MAX_BATCH_SIZE) List<Like> likes) {
+        return filmService.addLikes(likes);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public void deleteLike(@PathVariable Long id,
                            @PathVariable Long userId) {
         filmService.deleteLike(id, userId);
     }
 
+    /**
+     * Возвращает пользователей, которым понравились оба фильма.
+     *
+     * @param id      идентификатор фильма
+     * @param otherId идентификатор другого фильма
+     * @return список пользователей.
+     */
+    @GetMapping("/{id}/common-likers/{otherId}")
+    public List<User> getCommonLikers(@PathVariable Long id,
+                                      @PathVariable Long otherId) {
+        return filmService.getCommonLikers(id, otherId);
+    }
+
+    /**
+     * Возвращает рейтинг популярных фильмов.
+     * Рейтинг без условий отдаётся из заранее сериализованного JSON, минуя Jackson.
+     * Если каталог не менялся с версии из If-None-Match, отвечает 304 до построения рейтинга.
+     * Рейтинг, отстающий от каталога в пределах допустимого, отдаётся с ETag своей версии.
+     *
+     * @param count    длина рейтинга, не больше {@value PageLimits#MAX_PAGE_SIZE}
+     * @param genre    жанры, каждый из которых должен быть у фильма
+     * @param mpa      рейтинг MPA
+     * @param year     год выхода
+     * @param request  запрос с условными заголовками
+     * @param response HTTP-ответ, в который пишется рейтинг без условий
+     * @return список фильмов или null, если ответ уже записан.
+     */
     @GetMapping("/popular")
-    public List<Film> getTopFilms(@RequestParam(defaultValue = "10")
-                                  @Positive int count) {
-        return filmService.getTopFilms(count);
+    public List<Film> getTopFilms(@RequestParam(defaultValue = "10") @Positive @Max(PageLimits.MAX_PAGE_SIZE) int count,
+                                  @RequestParam(required = false) Set<Genre> genre,
+                                  @RequestParam(required = false) Mpa mpa,
+                                  @RequestParam(required = false) Integer year,
+                                  WebRequest request,
+                                  HttpServletResponse response) throws IOException {
+        if (request.checkNotModified(filmService.getCatalogETag())) {
+            return null;
+        }
+        PopularFilter filter = PopularFilter.of(genre, mpa, year);
+        if (!filter.isEmpty()) {
+            return filmService.getTopFilms(count, filter);
+        }
+
+        PopularChart chart = filmService.getPopularChart(count);
+        response.setHeader(HttpHeaders.ETAG, chart.getETag());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(chart.contentLength(count));
+        chart.writeTo(count, response.getOutputStream());
+        return null;
     }
 }
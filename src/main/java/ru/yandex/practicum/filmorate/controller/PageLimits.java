@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.controller;
+
+/**
+ * Ограничения постраничной выдачи.
+ */
+final class PageLimits {
+
+    /**
+     * Максимальный размер страницы.
+     */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private PageLimits() {
+    }
+}
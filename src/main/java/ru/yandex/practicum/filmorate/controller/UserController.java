@@ -1,35 +1,108 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.feed.FeedEvent;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.Friendship;
 import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.validator.Marker;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 
 /**
  * Контроллер для операций с пользователями.
  */
+@Validated
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
 
     private final UserService userService;
+    private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
 
     /**
      * Возвращает список всех пользователей.
+     * Если пользователи не менялись с версии из If-None-Match, отвечает 304 без чтения хранилища.
      *
+     * @param request запрос с условными заголовками
      * @return коллекция пользователей.
      */
     @GetMapping
-    public Collection<User> getAll() {
+    public Collection<User> getAll(WebRequest request) {
+        if (request.checkNotModified(userService.getUsersETag())) {
+            return null;
+        }
         return userService.getAll();
     }
 
+    /**
+     * Возвращает страницу пользователей с id больше курсора.
+     *
+     * @param after курсор: id последнего элемента предыдущей страницы
+     * @param limit   размер страницы, не больше {@value PageLimits#MAX_PAGE_SIZE}
+     * @param request запрос с условными заголовками
+     * @return страница пользователей и курсор следующей страницы.
+     */
+    @GetMapping(params = "limit")
+    public Page<User> getPage(@RequestParam(defaultValue = "0") @PositiveOrZero long after,
+                              @RequestParam @Positive @Max(PageLimits.MAX_PAGE_SIZE) int limit,
+                              WebRequest request) {
+        if (request.checkNotModified(userService.getUsersETag())) {
+            return null;
+        }
+        return userService.getPage(after, limit);
+    }
+
+    /**
+     * Выгружает всех пользователей построчно в формате NDJSON, не собирая их в память.
+     *
+     * @param response HTTP-ответ, в поток которого пишутся пользователи.
+     */
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonWriter.MEDIA_TYPE);
+        ndjsonWriter.write(userService.stream(), response.getOutputStream());
+    }
+
+    /**
+     * Ищет пользователя по электронной почте без учёта регистра.
+     *
+     * @param email электронная почта
+     * @return найденный пользователь.
+     */
+    @GetMapping("/by-email")
+    public User getByEmail(@RequestParam String email) {
+        return userService.getByEmail(email);
+    }
+
+    /**
+     * Ищет пользователя по логину.
+     *
+     * @param login логин
+     * @return найденный пользователь.
+     */
+    @GetMapping("/by-login")
+    public User getByLogin(@RequestParam String login) {
+        return userService.getByLogin(login);
+    }
+
     /**
      * Создаёт нового пользователя.
      *
@@ -41,6 +114,11 @@ public class UserController {
         return userService.create(user);
     }
 
+    /**
+     * Удаляет пользователя вместе с его дружбой и лайками.
+     *
+     * @param id идентификатор пользователя.
+     */
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) {
         userService.delete(id);
@@ -63,6 +141,18 @@ public class UserController {
         userService.addFriends(id, friendId);
     }
 
+    /**
+     * Добавляет дружбу пакетом. Ошибки отдельных элементов не отменяют остальные.
+     *
+     * @param friendships пары пользователь-друг, не больше {@value BatchLimits#MAX_BATCH_SIZE}
+     * @return количество применённых пар и ошибки по элементам.
+     */
+    @PostMapping("/friends:batch")
+    public BatchResult addFriends(@RequestBody @NotNull @Size(max = BatchLimits.MAX_BATCH_SIZE)
+                                  List<Friendship> friendships) {
+        return userService.addFriends(friendships);
+    }
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void deleteFriend(@PathVariable Long id,
                              @PathVariable Long friendId) {
@@ -70,7 +160,10 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable Long id) {
+    public List<User> getFriends(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(userService.getFriendsETag(id))) {
+            return null;
+        }
         return userService.getFriends(id);
     }
 
@@ -79,4 +172,59 @@ public class UserController {
                                        @PathVariable Long otherId) {
         return userService.getCommonFriends(id, otherId);
     }
+
+    /**
+     * Возвращает фильмы, которым пользователь поставил лайк.
+     *
+     * @param id идентификатор пользователя
+     * @return фильмы в порядке возрастания id.
+     */
+    @GetMapping("/{id}/likes")
+    public List<Film> getLikedFilms(@PathVariable Long id) {
+        return filmService.getLikedFilms(id);
+    }
+
+    /**
+     * Рекомендует фильмы, которые понравились пользователям с похожими лайками.
+     *
+     * @param id    идентификатор пользователя
+     * @param limit длина списка, не больше {@value FilmService#MAX_RECOMMENDATIONS}
+     * @return фильмы, которым пользователь ещё не поставил лайк.
+     */
+    @GetMapping("/{id}/recommended-films")
+    public List<Film> getRecommendedFilms(@PathVariable Long id,
+                                          @RequestParam(defaultValue = "10") @Positive
+                                          @Max(FilmService.MAX_RECOMMENDATIONS) int limit) {
+        return filmService.getRecommendedFilms(id, limit);
+    }
+
+    /**
+     * Рекомендует пользователей, с которыми больше всего общих друзей.
+     *
+     * @param id    идентификатор пользователя
+     * @param limit длина списка, не больше {@value UserService#MAX_RECOMMENDATIONS}
+     * @return рекомендованные пользователи в порядке убывания количества общих друзей.
+     */
+    @GetMapping("/{id}/recommendations")
+    public List<User> getRecommendations(@PathVariable Long id,
+                                         @RequestParam(defaultValue = "10") @Positive
+                                         @Max(UserService.MAX_RECOMMENDATIONS) int limit) {
+        return userService.getRecommendations(id, limit);
+    }
+
+    /**
+     * Возвращает ленту активности: действия пользователя и его друзей, дружбу с ним и изменения каталога.
+     *
+     * @param id     идентификатор пользователя
+     * @param before курсор из предыдущей страницы; без него — с самого нового события
+     * @param limit  размер страницы, не больше {@value PageLimits#MAX_PAGE_SIZE}
+     * @return события от новых к старым и курсор следующей страницы.
+     */
+    @GetMapping("/{id}/feed")
+    public Page<FeedEvent> getFeed(@PathVariable Long id,
+                                   @RequestParam(required = false) @Positive Long before,
+                                   @RequestParam(defaultValue = "20") @Positive
+                                   @Max(PageLimits.MAX_PAGE_SIZE) int limit) {
+        return userService.getFeed(id, before, limit);
+    }
 }
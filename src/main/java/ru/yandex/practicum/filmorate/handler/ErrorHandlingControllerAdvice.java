@@ -1,11 +1,14 @@
 package ru.yandex.practicum.filmorate.handler;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.ErrorResponse;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
@@ -22,6 +25,16 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class ErrorHandlingControllerAdvice {
 
+    private final Counter notFoundCounter;
+    private final Counter duplicatedCounter;
+    private final Counter unexpectedCounter;
+
+    public ErrorHandlingControllerAdvice(MeterRegistry registry) {
+        notFoundCounter = errorCounter(registry, NotFoundException.class);
+        duplicatedCounter = errorCounter(registry, DuplicatedDataException.class);
+        unexpectedCounter = errorCounter(registry, Throwable.class);
+    }
+
     /**
      * Обработка ошибок валидации парамтеров
      *
@@ -54,6 +67,19 @@ public class ErrorHandlingControllerAdvice {
         return new ValidationErrorResponse(violations);
     }
 
+    /**
+     * Обработка параметра запроса, который не удалось преобразовать к нужному типу
+     *
+     * @param e исключение MethodArgumentTypeMismatchException
+     * @return нарушение с именем параметра.
+     */
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ValidationErrorResponse handleTypeMismatch(MethodArgumentTypeMismatchException e) {
+        return new ValidationErrorResponse(List.of(
+                new Violation(e.getName(), "Недопустимое значение: " + e.getValue())));
+    }
+
     /**
      * Обработка ситуации, когда объект не найден
      *
@@ -63,6 +89,7 @@ public class ErrorHandlingControllerAdvice {
     @ExceptionHandler(NotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleNotFound(NotFoundException e) {
+        notFoundCounter.increment();
         return new ErrorResponse(e.getMessage());
     }
 
@@ -75,12 +102,21 @@ public class ErrorHandlingControllerAdvice {
     @ExceptionHandler(DuplicatedDataException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleDuplicated(DuplicatedDataException e) {
+        duplicatedCounter.increment();
         return new ErrorResponse(e.getMessage());
     }
 
     @ExceptionHandler(Throwable.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleException(Throwable e) {
+        unexpectedCounter.increment();
         return new ErrorResponse("Произошла непредвиденная ошибка");
     }
+
+    private static Counter errorCounter(MeterRegistry registry, Class<? extends Throwable> type) {
+        return Counter.builder("filmorate.errors")
+                .description("Количество обработанных исключений")
+                .tag("exception", type.getSimpleName())
+                .register(registry);
+    }
 }
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Результат пакетной операции: число применённых элементов и ошибки по остальным.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BatchResult {
+
+    /**
+     * Количество успешно применённых элементов.
+     */
+    private final int applied;
+
+    /**
+     * Ошибки по элементам, не применённым к хранилищу, в порядке их позиций в запросе.
+     */
+    private final List<Failure> failed;
+
+    /**
+     * Ошибка отдельного элемента пакета.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Failure {
+
+        /**
+         * Позиция элемента в запросе, начиная с нуля.
+         */
+        private final int index;
+
+        /**
+         * Причина ошибки.
+         */
+        private final String message;
+    }
+}
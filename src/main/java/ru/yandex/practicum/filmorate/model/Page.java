@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница результатов постраничной выборки по id.
+ */
+@Getter
+@RequiredArgsConstructor
+public class Page<T> {
+
+    /**
+     * Элементы страницы в порядке возрастания id.
+     */
+    private final List<T> items;
+
+    /**
+     * Курсор следующей страницы (значение параметра after) или null, если страница последняя.
+     */
+    private final Long nextCursor;
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.model.feed;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Событие ленты активности.
+ */
+@Getter
+@RequiredArgsConstructor
+public class FeedEvent {
+
+    /**
+     * Идентификатор события; события одной ленты упорядочены по нему.
+     */
+    private final long id;
+
+    /**
+     * Время события с точностью до миллисекунды.
+     */
+    private final Instant timestamp;
+
+    private final FeedEventType type;
+
+    /**
+     * Пользователь, совершивший действие; null для событий фильма.
+     */
+    private final Long userId;
+
+    /**
+     * Фильм или друг, к которому относится действие.
+     */
+    private final long entityId;
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model.feed;
+
+/**
+ * Тип события ленты. Для событий фильма автор не указывается.
+ */
+public enum FeedEventType {
+    LIKE_ADDED,
+    LIKE_REMOVED,
+    FRIEND_ADDED,
+    FRIEND_REMOVED,
+    FILM_CREATED,
+    FILM_UPDATED
+}
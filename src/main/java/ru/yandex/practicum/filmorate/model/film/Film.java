@@ -6,11 +6,12 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
 import ru.yandex.practicum.filmorate.validator.Marker;
 import ru.yandex.practicum.filmorate.validator.release.ValidReleaseDate;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -52,7 +53,10 @@ public class Film {
             groups = {Marker.OnCreate.class, Marker.OnUpdate.class})
     private Integer duration;
 
-    private Set<Long> likes = new HashSet<>();
+    /**
+     * Идентификаторы пользователей, поставивших лайк.
+     */
+    private LongSet likes = new LongHashSet();
 
     private Set<Genre> genres;
 
@@ -1,10 +1,73 @@
 package ru.yandex.practicum.filmorate.model.film;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 public enum Genre {
-    COMEDY,
-    DRAMA,
-    CARTOON,
-    THRILLER,
-    DOCUMENTARY,
-    ACTION
+    COMEDY(1),
+    DRAMA(2),
+    CARTOON(3),
+    THRILLER(4),
+    DOCUMENTARY(5),
+    ACTION(6);
+
+    /**
+     * Жанры по id; id совпадают с ключами таблицы genres.
+     */
+    private static final Genre[] BY_ID = new Genre[Arrays.stream(values()).mapToInt(Genre::getId).max().orElse(0) + 1];
+
+    static {
+        for (Genre genre : values()) {
+            BY_ID[genre.id] = genre;
+        }
+    }
+
+    private final int id;
+
+    Genre(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Возвращает жанр по id из таблицы genres.
+     *
+     * @param id идентификатор жанра
+     * @return жанр.
+     * @throws IllegalArgumentException если жанра с таким id нет.
+     */
+    public static Genre byId(int id) {
+        if (id <= 0 || id >= BY_ID.length || BY_ID[id] == null) {
+            throw new IllegalArgumentException("Неизвестный жанр с id=" + id);
+        }
+        return BY_ID[id];
+    }
+
+    /**
+     * Возвращает бит жанра в маске жанров.
+     *
+     * @return маска с единственным битом этого жанра.
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Кодирует набор жанров битовой маской: проверка жанров фильма сводится к операциям над int.
+     *
+     * @param genres жанры, может быть null
+     * @return маска жанров; 0, если жанров нет.
+     */
+    public static int mask(Collection<Genre> genres) {
+        int mask = 0;
+        if (genres != null) {
+            for (Genre genre : genres) {
+                mask |= genre.bit();
+            }
+        }
+        return mask;
+    }
 }
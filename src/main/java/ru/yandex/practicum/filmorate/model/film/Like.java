@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model.film;
+
+import lombok.Data;
+
+/**
+ * Лайк пользователя фильму в пакетном запросе.
+ */
+@Data
+public class Like {
+
+    /**
+     * Идентификатор фильма.
+     */
+    private Long filmId;
+
+    /**
+     * Идентификатор пользователя.
+     */
+    private Long userId;
+}
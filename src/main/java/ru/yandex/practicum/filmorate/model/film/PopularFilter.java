@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.model.film;
+
+import java.util.Collection;
+
+/**
+ * Условия отбора фильмов в рейтинге популярности.
+ *
+ * @param genres маска жанров, каждый из которых должен быть у фильма; 0 — без условия
+ * @param rating рейтинг MPA; null — без условия
+ * @param year   год выхода; null — без условия.
+ */
+public record PopularFilter(int genres, Mpa rating, Integer year) {
+
+    /**
+     * Условие, которому удовлетворяет любой фильм.
+     */
+    public static final PopularFilter ANY = new PopularFilter(0, null, null);
+
+    public static PopularFilter of(Collection<Genre> genres, Mpa rating, Integer year) {
+        return new PopularFilter(Genre.mask(genres), rating, year);
+    }
+
+    public boolean isEmpty() {
+        return genres == 0 && rating == null && year == null;
+    }
+
+    /**
+     * Проверяет, подходит ли фильм с заданными признаками.
+     *
+     * @param genreMask маска жанров фильма
+     * @param mpa       рейтинг MPA фильма, может быть null
+     * @param release   год выхода фильма; 0, если дата неизвестна
+     * @return true, если фильм удовлетворяет всем условиям.
+     */
+    public boolean matches(int genreMask, Mpa mpa, int release) {
+        return (genreMask & genres) == genres
+                && (rating == null || rating == mpa)
+                && (year == null || year == release);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model.user;
+
+import lombok.Data;
+
+/**
+ * Дружба двух пользователей в пакетном запросе.
+ */
+@Data
+public class Friendship {
+
+    /**
+     * Идентификатор пользователя.
+     */
+    private Long userId;
+
+    /**
+     * Идентификатор друга.
+     */
+    private Long friendId;
+}
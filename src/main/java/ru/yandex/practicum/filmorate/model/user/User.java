@@ -3,12 +3,12 @@ package ru.yandex.practicum.filmorate.model.user;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
 import ru.yandex.practicum.filmorate.validator.Marker;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Модель данных пользователя.
@@ -50,7 +50,10 @@ public class User {
             groups = {Marker.OnCreate.class, Marker.OnUpdate.class})
     private LocalDate birthday;
 
-    private Set<Long> friends = new HashSet<>();
+    /**
+     * Идентификаторы друзей пользователя.
+     */
+    private LongSet friends = new LongHashSet();
 
     private Map<Long, FriendshipStatus> status;
 }
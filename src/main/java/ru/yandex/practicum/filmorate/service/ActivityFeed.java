@@ -0,0 +1,295 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.feed.FeedEvent;
+import ru.yandex.practicum.filmorate.model.feed.FeedEventType;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ленты активности пользователей.
+ * <p>
+ * Событие раскладывается по лентам при записи: в ленту автора, ленты его друзей и явно указанных
+ * получателей. События фильмов попадают в общую ленту каталога, которая при чтении сливается
+ * с лентой пользователя. Каждая лента — кольцевой буфер фиксированной ёмкости из примитивов:
+ * событие кодируется четырьмя long, объекты событий создаются только для читаемой страницы.
+ * <p>
+ * Буфер растёт до ёмкости по мере заполнения, затем вытесняет самые старые события, лента удалённого
+ * пользователя освобождается. Поэтому лентам нужно не больше (пользователи + 1) × ёмкость × 32 байт.
+ */
+@Component
+public class ActivityFeed {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int EVENT_LONGS = 4;
+    private static final int TYPE_BITS = 8;
+    private static final FeedEventType[] TYPES = FeedEventType.values();
+
+    private final UserStorage userStorage;
+    private final int capacity;
+    private final Clock clock;
+
+    /**
+     * Идентификаторы событий; событие получает один id во всех лентах.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final Ring catalog;
+
+    /**
+     * Создаёт ленты.
+     *
+     * @param userStorage хранилище пользователей, из которого читаются друзья автора события
+     * @param capacity    количество последних событий, хранимых в ленте.
+     */
+    @Autowired
+    public ActivityFeed(UserStorage userStorage, @Value("${filmorate.feed.capacity:200}") int capacity) {
+        this(userStorage, capacity, Clock.systemUTC());
+    }
+
+    ActivityFeed(UserStorage userStorage, int capacity, Clock clock) {
+        this.userStorage = userStorage;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.catalog = new Ring(capacity);
+    }
+
+    /**
+     * Записывает действие пользователя в его ленту и ленты его друзей.
+     * Лента заводится только автору; получателям событие попадает, если их лента уже заведена,
+     * поэтому публикация не воскрешает ленту удалённого пользователя.
+     *
+     * @param type       тип события
+     * @param userId     автор
+     * @param entityId   фильм или друг
+     * @param recipients получатели, которые должны увидеть событие, даже если не являются друзьями автора.
+     */
+    public void publish(FeedEventType type, long userId, long entityId, long... recipients) {
+        long id = sequence.incrementAndGet();
+        long meta = encode(type);
+        ring(userId).append(id, meta, userId, entityId);
+
+        LongSet friends = userStorage.getFriendIds(userId);
+        friends.forEachLong(friendId -> append(friendId, id, meta, userId, entityId));
+        for (long recipient : recipients) {
+            if (recipient != userId && !friends.contains(recipient)) {
+                append(recipient, id, meta, userId, entityId);
+            }
+        }
+    }
+
+    /**
+     * Записывает изменение фильма в общую ленту каталога.
+     *
+     * @param type   тип события
+     * @param filmId идентификатор фильма.
+     */
+    public void publishCatalog(FeedEventType type, long filmId) {
+        catalog.append(sequence.incrementAndGet(), encode(type), 0, filmId);
+    }
+
+    /**
+     * Возвращает страницу ленты пользователя от новых событий к старым.
+     * Стоимость O(log ёмкость + limit) и не зависит от количества друзей.
+     *
+     * @param userId идентификатор пользователя
+     * @param before курсор: id последнего события предыдущей страницы; null — с самого нового события
+     * @param limit  размер страницы
+     * @return события и курсор следующей страницы.
+     */
+    public Page<FeedEvent> read(long userId, Long before, int limit) {
+        long bound = before == null ? Long.MAX_VALUE : before;
+        Ring own = rings.get(userId);
+        long[] mine = new long[(limit + 1) * EVENT_LONGS];
+        int mineSize = own == null ? 0 : own.read(bound, limit + 1, mine);
+        long[] shared = new long[(limit + 1) * EVENT_LONGS];
+        int sharedSize = catalog.read(bound, limit + 1, shared);
+
+        List<FeedEvent> events = new ArrayList<>(limit);
+        int i = 0;
+        int j = 0;
+        while (events.size() < limit && (i < mineSize || j < sharedSize)) {
+            if (j == sharedSize || (i < mineSize && mine[i * EVENT_LONGS] > shared[j * EVENT_LONGS])) {
+                events.add(decode(mine, i++));
+            } else {
+                events.add(decode(shared, j++));
+            }
+        }
+        boolean more = i < mineSize || j < sharedSize;
+        return new Page<>(events, more ? events.get(events.size() - 1).getId() : null);
+    }
+
+    /**
+     * Заводит ленту пользователя, чтобы в неё попадали действия его друзей.
+     *
+     * @param userId идентификатор существующего пользователя.
+     */
+    public void register(long userId) {
+        ring(userId);
+    }
+
+    /**
+     * Освобождает ленту удалённого пользователя.
+     *
+     * @param userId идентификатор пользователя.
+     */
+    public void remove(long userId) {
+        rings.remove(userId);
+    }
+
+    /**
+     * Возвращает количество заведённых лент пользователей.
+     *
+     * @return количество лент.
+     */
+    public int size() {
+        return rings.size();
+    }
+
+    private Ring ring(long userId) {
+        return rings.computeIfAbsent(userId, key -> new Ring(capacity));
+    }
+
+    private void append(long recipient, long id, long meta, long userId, long entityId) {
+        Ring ring = rings.get(recipient);
+        if (ring != null) {
+            ring.append(id, meta, userId, entityId);
+        }
+    }
+
+    private long encode(FeedEventType type) {
+        return clock.millis() << TYPE_BITS | type.ordinal();
+    }
+
+    private static FeedEvent decode(long[] events, int index) {
+        int offset = index * EVENT_LONGS;
+        long meta = events[offset + 1];
+        long userId = events[offset + 2];
+        return new FeedEvent(events[offset], Instant.ofEpochMilli(meta >>> TYPE_BITS),
+                TYPES[(int) (meta & ((1 << TYPE_BITS) - 1))], userId == 0 ? null : userId, events[offset + 3]);
+    }
+
+    /**
+     * Кольцевой буфер событий, упорядоченный по id. События раскладываются по лентам параллельно,
+     * поэтому событие с меньшим id может прийти позже: оно вставляется на своё место сдвигом
+     * нескольких последних событий. Буфер защищён {@link ReentrantLock}, а не монитором,
+     * чтобы запись и чтение ленты не закрепляли виртуальный поток за несущим.
+     */
+    private static final class Ring {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        private long[] events = new long[0];
+        private int head;
+        private int size;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void append(long id, long meta, long userId, long entityId) {
+            lock.lock();
+            try {
+                insert(id, meta, userId, entityId);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Копирует события с id меньше границы, от новых к старым.
+         *
+         * @return количество скопированных событий.
+         */
+        int read(long before, int limit, long[] out) {
+            lock.lock();
+            try {
+                return copy(before, limit, out);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void insert(long id, long meta, long userId, long entityId) {
+            if (size == capacity) {
+                if (id < idAt(0)) {
+                    return;
+                }
+                head = (head + 1) % slots();
+                size--;
+            } else if (size == slots()) {
+                grow();
+            }
+
+            int position = size;
+            while (position > 0 && idAt(position - 1) > id) {
+                position--;
+            }
+            if (position > 0 && idAt(position - 1) == id) {
+                return;
+            }
+            for (int i = size; i > position; i--) {
+                System.arraycopy(events, offset(i - 1), events, offset(i), EVENT_LONGS);
+            }
+            int offset = offset(position);
+            events[offset] = id;
+            events[offset + 1] = meta;
+            events[offset + 2] = userId;
+            events[offset + 3] = entityId;
+            size++;
+        }
+
+        private int copy(long before, int limit, long[] out) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (idAt(middle) < before) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            int count = Math.min(limit, low);
+            for (int k = 0; k < count; k++) {
+                System.arraycopy(events, offset(low - 1 - k), out, k * EVENT_LONGS, EVENT_LONGS);
+            }
+            return count;
+        }
+
+        private void grow() {
+            int slots = Math.min(Math.max(slots() * 2, INITIAL_CAPACITY), capacity);
+            long[] grown = new long[slots * EVENT_LONGS];
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(events, offset(i), grown, i * EVENT_LONGS, EVENT_LONGS);
+            }
+            events = grown;
+            head = 0;
+        }
+
+        private int slots() {
+            return events.length / EVENT_LONGS;
+        }
+
+        private long idAt(int index) {
+            return events[offset(index)];
+        }
+
+        private int offset(int index) {
+            return (head + index) % slots() * EVENT_LONGS;
+        }
+    }
+}
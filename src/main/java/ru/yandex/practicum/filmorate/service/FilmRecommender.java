@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+/**
+ * Рекомендации фильмов совместной фильтрацией по разреженной матрице лайков.
+ * <p>
+ * Сначала по лайкам пользователя считается пересечение с каждым другим пользователем:
+ * для каждого понравившегося фильма перебираются поставившие ему лайк.
+ * Затем у самых похожих пользователей перебираются их фильмы по обратному индексу, и каждый
+ * ещё не понравившийся пользователю фильм получает вес, равный пересечению похожего пользователя.
+ * Оба шага выполняются параллельно и ограничены бюджетом просмотренных лайков.
+ */
+@Slf4j
+class FilmRecommender {
+
+    private final FilmStorage filmStorage;
+    private final ParallelCounter counter;
+    private final int neighbours;
+    private final long maxWork;
+
+    /**
+     * Создаёт подбор рекомендаций.
+     *
+     * @param filmStorage хранилище фильмов
+     * @param counter     параллельный подсчёт
+     * @param neighbours  количество похожих пользователей, чьи фильмы рекомендуются
+     * @param maxWork     максимальное количество лайков, просматриваемых на каждом шаге.
+     */
+    FilmRecommender(FilmStorage filmStorage, ParallelCounter counter, int neighbours, long maxWork) {
+        this.filmStorage = filmStorage;
+        this.counter = counter;
+        this.neighbours = neighbours;
+        this.maxWork = maxWork;
+    }
+
+    /**
+     * Подбирает фильмы пользователю.
+     *
+     * @param userId идентификатор пользователя
+     * @param count  максимальное количество фильмов
+     * @return id фильмов в порядке убывания веса, при равенстве — по возрастанию id.
+     */
+    long[] recommend(long userId, int count) {
+        LongSet liked = filmStorage.getLikedFilmIds(userId);
+        ParallelCounter.Budget overlapBudget = new ParallelCounter.Budget(maxWork);
+        LongIntHashMap overlap = counter.count(liked.toLongArray(), null, filmStorage::getLikerIds,
+                other -> other != userId, overlapBudget);
+
+        long[] similar = ParallelCounter.top(overlap, neighbours);
+        int[] weights = new int[similar.length];
+        for (int i = 0; i < similar.length; i++) {
+            weights[i] = overlap.get(similar[i]);
+        }
+
+        ParallelCounter.Budget scoreBudget = new ParallelCounter.Budget(maxWork);
+        LongIntHashMap scores = counter.count(similar, weights, filmStorage::getLikedFilmIds,
+                filmId -> !liked.contains(filmId), scoreBudget);
+        if (overlapBudget.isExhausted() || scoreBudget.isExhausted()) {
+            log.debug("Фильмы пользователю id={} подобраны приблизительно: лайков {}, похожих пользователей {}",
+                    userId, liked.size(), overlap.size());
+        }
+        return ParallelCounter.top(scores, count);
+    }
+}
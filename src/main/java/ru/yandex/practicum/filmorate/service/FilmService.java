@@ -1,50 +1,173 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Like;
+import ru.yandex.practicum.filmorate.model.feed.FeedEventType;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
 import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.StripedLock;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.VersionClock;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
+@Timed("filmorate.service")
 public class FilmService {
 
+    /**
+     * Максимальная длина списка рекомендованных фильмов.
+     */
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    /**
+     * Максимальное количество фильмов в результатах поиска.
+     */
+    public static final int MAX_SEARCH_RESULTS = 100;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
 
+    /**
+     * Версия каталога: сдвигается после каждого изменения фильмов и лайков, в том числе неудачного,
+     * так как изменение могло примениться частично.
+     */
+    private final VersionClock catalogVersions = new VersionClock("films");
+
+    private final PopularChartCache popularChart;
+
+    private final FilmRecommender recommender;
+
+    private final ActivityFeed feed;
+
+    /**
+     * Блокировки пользователей: разделяют добавление лайка и каскадное удаление пользователя.
+     */
+    private final StripedLock userLocks = new StripedLock();
+
+    /**
+     * Создаёт сервис.
+     *
+     * @param objectMapper              сериализация фильмов для кэша рейтинга
+     * @param chartSize                 длина кэшируемого рейтинга популярных фильмов
+     * @param chartMaxStaleness         допустимое отставание кэшированного рейтинга от каталога
+     * @param recommendationNeighbours  количество похожих пользователей для рекомендаций фильмов
+     * @param recommendationMaxWork     максимальное количество лайков, просматриваемых на шаге рекомендаций
+     * @param counter                   параллельный подсчёт соседей для рекомендаций
+     * @param feed                      ленты активности, в которые пишутся изменения фильмов и лайков.
+     */
+    @Autowired
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, ObjectMapper objectMapper,
+                       @Value("${filmorate.cache.popular.size:100}") int chartSize,
+                       @Value("${filmorate.cache.popular.max-staleness:0ms}") Duration chartMaxStaleness,
+                       @Value("${filmorate.recommendations.neighbours:50}") int recommendationNeighbours,
+                       @Value("${filmorate.recommendations.max-work:1000000}") long recommendationMaxWork,
+                       ParallelCounter counter,
+                       ActivityFeed feed) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.popularChart = new PopularChartCache(chartSize, chartMaxStaleness, catalogVersions,
+                filmStorage::getPopular, objectMapper.writer());
+        this.recommender = new FilmRecommender(filmStorage, counter, recommendationNeighbours, recommendationMaxWork);
+        this.feed = feed;
+    }
+
+    /**
+     * Возвращает ETag текущей версии каталога для списков фильмов и рейтинга.
+     *
+     * @return строгий ETag.
+     */
+    public String getCatalogETag() {
+        return catalogVersions.etag();
+    }
+
     public Collection<Film> getAll() {
         return filmStorage.getAll();
     }
 
+    public Page<Film> getPage(long after, int limit) {
+        return filmStorage.getPage(after, limit);
+    }
+
+    public Stream<Film> stream() {
+        return filmStorage.stream();
+    }
+
     public Film create(Film film) {
-        return filmStorage.create(film);
+        try {
+            Film created = filmStorage.create(film);
+            feed.publishCatalog(FeedEventType.FILM_CREATED, created.getId());
+            return created;
+        } finally {
+            catalogVersions.advance();
+        }
     }
 
     public Film update(Film film) {
-        return filmStorage.update(film);
+        try {
+            Film updated = filmStorage.update(film);
+            feed.publishCatalog(FeedEventType.FILM_UPDATED, updated.getId());
+            return updated;
+        } finally {
+            catalogVersions.advance();
+        }
     }
 
     public void delete(Long id) {
-        filmStorage.delete(id);
+        try {
+            filmStorage.delete(id);
+        } finally {
+            catalogVersions.advance();
+        }
     }
 
+    /**
+     * Добавляет лайк. Пользователь проверяется под его блокировкой, под которой выполняется и
+     * {@link #deleteUser}, поэтому лайк не может появиться у уже удалённого пользователя.
+     *
+     * @param id     идентификатор фильма
+     * @param userId идентификатор пользователя.
+     */
     public void addLike(Long id, Long userId) {
         Film film = filmStorage.getById(id)
                 .orElseThrow(() -> new NotFoundException("Фильм с id=" + id + " не найден")
                 );
 
-        User user = userStorage.getById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + id + " не найден")
-                );
+        boolean added = userLocks.withLock(userId, () -> {
+            User user = userStorage.getById(userId)
+                    .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден")
+                    );
 
-        film.getLikes().add(userId);
+            boolean changed = true;
+            try {
+                changed = filmStorage.addLike(film.getId(), user.getId());
+            } finally {
+                if (changed) {
+                    catalogVersions.advance();
+                }
+            }
+            return changed;
+        });
+        if (added) {
+            feed.publish(FeedEventType.LIKE_ADDED, userId, film.getId());
+        }
     }
 
     public void deleteLike(Long id, Long userId) {
@@ -56,15 +179,214 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден")
                 );
 
-        film.getLikes().remove(userId);
+        boolean removed = true;
+        try {
+            removed = filmStorage.deleteLike(film.getId(), user.getId());
+        } finally {
+            if (removed) {
+                catalogVersions.advance();
+            }
+        }
+        if (removed) {
+            feed.publish(FeedEventType.LIKE_REMOVED, user.getId(), film.getId());
+        }
+    }
+
+    /**
+     * Удаляет пользователя вместе со всеми его лайками как одну операцию под блокировкой пользователя.
+     *
+     * @param userId     идентификатор пользователя
+     * @param deleteUser удаление самого пользователя из хранилища.
+     */
+    void deleteUser(Long userId, Runnable deleteUser) {
+        userLocks.withLock(userId, () -> {
+            deleteUser.run();
+            try {
+                filmStorage.deleteUserLikes(userId);
+            } finally {
+                catalogVersions.advance();
+            }
+        });
+    }
+
+    /**
+     * Возвращает фильмы, которым пользователь поставил лайк.
+     *
+     * @param userId идентификатор пользователя
+     * @return фильмы в порядке возрастания id.
+     */
+    public List<Film> getLikedFilms(Long userId) {
+        userStorage.getById(userId)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден"));
+
+        long[] filmIds = filmStorage.getLikedFilmIds(userId).toLongArray();
+        Arrays.sort(filmIds);
+        List<Film> films = new ArrayList<>(filmIds.length);
+        for (long filmId : filmIds) {
+            filmStorage.getById(filmId).ifPresent(films::add);
+        }
+        return films;
+    }
+
+    /**
+     * Добавляет лайки пакетом. Существование фильмов и пользователей проверяется
+     * одним запросом к каждому хранилищу, ошибочные элементы не мешают применению остальных.
+     * Уже поставленные лайки не считаются ни применёнными, ни ошибочными.
+     *
+     * @param likes пары фильм-пользователь
+     * @return количество применённых лайков и ошибки по элементам.
+     */
+    public BatchResult addLikes(List<Like> likes) {
+        int size = likes.size();
+        long[] filmIds = new long[size];
+        long[] userIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            Like like = likes.get(i);
+            if (like != null && like.getFilmId() != null && like.getUserId() != null) {
+                filmIds[i] = like.getFilmId();
+                userIds[i] = like.getUserId();
+            }
+        }
+        LongSet films = filmStorage.findExistingIds(filmIds);
+        LongSet users = userStorage.findExistingIds(userIds);
+
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        int[] positions = new int[size];
+        int accepted = 0;
+        for (int i = 0; i < size; i++) {
+            Like like = likes.get(i);
+            if (like == null || like.getFilmId() == null || like.getUserId() == null) {
+                failures.add(new BatchResult.Failure(i, "Должны быть указаны id фильма и пользователя"));
+            } else if (!films.contains(filmIds[i])) {
+                failures.add(new BatchResult.Failure(i, "Фильм с id=" + filmIds[i] + " не найден"));
+            } else if (!users.contains(userIds[i])) {
+                failures.add(new BatchResult.Failure(i, "Пользователь с id=" + userIds[i] + " не найден"));
+            } else {
+                filmIds[accepted] = filmIds[i];
+                userIds[accepted] = userIds[i];
+                positions[accepted++] = i;
+            }
+        }
+
+        boolean[] applied;
+        try {
+            applied = filmStorage.addLikes(Arrays.copyOf(filmIds, accepted), Arrays.copyOf(userIds, accepted));
+        } finally {
+            catalogVersions.advance();
+        }
+        // Неприменённый элемент — либо повтор лайка, либо фильм или пользователь удалены после проверки;
+        // различаем их повторной проверкой только отклонённых элементов.
+        int rejected = 0;
+        long[] rejectedFilms = new long[accepted];
+        long[] rejectedUsers = new long[accepted];
+        for (int k = 0; k < accepted; k++) {
+            if (!applied[k]) {
+                rejectedFilms[rejected] = filmIds[k];
+                rejectedUsers[rejected++] = userIds[k];
+            }
+        }
+        if (rejected > 0) {
+            films = filmStorage.findExistingIds(Arrays.copyOf(rejectedFilms, rejected));
+            users = userStorage.findExistingIds(Arrays.copyOf(rejectedUsers, rejected));
+        }
+        int appliedCount = 0;
+        for (int k = 0; k < accepted; k++) {
+            if (applied[k]) {
+                appliedCount++;
+                feed.publish(FeedEventType.LIKE_ADDED, userIds[k], filmIds[k]);
+            } else if (!films.contains(filmIds[k]) || !users.contains(userIds[k])) {
+                failures.add(new BatchResult.Failure(positions[k],
+                        "Фильм с id=" + filmIds[k] + " или пользователь с id=" + userIds[k] + " не найден"));
+            }
+        }
+        failures.sort(Comparator.comparingInt(BatchResult.Failure::getIndex));
+        return new BatchResult(appliedCount, failures);
+    }
+
+    /**
+     * Возвращает фильмы, вышедшие в период, по возрастанию даты выхода.
+     *
+     * @param from  первый день периода; null — без ограничения
+     * @param to    последний день периода; null — без ограничения
+     * @param limit количество фильмов
+     * @return список фильмов.
+     */
+    public List<Film> getReleased(LocalDate from, LocalDate to, int limit) {
+        return filmStorage.getReleased(from, to, limit);
+    }
+
+    /**
+     * Находит фильмы по словам из названия и описания.
+     *
+     * @param query текст запроса
+     * @param limit количество фильмов, не больше {@value #MAX_SEARCH_RESULTS}
+     * @return фильмы в порядке убывания релевантности.
+     */
+    public List<Film> search(String query, int limit) {
+        return filmStorage.search(query, limit);
+    }
+
+    /**
+     * Возвращает пользователей, поставивших лайк обоим фильмам. Пользователь, удалённый после чтения лайков,
+     * пропускается, как в списке общих друзей.
+     *
+     * @param id      идентификатор фильма
+     * @param otherId идентификатор другого фильма
+     * @return пользователи, найденные в хранилище.
+     */
+    public List<User> getCommonLikers(Long id, Long otherId) {
+        long[] likerIds = filmStorage.getCommonLikerIds(id, otherId);
+
+        List<User> likers = new ArrayList<>(likerIds.length);
+        for (long likerId : likerIds) {
+            userStorage.getById(likerId).ifPresent(likers::add);
+        }
+        return likers;
+    }
+
+    /**
+     * Рекомендует фильмы, которые понравились пользователям с похожими лайками.
+     *
+     * @param userId идентификатор пользователя
+     * @param limit  длина списка, не больше {@value #MAX_RECOMMENDATIONS}
+     * @return фильмы в порядке убывания веса рекомендации.
+     */
+    public List<Film> getRecommendedFilms(Long userId, int limit) {
+        userStorage.getById(userId)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден"));
+
+        long[] filmIds = recommender.recommend(userId, limit);
+        List<Film> films = new ArrayList<>(filmIds.length);
+        for (long filmId : filmIds) {
+            filmStorage.getById(filmId).ifPresent(films::add);
+        }
+        return films;
     }
 
     public List<Film> getTopFilms(int count) {
-        return filmStorage.getAll().stream()
-                .sorted((f1, f2) ->
-                        Integer.compare(f2.getLikes().size(),
-                                f1.getLikes().size()))
-                .limit(count)
-                .collect(Collectors.toList());
+        return filmStorage.getPopular(count);
+    }
+
+    /**
+     * Возвращает самые популярные фильмы с заданными жанрами, рейтингом MPA и годом выхода.
+     * Такие выборки не кэшируются: хранилище отбирает их по индексам жанров и рейтингов.
+     *
+     * @param count  длина рейтинга
+     * @param filter условия отбора
+     * @return список фильмов в порядке убывания популярности.
+     */
+    public List<Film> getTopFilms(int count, PopularFilter filter) {
+        return filmStorage.getPopular(count, filter);
+    }
+
+    /**
+     * Возвращает рейтинг популярных фильмов, сериализованный в JSON.
+     * Рейтинг не длиннее кэшируемого берётся из кэша и перестраивается только после изменения каталога.
+     *
+     * @param count длина рейтинга
+     * @return сериализованный рейтинг с ETag версии каталога, с которой он построен.
+     */
+    public PopularChart getPopularChart(int count) {
+        return popularChart.get(count);
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.util.Arrays;
+
+/**
+ * Подбор рекомендаций «друзья друзей»: пользователи, не являющиеся друзьями,
+ * упорядочены по убыванию количества общих друзей, при равенстве — по возрастанию id.
+ * <p>
+ * Друзья первого шага обрабатываются параллельно. Работа запроса ограничена бюджетом просмотренных связей
+ * второго шага: у пользователя-хаба друзья, на которых бюджета не хватило, пропускаются,
+ * и рекомендации становятся приблизительными.
+ */
+@Slf4j
+class FriendRecommender {
+
+    private final UserStorage userStorage;
+    private final ParallelCounter counter;
+    private final int size;
+    private final long maxWork;
+
+    /**
+     * Создаёт подбор рекомендаций.
+     *
+     * @param userStorage хранилище пользователей
+     * @param counter     параллельный подсчёт
+     * @param size        максимальная длина списка рекомендаций
+     * @param maxWork     максимальное количество связей, просматриваемых за один подбор.
+     */
+    FriendRecommender(UserStorage userStorage, ParallelCounter counter, int size, long maxWork) {
+        this.userStorage = userStorage;
+        this.counter = counter;
+        this.size = size;
+        this.maxWork = maxWork;
+    }
+
+    /**
+     * Подбирает рекомендации пользователю.
+     *
+     * @param id идентификатор пользователя
+     * @return id рекомендованных пользователей в порядке убывания количества общих друзей.
+     */
+    long[] recommend(long id) {
+        LongSet friends = userStorage.getFriendIds(id);
+        long[] frontier = friends.toLongArray();
+        ParallelCounter.Budget budget = new ParallelCounter.Budget(maxWork);
+        if (!budget.reserve(frontier.length)) {
+            frontier = Arrays.copyOf(frontier, (int) Math.min(frontier.length, maxWork / 2));
+            budget.reserve(frontier.length);
+        }
+
+        LongIntHashMap counts = counter.count(frontier, null, userStorage::getFriendIds,
+                candidate -> candidate != id && !friends.contains(candidate), budget);
+        if (budget.isExhausted()) {
+            log.debug("Рекомендации пользователя id={} подобраны приблизительно: друзей {}", id, friends.size());
+        }
+        return ParallelCounter.top(counts, size);
+    }
+}
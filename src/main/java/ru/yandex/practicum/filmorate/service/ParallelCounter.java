@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Параллельный подсчёт соседей через один шаг разреженного графа: друзей друзей, пользователей
+ * с общими лайками, фильмов похожих пользователей.
+ * <p>
+ * Источники делятся между задачами пула fork-join, каждая задача считает соседей
+ * в своей таблице примитивных счётчиков, таблицы складываются при объединении задач.
+ * Работа ограничена бюджетом просмотренных связей.
+ * <p>
+ * Один пул используется рекомендациями фильмов и друзей и останавливается вместе с контекстом приложения.
+ */
+@Component
+public class ParallelCounter implements DisposableBean {
+
+    /**
+     * Количество источников, которое задача обрабатывает без деления.
+     */
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Создаёт счётчик со своим пулом.
+     *
+     * @param parallelism количество потоков пула; 0 — по числу процессоров.
+     */
+    public ParallelCounter(@Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Останавливает пул, дожидаясь выполняющихся подсчётов.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Прибавляет вес каждого источника к счётчикам его подходящих соседей.
+     *
+     * @param sources    источники
+     * @param weights    веса источников; null — вес каждого источника равен 1
+     * @param neighbours соседи источника
+     * @param accept     отбор соседей
+     * @param budget     бюджет просмотренных связей
+     * @return суммарный вес по каждому соседу.
+     */
+    LongIntHashMap count(long[] sources, int[] weights, LongFunction<LongSet> neighbours,
+                         LongPredicate accept, Budget budget) {
+        return pool.invoke(new CountTask(sources, weights, neighbours, accept, budget, 0, sources.length));
+    }
+
+    /**
+     * Отбирает ключи с наибольшими значениями кучей размера не больше size.
+     * При равных значениях выше ключ с меньшим id.
+     *
+     * @param counts счётчики
+     * @param size   максимальное количество ключей
+     * @return ключи в порядке убывания значений.
+     */
+    static long[] top(LongIntHashMap counts, int size) {
+        PriorityQueue<long[]> heap = new PriorityQueue<>(size + 1, (a, b) -> a[1] != b[1]
+                ? Long.compare(a[1], b[1])
+                : Long.compare(b[0], a[0]));
+        counts.forEach((key, value) -> {
+            if (heap.size() < size) {
+                heap.add(new long[]{key, value});
+                return;
+            }
+            long[] weakest = heap.peek();
+            if (value > weakest[1] || (value == weakest[1] && key < weakest[0])) {
+                heap.poll();
+                heap.add(new long[]{key, value});
+            }
+        });
+
+        long[] keys = new long[heap.size()];
+        for (int i = keys.length - 1; i >= 0; i--) {
+            keys[i] = heap.poll()[0];
+        }
+        return keys;
+    }
+
+    /**
+     * Оставшаяся работа одного вычисления. Список соседей, не помещающийся в остаток, пропускается целиком,
+     * а меньшие списки после него ещё могут поместиться.
+     */
+    static final class Budget {
+
+        private final AtomicLong remaining;
+        private volatile boolean exhausted;
+
+        Budget(long work) {
+            this.remaining = new AtomicLong(work);
+        }
+
+        /**
+         * Резервирует работу.
+         *
+         * @param work количество связей
+         * @return false, если остатка не хватает.
+         */
+        boolean reserve(long work) {
+            long current;
+            do {
+                current = remaining.get();
+                if (current < work) {
+                    exhausted = true;
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - work));
+            return true;
+        }
+
+        /**
+         * Возвращает признак того, что часть работы была пропущена.
+         *
+         * @return true, если хотя бы одно резервирование не удалось.
+         */
+        boolean isExhausted() {
+            return exhausted;
+        }
+    }
+
+    private static class CountTask extends RecursiveTask<LongIntHashMap> {
+
+        private final long[] sources;
+        private final int[] weights;
+        private final LongFunction<LongSet> neighbours;
+        private final LongPredicate accept;
+        private final Budget budget;
+        private final int from;
+        private final int to;
+
+        CountTask(long[] sources, int[] weights, LongFunction<LongSet> neighbours, LongPredicate accept,
+                  Budget budget, int from, int to) {
+            this.sources = sources;
+            this.weights = weights;
+            this.neighbours = neighbours;
+            this.accept = accept;
+            this.budget = budget;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongIntHashMap compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                return count();
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(sources, weights, neighbours, accept, budget, from, middle);
+            left.fork();
+            LongIntHashMap right = new CountTask(sources, weights, neighbours, accept, budget, middle, to).compute();
+            LongIntHashMap joined = left.join();
+            if (joined.size() < right.size()) {
+                right.addAll(joined);
+                return right;
+            }
+            joined.addAll(right);
+            return joined;
+        }
+
+        private LongIntHashMap count() {
+            LongIntHashMap counts = new LongIntHashMap();
+            for (int i = from; i < to; i++) {
+                LongSet next = neighbours.apply(sources[i]);
+                if (!budget.reserve(next.size())) {
+                    continue;
+                }
+                int weight = weights == null ? 1 : weights[i];
+                next.forEachLong(neighbour -> {
+                    if (accept.test(neighbour)) {
+                        counts.addTo(neighbour, weight);
+                    }
+                });
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Рейтинг популярных фильмов, заранее сериализованный в JSON-массив в UTF-8.
+ * Хранит позиции концов элементов, поэтому начало рейтинга любой длины отдаётся без копирования.
+ */
+public class PopularChart {
+
+    private static final byte[] EMPTY = {'[', ']'};
+
+    private final byte[] json;
+    private final int[] ends;
+    private final long version;
+    private final String etag;
+    private final long builtAtNanos;
+
+    /**
+     * Создаёт рейтинг.
+     *
+     * @param json    открывающая скобка и элементы через запятую, без закрывающей скобки
+     * @param ends    позиция конца каждого элемента в json
+     * @param version версия каталога, с которой построен рейтинг
+     * @param etag    ETag этой версии.
+     */
+    PopularChart(byte[] json, int[] ends, long version, String etag) {
+        this.json = json;
+        this.ends = ends;
+        this.version = version;
+        this.etag = etag;
+        this.builtAtNanos = System.nanoTime();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    long getBuiltAtNanos() {
+        return builtAtNanos;
+    }
+
+    /**
+     * Возвращает количество фильмов в рейтинге.
+     *
+     * @return количество фильмов.
+     */
+    public int size() {
+        return ends.length;
+    }
+
+    /**
+     * Возвращает длину JSON первых фильмов рейтинга.
+     *
+     * @param count количество фильмов
+     * @return длина в байтах.
+     */
+    public int contentLength(int count) {
+        int size = Math.min(count, ends.length);
+        return size == 0 ? EMPTY.length : ends[size - 1] + 1;
+    }
+
+    /**
+     * Записывает JSON-массив первых фильмов рейтинга.
+     *
+     * @param count  количество фильмов
+     * @param output поток вывода, не закрывается.
+     */
+    public void writeTo(int count, OutputStream output) throws IOException {
+        int size = Math.min(count, ends.length);
+        if (size == 0) {
+            output.write(EMPTY);
+            return;
+        }
+        output.write(json, 0, ends[size - 1]);
+        output.write(']');
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.util.VersionClock;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Кэш сериализованного рейтинга популярных фильмов.
+ * <p>
+ * Рейтинг перестраивается лениво, при первом чтении после изменения каталога.
+ * Одновременно выполняется не больше одной перестройки: остальные читатели ждут её результат,
+ * поэтому всплеск лайков не вызывает лавину одинаковых сериализаций.
+ * Допустимое отставание позволяет отдавать рейтинг, построенный недавно, не дожидаясь перестройки.
+ */
+class PopularChartCache {
+
+    private final int maxCount;
+    private final long maxStalenessNanos;
+    private final VersionClock catalogVersions;
+    private final IntFunction<List<Film>> loader;
+    private final ObjectWriter writer;
+
+    private final AtomicReference<CompletableFuture<PopularChart>> rebuild = new AtomicReference<>();
+    private volatile PopularChart chart;
+
+    /**
+     * Создаёт кэш.
+     *
+     * @param maxCount        длина хранимого рейтинга; более длинные запросы строятся без кэша
+     * @param maxStaleness    сколько можно отдавать рейтинг после изменения каталога; ноль — не отставать
+     * @param catalogVersions версии каталога
+     * @param loader          загрузка первых фильмов рейтинга
+     * @param writer          сериализация фильмов в JSON.
+     */
+    PopularChartCache(int maxCount, Duration maxStaleness, VersionClock catalogVersions,
+                      IntFunction<List<Film>> loader, ObjectWriter writer) {
+        this.maxCount = maxCount;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.catalogVersions = catalogVersions;
+        this.loader = loader;
+        this.writer = writer;
+    }
+
+    /**
+     * Возвращает рейтинг, отражающий все изменения каталога до вызова, с учётом допустимого отставания.
+     *
+     * @param count длина рейтинга
+     * @return сериализованный рейтинг не короче count, если в каталоге достаточно фильмов.
+     */
+    PopularChart get(int count) {
+        if (count > maxCount) {
+            return build(count);
+        }
+
+        long required = catalogVersions.current();
+        while (true) {
+            PopularChart current = chart;
+            if (current != null && (current.getVersion() >= required
+                    || System.nanoTime() - current.getBuiltAtNanos() < maxStalenessNanos)) {
+                return current;
+            }
+
+            CompletableFuture<PopularChart> pending = rebuild.get();
+            if (pending != null) {
+                await(pending);
+                continue;
+            }
+
+            CompletableFuture<PopularChart> own = new CompletableFuture<>();
+            if (!rebuild.compareAndSet(null, own)) {
+                continue;
+            }
+            try {
+                PopularChart built = build(maxCount);
+                chart = built;
+                own.complete(built);
+            } catch (RuntimeException | Error e) {
+                own.completeExceptionally(e);
+                throw e;
+            } finally {
+                rebuild.set(null);
+            }
+        }
+    }
+
+    private PopularChart build(int count) {
+        long version = catalogVersions.current();
+        List<Film> films = loader.apply(count);
+
+        byte[] json = new byte[256];
+        int[] ends = new int[films.size()];
+        json[0] = '[';
+        int length = 1;
+        for (int i = 0; i < films.size(); i++) {
+            byte[] element;
+            try {
+                element = writer.writeValueAsBytes(films.get(i));
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+            int required = length + element.length + 1;
+            if (required > json.length) {
+                json = Arrays.copyOf(json, Math.max(required, json.length << 1));
+            }
+            if (i > 0) {
+                json[length++] = ',';
+            }
+            System.arraycopy(element, 0, json, length, element.length);
+            length += element.length;
+            ends[i] = length;
+        }
+        return new PopularChart(json, ends, version, catalogVersions.etagOf(version));
+    }
+
+    private static void await(CompletableFuture<PopularChart> pending) {
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,36 +1,167 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.feed.FeedEvent;
+import ru.yandex.practicum.filmorate.model.feed.FeedEventType;
+import ru.yandex.practicum.filmorate.model.user.Friendship;
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.VersionClock;
+import ru.yandex.practicum.filmorate.util.WeightedCache;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component
-@RequiredArgsConstructor
+@Timed("filmorate.service")
 public class UserService {
 
+    /**
+     * Максимальная длина списка рекомендаций; в кэше хранится список этой длины.
+     */
+    public static final int MAX_RECOMMENDATIONS = 100;
+
     private final UserStorage userStorage;
 
+    /**
+     * Списки друзей по id пользователя. Запись пользователя сбрасывается при изменении его дружбы,
+     * а записи его друзей — при изменении или удалении самого пользователя, так как он входит в их списки.
+     */
+    private final WeightedCache<List<User>> friendListCache;
+
+    /**
+     * Рекомендации по id пользователя: id кандидатов в порядке убывания количества общих друзей.
+     * Рекомендации пользователя зависят от его друзей и друзей его друзей, поэтому при изменении дружбы
+     * сбрасываются записи обоих пользователей и всех их друзей.
+     */
+    private final WeightedCache<long[]> recommendationCache;
+
+    private final FriendRecommender recommender;
+
+    private final ActivityFeed feed;
+
+    /**
+     * Сервис фильмов, удаляющий лайки пользователя вместе с ним самим.
+     */
+    private final FilmService filmService;
+
+    /**
+     * Общая версия пользователей и версии списков друзей по id пользователя.
+     * Сдвигаются в тех же местах, где сбрасывается кэш списков друзей.
+     */
+    private final VersionClock userVersions = new VersionClock("users");
+
+    /**
+     * Создаёт сервис.
+     *
+     * @param friendListCache           кэш списков друзей
+     * @param recommendationCache       кэш рекомендаций
+     * @param recommendationMaxWork     максимальное количество связей, просматриваемых за один подбор рекомендаций
+     * @param counter                   параллельный подсчёт соседей для рекомендаций
+     * @param feed                      ленты активности, в которые пишутся изменения дружбы
+     * @param filmService               сервис фильмов, удаляющий лайки удалённого пользователя.
+     */
+    @Autowired
+    public UserService(UserStorage userStorage,
+                       WeightedCache<List<User>> friendListCache,
+                       WeightedCache<long[]> recommendationCache,
+                       @Value("${filmorate.recommendations.max-work:1000000}") long recommendationMaxWork,
+                       ParallelCounter counter,
+                       ActivityFeed feed,
+                       FilmService filmService) {
+        this.userStorage = userStorage;
+        this.friendListCache = friendListCache;
+        this.recommendationCache = recommendationCache;
+        this.recommender = new FriendRecommender(userStorage, counter, MAX_RECOMMENDATIONS, recommendationMaxWork);
+        this.feed = feed;
+        this.filmService = filmService;
+    }
+
+    /**
+     * Возвращает ETag текущей версии списка пользователей.
+     *
+     * @return строгий ETag.
+     */
+    public String getUsersETag() {
+        return userVersions.etag();
+    }
+
+    /**
+     * Возвращает ETag текущей версии списка друзей пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @return строгий ETag.
+     */
+    public String getFriendsETag(long id) {
+        return userVersions.etag(id);
+    }
+
     public Collection<User> getAll() {
         return userStorage.getAll();
     }
 
+    public Page<User> getPage(long after, int limit) {
+        return userStorage.getPage(after, limit);
+    }
+
+    public Stream<User> stream() {
+        return userStorage.stream();
+    }
+
     public User create(User user) {
-        return userStorage.create(user);
+        User created = userStorage.create(user);
+        userVersions.advance(created.getId());
+        feed.register(created.getId());
+        return created;
     }
 
     public User update(User user) {
-        return userStorage.update(user);
+        User updated = userStorage.update(user);
+        friendListsChanged(updated.getFriends().toLongArray());
+        userVersions.advance();
+        return updated;
     }
 
+    /**
+     * Удаляет пользователя вместе с его лайками и сбрасывает списки и рекомендации его друзей.
+     * Друзья читаются после удаления: в памяти это тот же объект, и новых друзей у удалённого
+     * пользователя появиться уже не может.
+     *
+     * @param id идентификатор пользователя.
+     */
     public void delete(Long id) {
-        userStorage.delete(id);
+        User user = userStorage.getById(id)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + id + " не найден"));
+        filmService.deleteUser(id, () -> userStorage.delete(id));
+        long[] friendIds = user.getFriends().toLongArray();
+        friendListChanged(id);
+        friendListsChanged(friendIds);
+        recommendationCache.invalidate(id);
+        for (long friendId : friendIds) {
+            recommendationCache.invalidate(friendId);
+        }
+        feed.remove(id);
+    }
+
+    public User getByEmail(String email) {
+        return userStorage.findByEmail(email)
+                .orElseThrow(() -> new NotFoundException("Пользователь с email=" + email + " не найден"));
+    }
+
+    public User getByLogin(String login) {
+        return userStorage.findByLogin(login)
+                .orElseThrow(() -> new NotFoundException("Пользователь с логином " + login + " не найден"));
     }
 
     public void addFriends(Long id, Long friendId) {
@@ -39,8 +170,81 @@ public class UserService {
         User friend = userStorage.getById(friendId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id=" + friendId + " не найден"));
 
-        user.getFriends().add(friendId);
-        friend.getFriends().add(id);
+        if (userStorage.addFriend(user.getId(), friend.getId())) {
+            friendshipChanged(user.getId(), friend.getId());
+            feed.publish(FeedEventType.FRIEND_ADDED, user.getId(), friend.getId(), friend.getId());
+        }
+    }
+
+    /**
+     * Добавляет дружбу пакетом. Существование пользователей проверяется одним запросом,
+     * ошибочные элементы не мешают применению остальных. Уже существующая дружба не считается
+     * ни применённой, ни ошибочной.
+     *
+     * @param friendships пары пользователь-друг
+     * @return количество применённых пар и ошибки по элементам.
+     */
+    public BatchResult addFriends(List<Friendship> friendships) {
+        int size = friendships.size();
+        long[] ids = new long[size];
+        long[] friendIds = new long[size];
+        long[] allIds = new long[size * 2];
+        for (int i = 0; i < size; i++) {
+            Friendship friendship = friendships.get(i);
+            if (friendship != null && friendship.getUserId() != null && friendship.getFriendId() != null) {
+                ids[i] = friendship.getUserId();
+                friendIds[i] = friendship.getFriendId();
+                allIds[2 * i] = ids[i];
+                allIds[2 * i + 1] = friendIds[i];
+            }
+        }
+        LongSet users = userStorage.findExistingIds(allIds);
+
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        int[] positions = new int[size];
+        int accepted = 0;
+        for (int i = 0; i < size; i++) {
+            Friendship friendship = friendships.get(i);
+            if (friendship == null || friendship.getUserId() == null || friendship.getFriendId() == null) {
+                failures.add(new BatchResult.Failure(i, "Должны быть указаны id пользователя и друга"));
+            } else if (!users.contains(ids[i])) {
+                failures.add(new BatchResult.Failure(i, "Пользователь с id=" + ids[i] + " не найден"));
+            } else if (!users.contains(friendIds[i])) {
+                failures.add(new BatchResult.Failure(i, "Пользователь с id=" + friendIds[i] + " не найден"));
+            } else {
+                ids[accepted] = ids[i];
+                friendIds[accepted] = friendIds[i];
+                positions[accepted++] = i;
+            }
+        }
+
+        boolean[] applied = userStorage.addFriends(Arrays.copyOf(ids, accepted), Arrays.copyOf(friendIds, accepted));
+        // Неприменённая пара — либо уже существующая дружба, либо пользователь удалён после проверки;
+        // различаем их повторной проверкой только отклонённых пар.
+        int rejected = 0;
+        long[] rejectedIds = new long[accepted * 2];
+        for (int k = 0; k < accepted; k++) {
+            if (!applied[k]) {
+                rejectedIds[rejected++] = ids[k];
+                rejectedIds[rejected++] = friendIds[k];
+            }
+        }
+        if (rejected > 0) {
+            users = userStorage.findExistingIds(Arrays.copyOf(rejectedIds, rejected));
+        }
+        int appliedCount = 0;
+        for (int k = 0; k < accepted; k++) {
+            if (applied[k]) {
+                appliedCount++;
+                friendshipChanged(ids[k], friendIds[k]);
+                feed.publish(FeedEventType.FRIEND_ADDED, ids[k], friendIds[k], friendIds[k]);
+            } else if (!users.contains(ids[k]) || !users.contains(friendIds[k])) {
+                failures.add(new BatchResult.Failure(positions[k],
+                        "Пользователь с id=" + ids[k] + " или id=" + friendIds[k] + " не найден"));
+            }
+        }
+        failures.sort(Comparator.comparingInt(BatchResult.Failure::getIndex));
+        return new BatchResult(appliedCount, failures);
     }
 
     public void deleteFriend(Long id, Long friendId) {
@@ -49,32 +253,85 @@ public class UserService {
         User friend = userStorage.getById(friendId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id=" + friendId + " не найден"));
 
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(id);
+        if (userStorage.deleteFriend(user.getId(), friend.getId())) {
+            friendshipChanged(user.getId(), friend.getId());
+            feed.publish(FeedEventType.FRIEND_REMOVED, user.getId(), friend.getId(), friend.getId());
+        }
     }
 
     public List<User> getFriends(Long id) {
-        User user = userStorage.getById(id)
+        return friendListCache.get(id, userId -> List.copyOf(userStorage.getFriends(userId)));
+    }
+
+    public List<User> getCommonFriends(Long id, Long otherId) {
+        return userStorage.getCommonFriends(id, otherId);
+    }
+
+    /**
+     * Возвращает пользователей, которые не являются друзьями, в порядке убывания количества общих друзей.
+     *
+     * @param id    идентификатор пользователя
+     * @param limit длина списка, не больше {@value #MAX_RECOMMENDATIONS}
+     * @return рекомендованные пользователи.
+     */
+    public List<User> getRecommendations(Long id, int limit) {
+        userStorage.getById(id)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id=" + id + " не найден"));
+        long[] candidateIds = recommendationCache.get(id, recommender::recommend);
 
-        return user.getFriends().stream()
-                .map(friendId -> userStorage.getById(friendId)
-                        .orElseThrow(() -> new NotFoundException("Пользователь с id=" + friendId + " не найден")))
-                .collect(Collectors.toList());
+        List<User> recommendations = new ArrayList<>(Math.min(limit, candidateIds.length));
+        for (int i = 0; i < candidateIds.length && recommendations.size() < limit; i++) {
+            userStorage.getById(candidateIds[i]).ifPresent(recommendations::add);
+        }
+        return recommendations;
     }
 
-    public List<User> getCommonFriends(Long id, Long otherId) {
-        User user = userStorage.getById(id)
+    /**
+     * Возвращает ленту активности пользователя: его действия, действия его друзей и изменения каталога.
+     * Лента заводится при первом чтении, если пользователь появился до запуска сервиса.
+     *
+     * @param id     идентификатор пользователя
+     * @param before курсор предыдущей страницы; null — с самого нового события
+     * @param limit  размер страницы
+     * @return события от новых к старым и курсор следующей страницы.
+     */
+    public Page<FeedEvent> getFeed(Long id, Long before, int limit) {
+        userStorage.getById(id)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id=" + id + " не найден"));
-        User other = userStorage.getById(otherId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + otherId + " не найден"));
+        feed.register(id);
+        return feed.read(id, before, limit);
+    }
 
-        HashSet<Long> commonIds = new HashSet<>(user.getFriends());
-        commonIds.retainAll(other.getFriends());
+    /**
+     * Сбрасывает кэшированный список друзей и сдвигает его версию.
+     * Версия сдвигается после сброса, поэтому увидевший новую версию читатель не получит старый список из кэша.
+     */
+    private void friendListChanged(long id) {
+        friendListCache.invalidate(id);
+        userVersions.advance(id);
+    }
+
+    /**
+     * Сбрасывает списки друзей и рекомендации после изменения дружбы двух пользователей.
+     */
+    private void friendshipChanged(long id, long friendId) {
+        friendListChanged(id);
+        friendListChanged(friendId);
+        recommendationsChanged(id);
+        recommendationsChanged(friendId);
+    }
+
+    /**
+     * Сбрасывает рекомендации пользователя и его друзей: для них он лежит на пути второго шага.
+     */
+    private void recommendationsChanged(long id) {
+        recommendationCache.invalidate(id);
+        userStorage.getFriendIds(id).forEachLong(recommendationCache::invalidate);
+    }
 
-        return commonIds.stream()
-                .map(friendId -> userStorage.getById(friendId)
-                        .orElseThrow(() -> new NotFoundException("Пользователь с id=" + friendId + " не найден")))
-                .collect(Collectors.toList());
+    private void friendListsChanged(long[] ids) {
+        for (long id : ids) {
+            friendListChanged(id);
+        }
     }
 }
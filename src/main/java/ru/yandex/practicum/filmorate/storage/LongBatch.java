@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Пакетная установка параметров запроса по массиву long без упаковки значений.
+ */
+public class LongBatch implements BatchPreparedStatementSetter {
+
+    private final long[] values;
+    private final Setter setter;
+
+    public LongBatch(long[] values, Setter setter) {
+        this.values = values;
+        this.setter = setter;
+    }
+
+    /**
+     * Пакет пар значений из параллельных массивов: первый и второй параметры запроса.
+     *
+     * @param first  значения первого параметра
+     * @param second значения второго параметра
+     * @return пакет параметров.
+     */
+    public static BatchPreparedStatementSetter pairs(long[] first, long[] second) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setLong(1, first[i]);
+                statement.setLong(2, second[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return first.length;
+            }
+        };
+    }
+
+    /**
+     * Переводит счётчики пакетного обновления в признаки применения элементов.
+     *
+     * @param counts количество изменённых строк по каждому элементу пакета
+     * @return true для элементов, изменивших хотя бы одну строку или не сообщивших количество.
+     */
+    public static boolean[] applied(int[] counts) {
+        boolean[] applied = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            applied[i] = counts[i] != 0;
+        }
+        return applied;
+    }
+
+    @Override
+    public void setValues(PreparedStatement statement, int i) throws SQLException {
+        setter.set(statement, values[i]);
+    }
+
+    @Override
+    public int getBatchSize() {
+        return values.length;
+    }
+
+    /**
+     * Установка параметров запроса для одного значения пакета.
+     */
+    @FunctionalInterface
+    public interface Setter {
+        void set(PreparedStatement statement, long value) throws SQLException;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Поток сущностей, загружаемых постранично по курсору.
+ * В памяти одновременно находится только текущая страница.
+ */
+public final class PagedStream {
+
+    private PagedStream() {
+    }
+
+    /**
+     * Создаёт ленивый поток по страницам.
+     *
+     * @param pageLoader загрузчик страницы по курсору (id последнего элемента предыдущей страницы)
+     * @return поток элементов всех страниц.
+     */
+    public static <T> Stream<T> of(LongFunction<Page<T>> pageLoader) {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            private Page<T> page;
+            private int position;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (page == null) {
+                    page = pageLoader.apply(0);
+                }
+                while (position == page.getItems().size()) {
+                    if (page.getNextCursor() == null) {
+                        return false;
+                    }
+                    page = pageLoader.apply(page.getNextCursor());
+                    position = 0;
+                }
+                action.accept(page.getItems().get(position++));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+}
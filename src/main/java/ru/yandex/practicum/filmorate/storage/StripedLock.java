@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Набор блокировок, распределённых по идентификаторам сущностей.
+ * Операции над одной сущностью выполняются последовательно,
+ * операции над разными сущностями в большинстве случаев не конкурируют.
+ */
+public class StripedLock {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Создаёт набор блокировок.
+     *
+     * @param stripes количество блокировок, округляется вверх до степени двойки.
+     */
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Выполняет действие под блокировкой сущности.
+     *
+     * @param id     идентификатор сущности
+     * @param action действие
+     * @return результат действия.
+     */
+    public <T> T withLock(long id, Supplier<T> action) {
+        ReentrantLock lock = locks[stripe(id)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void withLock(long id, Runnable action) {
+        withLock(id, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет действие под блокировками двух сущностей.
+     * Блокировки захватываются в порядке номеров, поэтому взаимная блокировка невозможна.
+     *
+     * @param first  идентификатор первой сущности
+     * @param second идентификатор второй сущности
+     * @param action действие.
+     */
+    public void withLocks(long first, long second, Runnable action) {
+        int firstStripe = stripe(first);
+        int secondStripe = stripe(second);
+        if (firstStripe == secondStripe) {
+            withLock(first, action);
+            return;
+        }
+
+        ReentrantLock lower = locks[Math.min(firstStripe, secondStripe)];
+        ReentrantLock upper = locks[Math.max(firstStripe, secondStripe)];
+        lower.lock();
+        try {
+            upper.lock();
+            try {
+                action.run();
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    private int stripe(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,468 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.storage.LongBatch;
+import ru.yandex.practicum.filmorate.storage.PagedStream;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище фильмов в базе данных.
+ * Жанры и лайки списка фильмов загружаются двумя запросами на весь список, без запроса на каждый фильм.
+ */
+@Component
+@Profile("db")
+@Timed("filmorate.storage")
+@Slf4j
+@RequiredArgsConstructor
+public class FilmDbStorage implements FilmStorage {
+
+    /**
+     * Размер страницы при потоковом обходе всех фильмов.
+     */
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    /**
+     * Максимальный размер списка IN; для больших списков связи загружаются из всей таблицы.
+     */
+    private static final int MAX_IN_LIST = 1000;
+
+    private static final String SELECT_FILMS = """
+            SELECT id, name, description, release_date, duration, mpa_rating
+            FROM films
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Override
+    @Transactional
+    public Film create(Film film) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("""
+                    INSERT INTO films (name, description, release_date, duration, mpa_rating)
+                    VALUES (?, ?, ?, ?, ?)
+                    """, Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, film.getName());
+            statement.setString(2, film.getDescription());
+            statement.setObject(3, film.getReleaseDate() == null ? null : Date.valueOf(film.getReleaseDate()));
+            statement.setObject(4, film.getDuration());
+            statement.setString(5, film.getRating() == null ? null : film.getRating().name());
+            return statement;
+        }, keyHolder);
+        long id = keyHolder.getKeyAs(Long.class);
+
+        insertGenres(id, film.getGenres());
+        if (film.getLikes() != null && !film.getLikes().isEmpty()) {
+            long[] userIds = film.getLikes().toLongArray();
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO likes (film_id, user_id)
+                    SELECT ?, id FROM users WHERE id = ?
+                    """, new LongBatch(userIds, (statement, userId) -> {
+                        statement.setLong(1, id);
+                        statement.setLong(2, userId);
+                    }));
+        }
+
+        Film created = getExisting(id);
+        log.info("Фильм успешно создан: id = {}, лайков = {}", id, created.getLikes().size());
+        return created;
+    }
+
+    @Override
+    @Transactional
+    public Film update(Film film) {
+        log.debug("Обновление фильма id={}", film.getId());
+
+        int updated = jdbcTemplate.update("""
+                        UPDATE films
+                        SET name = COALESCE(?, name),
+                            description = COALESCE(?, description),
+                            release_date = COALESCE(?, release_date),
+                            duration = COALESCE(?, duration),
+                            mpa_rating = COALESCE(?, mpa_rating)
+                        WHERE id = ?
+                        """,
+                film.getName(),
+                film.getDescription(),
+                film.getReleaseDate() == null ? null : Date.valueOf(film.getReleaseDate()),
+                film.getDuration(),
+                film.getRating() == null ? null : film.getRating().name(),
+                film.getId());
+        if (updated == 0) {
+            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
+        }
+        if (film.getGenres() != null) {
+            jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", film.getId());
+            insertGenres(film.getId(), film.getGenres());
+        }
+
+        log.info("Фильм id={} успешно обновлен", film.getId());
+        return getExisting(film.getId());
+    }
+
+    @Override
+    public void delete(Long id) {
+        if (jdbcTemplate.update("DELETE FROM films WHERE id = ?", id) == 0) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+    }
+
+    @Override
+    public Optional<Film> getById(Long id) {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + "WHERE id = ?", this::mapFilm, id);
+        return films.stream().findFirst().map(film -> fillRelations(List.of(film)).get(0));
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        return fillRelations(jdbcTemplate.query(SELECT_FILMS + "ORDER BY id", this::mapFilm));
+    }
+
+    @Override
+    public Page<Film> getPage(long after, int limit) {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + "WHERE id > ? ORDER BY id LIMIT ?",
+                this::mapFilm, after, limit + 1);
+
+        Long nextCursor = null;
+        if (films.size() > limit) {
+            films = films.subList(0, limit);
+            nextCursor = films.get(limit - 1).getId();
+        }
+        return new Page<>(fillRelations(new ArrayList<>(films)), nextCursor);
+    }
+
+    @Override
+    public Stream<Film> stream() {
+        return PagedStream.of(after -> getPage(after, STREAM_PAGE_SIZE));
+    }
+
+    /**
+     * Пользователь может быть удалён параллельно с лайком: вставка выполняется только для
+     * существующего пользователя, а нарушение внешнего ключа при гонке с удалением
+     * сообщается как отсутствие пользователя.
+     */
+    @Override
+    public boolean addLike(Long id, Long userId) {
+        checkExists(id);
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update("""
+                    INSERT INTO likes (film_id, user_id) SELECT ?, ?
+                    WHERE EXISTS (SELECT 1 FROM users WHERE id = ?)
+                    AND NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)
+                    """, id, userId, userId, id, userId);
+        } catch (DataIntegrityViolationException e) {
+            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+        if (inserted == 0) {
+            checkUserExists(userId);
+        }
+        return inserted > 0;
+    }
+
+    @Override
+    public boolean deleteLike(Long id, Long userId) {
+        checkExists(id);
+        return jdbcTemplate.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", id, userId) > 0;
+    }
+
+    /**
+     * При удалении пользователя лайки удаляет каскад внешнего ключа, здесь они удаляются явно
+     * для пользователя, который остаётся в базе.
+     */
+    @Override
+    public int deleteUserLikes(Long userId) {
+        return jdbcTemplate.update("DELETE FROM likes WHERE user_id = ?", userId);
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        return getPopular(count, PopularFilter.ANY);
+    }
+
+    /**
+     * Условия на жанры проверяются по таблице связей: у фильма должны найтись все заданные жанры.
+     */
+    @Override
+    public List<Film> getPopular(int count, PopularFilter filter) {
+        MapSqlParameterSource params = new MapSqlParameterSource("count", count);
+        StringBuilder where = new StringBuilder();
+        if (filter.genres() != 0) {
+            List<Integer> genreIds = new ArrayList<>();
+            for (Genre genre : Genre.values()) {
+                if ((filter.genres() & genre.bit()) != 0) {
+                    genreIds.add(genre.getId());
+                }
+            }
+            params.addValue("genres", genreIds).addValue("genreCount", genreIds.size());
+            where.append("""
+                     AND f.id IN (SELECT film_id
+                                  FROM film_genres
+                                  WHERE genre_id IN (:genres)
+                                  GROUP BY film_id
+                                  HAVING COUNT(*) = :genreCount)
+                    """);
+        }
+        if (filter.rating() != null) {
+            params.addValue("rating", filter.rating().name());
+            where.append(" AND f.mpa_rating = :rating\n");
+        }
+        if (filter.year() != null) {
+            params.addValue("from", Date.valueOf(LocalDate.of(filter.year(), 1, 1)))
+                    .addValue("to", Date.valueOf(LocalDate.of(filter.year() + 1, 1, 1)));
+            where.append(" AND f.release_date >= :from AND f.release_date < :to\n");
+        }
+        return fillRelations(namedJdbcTemplate.query("""
+                SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_rating
+                FROM films AS f
+                LEFT JOIN (SELECT film_id, COUNT(user_id) AS likes_count
+                           FROM likes
+                           GROUP BY film_id) AS l ON f.id = l.film_id
+                WHERE TRUE
+                """ + where + """
+                ORDER BY COALESCE(l.likes_count, 0) DESC, f.id
+                LIMIT :count
+                """, params, this::mapFilm));
+    }
+
+    @Override
+    public List<Film> getReleased(LocalDate from, LocalDate to, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        StringBuilder where = new StringBuilder();
+        if (from != null) {
+            params.addValue("from", Date.valueOf(from));
+            where.append(" AND f.release_date >= :from\n");
+        }
+        if (to != null) {
+            params.addValue("to", Date.valueOf(to));
+            where.append(" AND f.release_date <= :to\n");
+        }
+        return fillRelations(namedJdbcTemplate.query("""
+                SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_rating
+                FROM films AS f
+                WHERE f.release_date IS NOT NULL
+                """ + where + """
+                ORDER BY f.release_date, f.id
+                LIMIT :limit
+                """, params, this::mapFilm));
+    }
+
+    /**
+     * Слова запроса ищутся подстрокой в названии и описании без индекса: база данных не ведёт
+     * полнотекстовый индекс, и поиск просматривает таблицу фильмов.
+     */
+    @Override
+    public List<Film> search(String query, int limit) {
+        List<String> terms = SearchIndex.tokenize(query).stream().limit(SearchIndex.MAX_QUERY_TERMS).toList();
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        StringBuilder where = new StringBuilder();
+        StringBuilder rank = new StringBuilder("0");
+        for (int i = 0; i < terms.size(); i++) {
+            params.addValue("term" + i, "%" + terms.get(i) + "%");
+            String inName = "REPLACE(LOWER(f.name), 'ё', 'е') LIKE :term" + i;
+            String inDescription = "REPLACE(LOWER(f.description), 'ё', 'е') LIKE :term" + i;
+            where.append(" AND (").append(inName).append(" OR ").append(inDescription).append(")\n");
+            rank.append(" + CASE WHEN ").append(inName).append(" THEN 2 ELSE 0 END")
+                    .append(" + CASE WHEN ").append(inDescription).append(" THEN 1 ELSE 0 END");
+        }
+        return fillRelations(namedJdbcTemplate.query("""
+                SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_rating
+                FROM films AS f
+                WHERE TRUE
+                """ + where + "ORDER BY " + rank + " DESC, f.id\n" + """
+                LIMIT :limit
+                """, params, this::mapFilm));
+    }
+
+    @Override
+    public long size() {
+        return count("SELECT COUNT(*) FROM films");
+    }
+
+    @Override
+    public long likeCount() {
+        return count("SELECT COUNT(*) FROM likes");
+    }
+
+    @Override
+    public long[] getCommonLikerIds(Long id, Long otherId) {
+        checkExists(id);
+        checkExists(otherId);
+        return jdbcTemplate.queryForList("""
+                        SELECT user_id
+                        FROM likes
+                        WHERE film_id IN (?, ?)
+                        GROUP BY user_id
+                        HAVING COUNT(DISTINCT film_id) = ?
+                        ORDER BY user_id
+                        """, Long.class, id, otherId, id.equals(otherId) ? 1 : 2)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    @Override
+    public LongSet getLikerIds(Long id) {
+        return queryIds("SELECT user_id FROM likes WHERE film_id = ?", id);
+    }
+
+    @Override
+    public LongSet getLikedFilmIds(Long userId) {
+        return queryIds("SELECT film_id FROM likes WHERE user_id = ?", userId);
+    }
+
+    @Override
+    public LongSet findExistingIds(long[] ids) {
+        LongSet existing = new LongHashSet();
+        for (int from = 0; from < ids.length; from += MAX_IN_LIST) {
+            long[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + MAX_IN_LIST));
+            namedJdbcTemplate.query("SELECT id FROM films WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", Arrays.stream(chunk).boxed().toList()),
+                    rs -> {
+                        existing.add(rs.getLong("id"));
+                    });
+        }
+        return existing;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] addLikes(long[] filmIds, long[] userIds) {
+        int[] counts = jdbcTemplate.batchUpdate("""
+                INSERT INTO likes (film_id, user_id)
+                SELECT f.id, u.id FROM films AS f, users AS u WHERE f.id = ? AND u.id = ?
+                AND NOT EXISTS (SELECT 1 FROM likes AS l WHERE l.film_id = f.id AND l.user_id = u.id)
+                """, LongBatch.pairs(filmIds, userIds));
+        return LongBatch.applied(counts);
+    }
+
+    private LongSet queryIds(String sql, long id) {
+        LongSet ids = new LongHashSet();
+        jdbcTemplate.query(sql, rs -> {
+            ids.add(rs.getLong(1));
+        }, id);
+        return ids;
+    }
+
+    private long count(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private Film getExisting(Long id) {
+        return getById(id)
+                .orElseThrow(() -> new NotFoundException("Фильм с id=" + id + " не найден"));
+    }
+
+    private void checkExists(Long id) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films WHERE id = ?", Integer.class, id);
+        if (count == null || count == 0) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+    }
+
+    private void checkUserExists(Long userId) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, userId);
+        if (count == null || count == 0) {
+            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+    }
+
+    private void insertGenres(long filmId, Collection<Genre> genres) {
+        if (genres == null || genres.isEmpty()) {
+            return;
+        }
+        long[] genreIds = genres.stream()
+                .distinct()
+                .mapToLong(Genre::getId)
+                .toArray();
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
+                new LongBatch(genreIds, (statement, genreId) -> {
+                    statement.setLong(1, filmId);
+                    statement.setLong(2, genreId);
+                }));
+    }
+
+    /**
+     * Загружает жанры и лайки для всех фильмов списка двумя запросами.
+     */
+    private List<Film> fillRelations(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Long, Film> byId = new HashMap<>();
+        for (Film film : films) {
+            film.setGenres(EnumSet.noneOf(Genre.class));
+            film.setLikes(new LongHashSet());
+            byId.put(film.getId(), film);
+        }
+
+        String filter = byId.size() > MAX_IN_LIST ? "" : " WHERE film_id IN (:ids)";
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", byId.keySet());
+
+        namedJdbcTemplate.query("SELECT film_id, genre_id FROM film_genres" + filter, ids, rs -> {
+            Film film = byId.get(rs.getLong("film_id"));
+            if (film != null) {
+                film.getGenres().add(Genre.byId(rs.getInt("genre_id")));
+            }
+        });
+        namedJdbcTemplate.query("SELECT film_id, user_id FROM likes" + filter, ids, rs -> {
+            Film film = byId.get(rs.getLong("film_id"));
+            if (film != null) {
+                film.getLikes().add(rs.getLong("user_id"));
+            }
+        });
+        return films;
+    }
+
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getLong("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        Date releaseDate = rs.getDate("release_date");
+        film.setReleaseDate(releaseDate == null ? null : releaseDate.toLocalDate());
+        film.setDuration(rs.getObject("duration", Integer.class));
+        String rating = rs.getString("mpa_rating");
+        film.setRating(rating == null ? null : Mpa.valueOf(rating));
+        return film;
+    }
+}
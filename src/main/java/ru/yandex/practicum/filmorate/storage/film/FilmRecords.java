@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.storage.wal.Records;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Записи журнала фильмов. Первый байт записи — её тип.
+ */
+final class FilmRecords {
+
+    /**
+     * Состояние фильма; лайки присутствуют только в записях создания и снимка.
+     */
+    static final byte PUT = 1;
+
+    static final byte DELETE = 2;
+
+    static final byte LIKES_ADD = 3;
+
+    static final byte LIKES_REMOVE = 4;
+
+    /**
+     * Последний выданный идентификатор.
+     */
+    static final byte SEQUENCE = 5;
+
+    private FilmRecords() {
+    }
+
+    static void writePut(DataOutput out, Film film, boolean withLikes) throws IOException {
+        out.writeByte(PUT);
+        out.writeLong(film.getId());
+        Records.writeString(out, film.getName());
+        Records.writeString(out, film.getDescription());
+        Records.writeDate(out, film.getReleaseDate());
+        out.writeInt(film.getDuration() == null ? -1 : film.getDuration());
+        out.writeByte(film.getRating() == null ? -1 : film.getRating().ordinal());
+        Set<Genre> genres = film.getGenres();
+        out.writeByte(genres == null ? -1 : genres.size());
+        if (genres != null) {
+            for (Genre genre : genres) {
+                out.writeByte(genre.ordinal());
+            }
+        }
+        out.writeBoolean(withLikes);
+        if (withLikes) {
+            Records.writeLongs(out, film.getLikes());
+        }
+    }
+
+    /**
+     * Читает поля фильма без лайков; после вызова в записи остаётся признак наличия лайков.
+     */
+    static Film readFilm(ByteBuffer in) {
+        Film film = new Film();
+        film.setId(in.getLong());
+        film.setName(Records.readString(in));
+        film.setDescription(Records.readString(in));
+        film.setReleaseDate(Records.readDate(in));
+        int duration = in.getInt();
+        film.setDuration(duration < 0 ? null : duration);
+        byte rating = in.get();
+        film.setRating(rating < 0 ? null : Mpa.values()[rating]);
+        byte genres = in.get();
+        if (genres >= 0) {
+            Set<Genre> set = EnumSet.noneOf(Genre.class);
+            for (int i = 0; i < genres; i++) {
+                set.add(Genre.values()[in.get()]);
+            }
+            film.setGenres(set);
+        }
+        return film;
+    }
+
+    static void writeId(DataOutput out, byte type, long id) throws IOException {
+        out.writeByte(type);
+        out.writeLong(id);
+    }
+
+    static void writeLikes(DataOutput out, byte type, long filmId, long[] userIds) throws IOException {
+        out.writeByte(type);
+        out.writeLong(filmId);
+        Records.writeLongs(out, userIds);
+    }
+}
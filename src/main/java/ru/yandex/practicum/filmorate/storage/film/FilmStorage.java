@@ -1,9 +1,15 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.util.LongSet;
 
+import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface FilmStorage {
 
@@ -16,4 +22,146 @@ public interface FilmStorage {
     Optional<Film> getById(Long id);
 
     Collection<Film> getAll();
+
+    /**
+     * Возвращает страницу фильмов с id больше курсора в порядке возрастания id.
+     *
+     * @param after курсор: id последнего элемента предыдущей страницы
+     * @param limit максимальный размер страницы
+     * @return страница с курсором следующей страницы.
+     */
+    Page<Film> getPage(long after, int limit);
+
+    /**
+     * Возвращает поток всех фильмов в порядке возрастания id без копирования коллекции.
+     * Поток слабо согласован: изменения во время обхода могут быть не видны.
+     *
+     * @return поток фильмов.
+     */
+    Stream<Film> stream();
+
+    /**
+     * Добавляет лайк фильму.
+     *
+     * @param id     идентификатор фильма
+     * @param userId идентификатор пользователя
+     * @return true, если лайка ещё не было.
+     */
+    boolean addLike(Long id, Long userId);
+
+    /**
+     * Удаляет лайк фильма.
+     *
+     * @param id     идентификатор фильма
+     * @param userId идентификатор пользователя
+     * @return true, если лайк был.
+     */
+    boolean deleteLike(Long id, Long userId);
+
+    /**
+     * Удаляет все лайки пользователя, например после удаления самого пользователя.
+     * Фильмы находятся по обратному индексу, поэтому стоимость пропорциональна количеству лайков пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @return количество удалённых лайков.
+     */
+    int deleteUserLikes(Long userId);
+
+    /**
+     * Возвращает самые популярные фильмы.
+     * При равном количестве лайков фильмы упорядочены по возрастанию id.
+     *
+     * @param count максимальное количество фильмов
+     * @return список фильмов в порядке убывания популярности.
+     */
+    List<Film> getPopular(int count);
+
+    /**
+     * Возвращает самые популярные фильмы, удовлетворяющие условиям, в том же порядке, что и {@link #getPopular(int)}.
+     *
+     * @param count  максимальное количество фильмов
+     * @param filter жанры, рейтинг MPA и год выхода
+     * @return список фильмов в порядке убывания популярности.
+     */
+    List<Film> getPopular(int count, PopularFilter filter);
+
+    /**
+     * Возвращает фильмы, вышедшие в период.
+     *
+     * @param from  первый день периода; null — без ограничения
+     * @param to    последний день периода; null — без ограничения
+     * @param limit максимальное количество фильмов
+     * @return список фильмов по возрастанию даты выхода, при равенстве — по возрастанию id.
+     */
+    List<Film> getReleased(LocalDate from, LocalDate to, int limit);
+
+    /**
+     * Находит фильмы, в названии или описании которых встречаются все слова запроса.
+     * Совпадения в названии ранжируются выше совпадений в описании.
+     *
+     * @param query текст запроса
+     * @param limit максимальное количество фильмов
+     * @return список фильмов в порядке убывания релевантности, при равенстве — по возрастанию id.
+     */
+    List<Film> search(String query, int limit);
+
+    /**
+     * Возвращает пользователей, поставивших лайк обоим фильмам.
+     *
+     * @param id      идентификатор первого фильма
+     * @param otherId идентификатор второго фильма
+     * @return идентификаторы пользователей.
+     */
+    long[] getCommonLikerIds(Long id, Long otherId);
+
+    /**
+     * Возвращает идентификаторы пользователей, поставивших лайк фильму.
+     * Возвращаемое множество нельзя изменять: хранилище в памяти отдаёт его без копирования.
+     *
+     * @param id идентификатор фильма
+     * @return идентификаторы пользователей; пустое множество, если фильм не найден.
+     */
+    LongSet getLikerIds(Long id);
+
+    /**
+     * Возвращает идентификаторы фильмов, которым пользователь поставил лайк.
+     * Возвращаемое множество нельзя изменять: хранилище в памяти отдаёт его без копирования.
+     *
+     * @param userId идентификатор пользователя
+     * @return идентификаторы фильмов; пустое множество, если лайков нет.
+     */
+    LongSet getLikedFilmIds(Long userId);
+
+    /**
+     * Отбирает идентификаторы существующих фильмов.
+     *
+     * @param ids проверяемые идентификаторы
+     * @return множество найденных идентификаторов.
+     */
+    LongSet findExistingIds(long[] ids);
+
+    /**
+     * Добавляет лайки пакетом за один проход по хранилищу.
+     * Пары задаются параллельными массивами одинаковой длины.
+     *
+     * @param filmIds идентификаторы фильмов
+     * @param userIds идентификаторы пользователей
+     * @return признаки применения: false, если лайк уже был поставлен или фильм либо пользователь
+     * к моменту записи уже не существует.
+     */
+    boolean[] addLikes(long[] filmIds, long[] userIds);
+
+    /**
+     * Возвращает количество фильмов.
+     *
+     * @return количество фильмов.
+     */
+    long size();
+
+    /**
+     * Возвращает общее количество лайков всех фильмов.
+     *
+     * @return количество лайков.
+     */
+    long likeCount();
 }
@@ -1,56 +1,215 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.storage.StripedLock;
+import ru.yandex.practicum.filmorate.storage.wal.DurabilityManager;
+import ru.yandex.practicum.filmorate.storage.wal.Journal;
+import ru.yandex.practicum.filmorate.storage.wal.RecordSink;
+import ru.yandex.practicum.filmorate.storage.wal.Records;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.LongSetType;
 
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 @Component
+@Profile("!db & !sharded")
+@Timed("filmorate.storage")
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
 
     /**
-     * Хранилище фильмов.
+     * Хранилище фильмов, упорядоченное по id.
      */
-    private final Map<Long, Film> films = new HashMap<>();
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+
+    /**
+     * Последний выданный идентификатор фильма.
+     */
+    private final AtomicLong idSequence = new AtomicLong();
+
+    /**
+     * Количество фильмов; размер ConcurrentSkipListMap вычисляется обходом.
+     */
+    private final LongAdder filmCount = new LongAdder();
+
+    /**
+     * Общее количество лайков.
+     */
+    private final LongAdder likeCount = new LongAdder();
+
+    /**
+     * Блокировки фильмов для изменения данных и лайков.
+     */
+    private final StripedLock locks = new StripedLock();
+
+    /**
+     * Индекс популярности, обновляется при каждом изменении лайков.
+     */
+    private final PopularityIndex popularity = new PopularityIndex();
+
+    /**
+     * Полнотекстовый индекс названий и описаний, обновляется при каждом изменении фильма.
+     */
+    private final SearchIndex search = new SearchIndex();
+
+    /**
+     * Индекс дат выхода, обновляется при каждом изменении фильма.
+     */
+    private final ReleaseDateIndex releases = new ReleaseDateIndex();
+
+    /**
+     * Обратный индекс лайков: фильмы, которые понравились пользователю.
+     * Изменяется под блокировкой фильма и вложенной в неё блокировкой пользователя.
+     */
+    private final Map<Long, LongSet> likedFilms = new ConcurrentHashMap<>();
+
+    /**
+     * Блокировки множеств обратного индекса по id пользователя.
+     */
+    private final StripedLock likerLocks = new StripedLock();
+
+    /**
+     * Представление множеств лайков.
+     */
+    private final LongSetType adjacency;
+
+    /**
+     * Журнал изменений; {@link Journal#NONE}, если режим сохранения на диск выключен.
+     */
+    private final Journal journal;
+
+    public InMemoryFilmStorage() {
+        this(LongSetType.HASH);
+    }
+
+    public InMemoryFilmStorage(LongSetType adjacency) {
+        this(adjacency, new DurabilityManager());
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(@Value("${filmorate.storage.adjacency:HASH}") LongSetType adjacency,
+                               DurabilityManager durability) {
+        this(adjacency, durability, "films");
+    }
+
+    /**
+     * Создаёт хранилище со своим журналом; используется сегментами {@link ShardedFilmStorage}.
+     *
+     * @param journalName имя журнала.
+     */
+    InMemoryFilmStorage(LongSetType adjacency, DurabilityManager durability, String journalName) {
+        this.adjacency = adjacency;
+        Map<Long, Film> recovered = new HashMap<>();
+        this.journal = durability.open(journalName, record -> replay(record, recovered), this::snapshot);
+        films.putAll(new TreeMap<>(recovered));
+        films.forEach((id, film) -> {
+            popularity.put(film);
+            search.put(id, film.getName(), film.getDescription());
+            releases.put(id, film.getReleaseDate());
+            filmCount.increment();
+            likeCount.add(film.getLikes().size());
+            film.getLikes().forEachLong(userId -> indexLike(id, userId));
+        });
+    }
 
     @Override
     public Film create(Film film) {
-        log.info("Создание фильма: {}", film);
+        return create(film, getNextId());
+    }
+
+    /**
+     * Создаёт фильм с уже выданным идентификатором.
+     *
+     * @param film фильм
+     * @param id   идентификатор, выданный общей последовательностью сегментов
+     * @return созданный фильм.
+     */
+    Film create(Film film, long id) {
+        LongSet likes = adjacency.copyOf(film.getLikes());
+        film.setLikes(likes);
+        film.setId(id);
+        idSequence.accumulateAndGet(id, Math::max);
 
-        film.setId(getNextId());
-        films.put(film.getId(), film);
+        locks.withLock(film.getId(), () -> {
+            films.put(film.getId(), film);
+            popularity.put(film);
+            search.put(film.getId(), film.getName(), film.getDescription());
+            releases.put(film.getId(), film.getReleaseDate());
+            filmCount.increment();
+            likeCount.add(likes.size());
+            likes.forEachLong(userId -> indexLike(film.getId(), userId));
+            journal.append(out -> FilmRecords.writePut(out, film, true));
+        });
+        journal.sync();
 
-        log.info("Фильм успешно создан: id = {}", film.getId());
+        log.info("Фильм успешно создан: id = {}, лайков = {}", film.getId(), likes.size());
         return film;
     }
 
     @Override
     public Film update(Film film) {
-        log.info("Обновление фильма: {}", film);
+        log.debug("Обновление фильма id={}", film.getId());
 
-        Film oldFilm = films.get(film.getId());
-        if (oldFilm == null) {
-            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
-        }
+        Film oldFilm = locks.withLock(film.getId(), () -> {
+            Film existing = films.get(film.getId());
+            if (existing == null) {
+                throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
+            }
+            String oldName = existing.getName();
+            String oldDescription = existing.getDescription();
+            LocalDate oldReleaseDate = existing.getReleaseDate();
 
-        if (film.getName() != null) {
-            oldFilm.setName(film.getName());
-        }
+            if (film.getName() != null) {
+                existing.setName(film.getName());
+            }
 
-        if (film.getDescription() != null) {
-            oldFilm.setDescription(film.getDescription());
-        }
+            if (film.getDescription() != null) {
+                existing.setDescription(film.getDescription());
+            }
 
-        if (film.getReleaseDate() != null) {
-            oldFilm.setReleaseDate(film.getReleaseDate());
-        }
+            if (film.getReleaseDate() != null) {
+                existing.setReleaseDate(film.getReleaseDate());
+            }
 
-        if (film.getDuration() != null) {
-            oldFilm.setDuration(film.getDuration());
-        }
+            if (film.getDuration() != null) {
+                existing.setDuration(film.getDuration());
+            }
+
+            if (film.getGenres() != null) {
+                existing.setGenres(film.getGenres().isEmpty()
+                        ? EnumSet.noneOf(Genre.class)
+                        : EnumSet.copyOf(film.getGenres()));
+            }
+
+            if (film.getRating() != null) {
+                existing.setRating(film.getRating());
+            }
+            popularity.put(existing);
+            search.replace(existing.getId(), oldName, oldDescription, existing.getName(), existing.getDescription());
+            releases.replace(existing.getId(), oldReleaseDate, existing.getReleaseDate());
+            journal.append(out -> FilmRecords.writePut(out, existing, false));
+            return existing;
+        });
+        journal.sync();
 
         log.info("Фильм id={} успешно обновлен", oldFilm.getId());
         return oldFilm;
@@ -58,10 +217,20 @@ public class InMemoryFilmStorage implements FilmStorage {
 
     @Override
     public void delete(Long id) {
-        if (!films.containsKey(id)) {
-            throw new NotFoundException("Фильм с id=" + id + " не найден");
-        }
-        films.remove(id);
+        locks.withLock(id, () -> {
+            Film film = films.remove(id);
+            if (film == null) {
+                throw new NotFoundException("Фильм с id=" + id + " не найден");
+            }
+            popularity.remove(id);
+            search.remove(id, film.getName(), film.getDescription());
+            releases.remove(id, film.getReleaseDate());
+            filmCount.decrement();
+            likeCount.add(-film.getLikes().size());
+            film.getLikes().forEachLong(userId -> unindexLike(id, userId));
+            journal.append(out -> FilmRecords.writeId(out, FilmRecords.DELETE, id));
+        });
+        journal.sync();
     }
 
     @Override
@@ -79,17 +248,313 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public Page<Film> getPage(long after, int limit) {
+        List<Film> items = new ArrayList<>(limit);
+        Long nextCursor = null;
+        for (Film film : films.tailMap(after, false).values()) {
+            if (items.size() == limit) {
+                nextCursor = items.get(limit - 1).getId();
+                break;
+            }
+            items.add(film);
+        }
+        return new Page<>(items, nextCursor);
+    }
+
+    @Override
+    public Stream<Film> stream() {
+        return films.values().stream();
+    }
+
+    @Override
+    public boolean addLike(Long id, Long userId) {
+        boolean added = locks.withLock(id, () -> {
+            Film film = getExisting(id);
+            int likes = film.getLikes().size();
+            if (!film.getLikes().add(userId)) {
+                return false;
+            }
+            popularity.update(id, likes + 1);
+            indexLike(id, userId);
+            likeCount.increment();
+            journal.append(out -> FilmRecords.writeLikes(out, FilmRecords.LIKES_ADD, id, new long[]{userId}));
+            return true;
+        });
+        journal.sync();
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(Long id, Long userId) {
+        boolean removed = locks.withLock(id, () -> {
+            Film film = getExisting(id);
+            int likes = film.getLikes().size();
+            if (!film.getLikes().remove(userId)) {
+                return false;
+            }
+            popularity.update(id, likes - 1);
+            unindexLike(id, userId);
+            likeCount.decrement();
+            journal.append(out -> FilmRecords.writeLikes(out, FilmRecords.LIKES_REMOVE, id, new long[]{userId}));
+            return true;
+        });
+        journal.sync();
+        return removed;
+    }
+
+    /**
+     * Каждый фильм изменяется под своей блокировкой, как при удалении одного лайка.
+     */
+    @Override
+    public int deleteUserLikes(Long userId) {
+        int removed = 0;
+        for (long filmId : getLikedFilmIds(userId).toLongArray()) {
+            boolean applied = locks.withLock(filmId, () -> {
+                Film film = films.get(filmId);
+                if (film == null || !film.getLikes().remove(userId)) {
+                    return false;
+                }
+                popularity.update(filmId, film.getLikes().size());
+                unindexLike(filmId, userId);
+                likeCount.decrement();
+                journal.append(out -> FilmRecords.writeLikes(out, FilmRecords.LIKES_REMOVE, filmId,
+                        new long[]{userId}));
+                return true;
+            });
+            if (applied) {
+                removed++;
+            }
+        }
+        likerLocks.withLock(userId, () -> {
+            LongSet liked = likedFilms.get(userId);
+            if (liked != null && liked.isEmpty()) {
+                likedFilms.remove(userId);
+            }
+        });
+        journal.sync();
+        log.info("Удалены лайки пользователя id={}: {}", userId, removed);
+        return removed;
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        return getPopular(count, PopularFilter.ANY);
+    }
+
+    @Override
+    public List<Film> getPopular(int count, PopularFilter filter) {
+        return popularity.top(count, filter).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<Film> getReleased(LocalDate from, LocalDate to, int limit) {
+        return releases.range(from, to, limit).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        return search.search(query, limit).stream()
+                .map(hit -> films.get(hit.filmId()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Находит фильмы вместе с весами, по которым результаты нескольких хранилищ сливаются в один список.
+     *
+     * @param query текст запроса
+     * @param limit максимальное количество фильмов
+     * @return найденные фильмы в порядке убывания веса.
+     */
+    List<SearchIndex.Hit> searchHits(String query, int limit) {
+        return search.search(query, limit);
+    }
+
+    @Override
+    public LongSet getLikerIds(Long id) {
+        Film film = films.get(id);
+        return film == null ? new LongHashSet() : film.getLikes();
+    }
+
+    @Override
+    public LongSet getLikedFilmIds(Long userId) {
+        LongSet liked = likedFilms.get(userId);
+        return liked == null ? new LongHashSet() : liked;
+    }
+
+    @Override
+    public long size() {
+        return filmCount.sum();
+    }
+
+    @Override
+    public long likeCount() {
+        return likeCount.sum();
+    }
+
+    @Override
+    public long[] getCommonLikerIds(Long id, Long otherId) {
+        return LongSet.intersect(getExisting(id).getLikes(), getExisting(otherId).getLikes());
+    }
+
+    @Override
+    public LongSet findExistingIds(long[] ids) {
+        LongSet existing = new LongHashSet();
+        for (long id : ids) {
+            if (films.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Пары группируются по фильму, поэтому блокировка каждого фильма берётся один раз на пакет,
+     * а индекс популярности обновляется одним изменением на фильм.
+     */
+    @Override
+    public boolean[] addLikes(long[] filmIds, long[] userIds) {
+        boolean[] applied = new boolean[filmIds.length];
+        Integer[] order = new Integer[filmIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> filmIds[i]));
+
+        int start = 0;
+        while (start < order.length) {
+            long filmId = filmIds[order[start]];
+            int end = start;
+            while (end < order.length && filmIds[order[end]] == filmId) {
+                end++;
+            }
+            int from = start;
+            int to = end;
+            locks.withLock(filmId, () -> {
+                Film film = films.get(filmId);
+                if (film == null) {
+                    return;
+                }
+                int likes = film.getLikes().size();
+                long[] added = new long[to - from];
+                for (int k = from; k < to; k++) {
+                    added[k - from] = userIds[order[k]];
+                    if (film.getLikes().add(added[k - from])) {
+                        indexLike(filmId, added[k - from]);
+                        applied[order[k]] = true;
+                    }
+                }
+                popularity.update(filmId, film.getLikes().size());
+                likeCount.add(film.getLikes().size() - likes);
+                journal.append(out -> FilmRecords.writeLikes(out, FilmRecords.LIKES_ADD, filmId, added));
+            });
+            start = end;
+        }
+        journal.sync();
+        return applied;
+    }
+
+    /**
+     * Применяет запись журнала при восстановлении. Фильмы собираются в хеш-таблицу,
+     * которая дешевле упорядоченного хранилища при случайном доступе, и переносятся в него
+     * вместе с построением индекса популярности после восстановления.
+     */
+    private void replay(ByteBuffer record, Map<Long, Film> films) {
+        byte type = record.get();
+        switch (type) {
+            case FilmRecords.PUT -> {
+                Film film = FilmRecords.readFilm(record);
+                Film existing = films.get(film.getId());
+                LongSet likes;
+                if (record.get() != 0) {
+                    likes = adjacency.copyOf(null);
+                    Records.readLongs(record, likes);
+                } else {
+                    likes = existing == null ? adjacency.copyOf(null) : existing.getLikes();
+                }
+                film.setLikes(likes);
+                films.put(film.getId(), film);
+                idSequence.accumulateAndGet(film.getId(), Math::max);
+            }
+            case FilmRecords.DELETE -> films.remove(record.getLong());
+            case FilmRecords.LIKES_ADD, FilmRecords.LIKES_REMOVE -> {
+                Film film = films.get(record.getLong());
+                int size = record.getInt();
+                for (int i = 0; i < size; i++) {
+                    long userId = record.getLong();
+                    if (film != null && type == FilmRecords.LIKES_ADD) {
+                        film.getLikes().add(userId);
+                    } else if (film != null) {
+                        film.getLikes().remove(userId);
+                    }
+                }
+            }
+            case FilmRecords.SEQUENCE -> idSequence.accumulateAndGet(record.getLong(), Math::max);
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала фильмов: " + type);
+        }
+    }
+
+    /**
+     * Записывает все фильмы в снимок; каждый фильм сериализуется под его блокировкой.
+     */
+    private void snapshot(RecordSink sink) {
+        long sequence = idSequence.get();
+        sink.write(out -> FilmRecords.writeId(out, FilmRecords.SEQUENCE, sequence));
+        for (Long id : films.keySet()) {
+            locks.withLock(id, () -> {
+                Film film = films.get(id);
+                if (film != null) {
+                    sink.write(out -> FilmRecords.writePut(out, film, true));
+                }
+            });
+        }
+    }
+
+    private void indexLike(long filmId, long userId) {
+        likerLocks.withLock(userId, () -> {
+            likedFilms.computeIfAbsent(userId, key -> adjacency.copyOf(null)).add(filmId);
+        });
+    }
+
+    private void unindexLike(long filmId, long userId) {
+        likerLocks.withLock(userId, () -> {
+            LongSet liked = likedFilms.get(userId);
+            if (liked != null) {
+                liked.remove(filmId);
+            }
+        });
+    }
+
+    private Film getExisting(Long id) {
+        Film film = films.get(id);
+        if (film == null) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+        return film;
+    }
+
+    /**
+     * Возвращает последний выданный или восстановленный идентификатор.
+     *
+     * @return наибольший id.
+     */
+    long lastId() {
+        return idSequence.get();
+    }
+
     /**
      * Генерирует новый уникальный идентификатор фильма.
      *
      * @return следующий id.
      */
     private long getNextId() {
-        long currentMaxId = films.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
-    }
-}
\ No newline at end of file
+        return idSequence.incrementAndGet();
+    }
+}
@@ -0,0 +1,253 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Упорядоченный индекс популярности фильмов.
+ * Фильмы отсортированы по убыванию количества лайков, при равенстве — по возрастанию id,
+ * поэтому порядок выдачи детерминирован.
+ * <p>
+ * Кроме общего рейтинга индекс ведёт рейтинги каждого жанра, каждого рейтинга MPA и каждого года выхода.
+ * Отбор с условиями обходит самый короткий из подходящих рейтингов, а остальные условия
+ * проверяет по признакам в записи индекса: жанры хранятся битовой маской, сам фильм не читается.
+ * <p>
+ * Изменения одного фильма должны выполняться под его блокировкой.
+ * Перестановка фильма удаляет старую запись и добавляет новую, поэтому обход, совпавший с изменением,
+ * мог бы пропустить фильм. Чтение выполняется без блокировок и повторяется, если за время обхода
+ * началось изменение; после нескольких неудачных попыток обход выполняется, исключив изменения.
+ */
+class PopularityIndex {
+
+    /**
+     * Количество попыток чтения без блокировки до исключения изменений.
+     */
+    private static final int OPTIMISTIC_READS = 4;
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final Ranking all = new Ranking();
+    private final Ranking[] byGenre = rankings(Genre.values().length);
+    private final Ranking[] byRating = rankings(Mpa.values().length);
+
+    /**
+     * Рейтинги по годам выхода; рейтинг года создаётся с первым фильмом этого года и не удаляется.
+     */
+    private final Map<Integer, Ranking> byYear = new ConcurrentHashMap<>();
+
+    /**
+     * Текущая запись каждого фильма: по ней находятся рейтинги, из которых запись нужно убрать.
+     */
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Количество начатых и завершённых изменений: обход, во время которого они совпадали
+     * и не изменились, видел согласованный индекс.
+     */
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+
+    /**
+     * Изменения захватывают блокировку совместно, обход после неудачных попыток — исключительно.
+     */
+    private final StampedLock changes = new StampedLock();
+
+    /**
+     * Добавляет фильм в индекс или обновляет его признаки после изменения фильма.
+     *
+     * @param film фильм с текущими лайками, жанрами, рейтингом MPA и датой выхода.
+     */
+    void put(Film film) {
+        int year = film.getReleaseDate() == null ? 0 : film.getReleaseDate().getYear();
+        replace(new Entry(film.getId(), film.getLikes().size(), Genre.mask(film.getGenres()), film.getRating(), year));
+    }
+
+    /**
+     * Переставляет фильм после изменения количества лайков.
+     *
+     * @param filmId идентификатор фильма
+     * @param likes  количество лайков после изменения.
+     */
+    void update(long filmId, int likes) {
+        Entry entry = entries.get(filmId);
+        if (entry != null && entry.likes() != likes) {
+            replace(new Entry(filmId, likes, entry.genres(), entry.rating(), entry.year()));
+        }
+    }
+
+    /**
+     * Удаляет фильм из индекса.
+     *
+     * @param filmId идентификатор фильма.
+     */
+    void remove(long filmId) {
+        change(() -> {
+            Entry entry = entries.remove(filmId);
+            if (entry != null) {
+                forEachRanking(entry, ranking -> ranking.remove(entry));
+            }
+        });
+    }
+
+    /**
+     * Возвращает идентификаторы самых популярных фильмов.
+     *
+     * @param count максимальное количество фильмов
+     * @return список id в порядке убывания популярности.
+     */
+    List<Long> top(int count) {
+        return top(count, PopularFilter.ANY);
+    }
+
+    /**
+     * Возвращает идентификаторы самых популярных фильмов, удовлетворяющих условиям.
+     *
+     * @param count  максимальное количество фильмов
+     * @param filter условия отбора
+     * @return список id в порядке убывания популярности.
+     */
+    List<Long> top(int count, PopularFilter filter) {
+        Ranking source = all;
+        if (filter.rating() != null) {
+            source = byRating[filter.rating().ordinal()];
+        }
+        if (filter.year() != null) {
+            Ranking year = byYear.get(filter.year());
+            if (year == null) {
+                return List.of();
+            }
+            if (year.size() < source.size()) {
+                source = year;
+            }
+        }
+        for (int mask = filter.genres(); mask != 0; mask &= mask - 1) {
+            Ranking genre = byGenre[Integer.numberOfTrailingZeros(mask)];
+            if (genre.size() < source.size()) {
+                source = genre;
+            }
+        }
+
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long before = finished.get();
+            if (started.get() != before) {
+                Thread.onSpinWait();
+                continue;
+            }
+            List<Long> ids = collect(source, count, filter);
+            if (started.get() == before) {
+                return ids;
+            }
+        }
+        long stamp = changes.writeLock();
+        try {
+            return collect(source, count, filter);
+        } finally {
+            changes.unlockWrite(stamp);
+        }
+    }
+
+    private static List<Long> collect(Ranking source, int count, PopularFilter filter) {
+        List<Long> ids = new ArrayList<>(Math.min(count, 1024));
+        Iterator<Entry> iterator = source.entries.iterator();
+        while (ids.size() < count && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (filter.matches(entry.genres(), entry.rating(), entry.year())) {
+                ids.add(entry.filmId());
+            }
+        }
+        return ids;
+    }
+
+    private void replace(Entry entry) {
+        change(() -> {
+            Entry old = entries.put(entry.filmId(), entry);
+            if (old != null) {
+                forEachRanking(old, ranking -> ranking.remove(old));
+            }
+            forEachRanking(entry, ranking -> ranking.add(entry));
+        });
+    }
+
+    /**
+     * Выполняет изменение рейтингов, отмечая его начало и конец для обходов.
+     */
+    private void change(Runnable action) {
+        long stamp = changes.readLock();
+        started.incrementAndGet();
+        try {
+            action.run();
+        } finally {
+            finished.incrementAndGet();
+            changes.unlockRead(stamp);
+        }
+    }
+
+    private void forEachRanking(Entry entry, Consumer<Ranking> action) {
+        action.accept(all);
+        if (entry.rating() != null) {
+            action.accept(byRating[entry.rating().ordinal()]);
+        }
+        if (entry.year() != 0) {
+            action.accept(byYear.computeIfAbsent(entry.year(), year -> new Ranking()));
+        }
+        for (int mask = entry.genres(); mask != 0; mask &= mask - 1) {
+            action.accept(byGenre[Integer.numberOfTrailingZeros(mask)]);
+        }
+    }
+
+    private static Ranking[] rankings(int count) {
+        Ranking[] rankings = new Ranking[count];
+        for (int i = 0; i < count; i++) {
+            rankings[i] = new Ranking();
+        }
+        return rankings;
+    }
+
+    /**
+     * Запись индекса; равенство записей определяется только лайками и id.
+     */
+    private record Entry(long filmId, int likes, int genres, Mpa rating, int year) {
+    }
+
+    /**
+     * Рейтинг с размером: размер ConcurrentSkipListSet вычисляется обходом.
+     */
+    private static final class Ranking {
+
+        private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+        private final AtomicInteger size = new AtomicInteger();
+
+        void add(Entry entry) {
+            if (entries.add(entry)) {
+                size.incrementAndGet();
+            }
+        }
+
+        void remove(Entry entry) {
+            if (entries.remove(entry)) {
+                size.decrementAndGet();
+            }
+        }
+
+        int size() {
+            return size.get();
+        }
+    }
+}
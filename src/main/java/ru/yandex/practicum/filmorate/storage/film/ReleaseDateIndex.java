@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Индекс фильмов по дате выхода: записи упорядочены по дню выхода, при равенстве — по id,
+ * поэтому выборка периода стоит O(log n + k). Фильмы без даты выхода в индекс не попадают.
+ * <p>
+ * Изменения одного фильма должны выполняться под его блокировкой,
+ * чтение выполняется без блокировок.
+ */
+class ReleaseDateIndex {
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingLong(Entry::day)
+            .thenComparingLong(Entry::filmId);
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+    /**
+     * Добавляет фильм в индекс.
+     *
+     * @param filmId      идентификатор фильма
+     * @param releaseDate дата выхода; null — фильм не индексируется.
+     */
+    void put(long filmId, LocalDate releaseDate) {
+        if (releaseDate != null) {
+            entries.add(new Entry(releaseDate.toEpochDay(), filmId));
+        }
+    }
+
+    /**
+     * Переносит фильм после изменения даты выхода. Обход во время переноса может пропустить фильм
+     * или пройти и старую, и новую его запись.
+     *
+     * @param filmId  идентификатор фильма
+     * @param oldDate дата выхода до изменения
+     * @param date    дата выхода после изменения.
+     */
+    void replace(long filmId, LocalDate oldDate, LocalDate date) {
+        if (!Objects.equals(oldDate, date)) {
+            remove(filmId, oldDate);
+            put(filmId, date);
+        }
+    }
+
+    /**
+     * Удаляет фильм из индекса.
+     *
+     * @param filmId      идентификатор фильма
+     * @param releaseDate дата выхода.
+     */
+    void remove(long filmId, LocalDate releaseDate) {
+        if (releaseDate != null) {
+            entries.remove(new Entry(releaseDate.toEpochDay(), filmId));
+        }
+    }
+
+    /**
+     * Возвращает фильмы, вышедшие в период.
+     *
+     * @param from  первый день периода; null — без ограничения
+     * @param to    последний день периода; null — без ограничения
+     * @param limit максимальное количество фильмов
+     * @return id фильмов без повторов по возрастанию даты выхода, при равенстве — по возрастанию id.
+     */
+    List<Long> range(LocalDate from, LocalDate to, int limit) {
+        Entry lower = new Entry(from == null ? Long.MIN_VALUE : from.toEpochDay(), Long.MIN_VALUE);
+        Entry upper = new Entry(to == null ? Long.MAX_VALUE : to.toEpochDay(), Long.MAX_VALUE);
+        Set<Long> ids = new LinkedHashSet<>();
+        if (ORDER.compare(lower, upper) > 0) {
+            return List.of();
+        }
+        for (Entry entry : entries.subSet(lower, true, upper, true)) {
+            if (ids.size() == limit) {
+                break;
+            }
+            ids.add(entry.filmId());
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private record Entry(long day, long filmId) {
+    }
+}
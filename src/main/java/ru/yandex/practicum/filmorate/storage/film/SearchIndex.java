@@ -0,0 +1,319 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Инвертированный индекс полнотекстового поиска по названиям и описаниям фильмов.
+ * <p>
+ * Для каждого слова хранится список фильмов, упорядоченный по id, в виде массива примитивов
+ * и параллельного массива признаков: встречается ли слово в названии, в описании или в обоих полях.
+ * Запрос находит фильмы, содержащие все слова: перебирается самый короткий список,
+ * остальные проверяются двоичным поиском. Вес фильма — сумма редкости слов (idf),
+ * совпадение в названии весит вдвое больше совпадения в описании.
+ * <p>
+ * Изменения одного фильма должны выполняться под его блокировкой. Каждый список слова защищён
+ * своей {@link ReentrantLock}, а не монитором, чтобы не закреплять виртуальный поток за несущим;
+ * запрос не держит несколько блокировок одновременно, поэтому видит индекс слабо согласованным.
+ */
+class SearchIndex {
+
+    static final byte NAME = 1;
+    static final byte DESCRIPTION = 2;
+
+    private static final int NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    /**
+     * Максимальное количество слов запроса: остальные слова отбрасываются.
+     */
+    static final int MAX_QUERY_TERMS = 16;
+
+    private final Map<String, Postings> terms = new ConcurrentHashMap<>();
+
+    /**
+     * Количество проиндексированных фильмов для вычисления редкости слов.
+     */
+    private final AtomicInteger documents = new AtomicInteger();
+
+    /**
+     * Разбивает текст на слова: последовательности букв и цифр любого алфавита в нижнем регистре,
+     * буква «ё» заменяется на «е».
+     *
+     * @param text текст; null — пустой текст
+     * @return слова без повторов в порядке появления.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                int lower = Character.toLowerCase(codePoint);
+                token.appendCodePoint(lower == 'ё' ? 'е' : lower);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Добавляет фильм в индекс.
+     *
+     * @param filmId      идентификатор фильма
+     * @param name        название
+     * @param description описание.
+     */
+    void put(long filmId, String name, String description) {
+        documents.incrementAndGet();
+        apply(filmId, Map.of(), fields(name, description));
+    }
+
+    /**
+     * Переиндексирует фильм после изменения названия или описания.
+     * Списки слов, признаки которых не изменились, не затрагиваются.
+     *
+     * @param filmId         идентификатор фильма
+     * @param oldName        название до изменения
+     * @param oldDescription описание до изменения
+     * @param name           название после изменения
+     * @param description    описание после изменения.
+     */
+    void replace(long filmId, String oldName, String oldDescription, String name, String description) {
+        if (Objects.equals(oldName, name) && Objects.equals(oldDescription, description)) {
+            return;
+        }
+        apply(filmId, fields(oldName, oldDescription), fields(name, description));
+    }
+
+    /**
+     * Удаляет фильм из индекса.
+     *
+     * @param filmId      идентификатор фильма
+     * @param name        название
+     * @param description описание.
+     */
+    void remove(long filmId, String name, String description) {
+        apply(filmId, fields(name, description), Map.of());
+        documents.decrementAndGet();
+    }
+
+    /**
+     * Находит фильмы, содержащие все слова запроса.
+     *
+     * @param query текст запроса
+     * @param limit максимальное количество фильмов
+     * @return найденные фильмы в порядке убывания веса, при равенстве — по возрастанию id.
+     */
+    List<Hit> search(String query, int limit) {
+        List<Postings> lists = new ArrayList<>();
+        for (String term : tokenize(query)) {
+            if (lists.size() == MAX_QUERY_TERMS) {
+                break;
+            }
+            Postings postings = terms.get(term);
+            if (postings == null) {
+                return List.of();
+            }
+            lists.add(postings);
+        }
+        if (lists.isEmpty()) {
+            return List.of();
+        }
+        lists.sort(Comparator.comparingInt(Postings::size));
+
+        int total = Math.max(documents.get(), 1);
+        long[] candidates;
+        double[] scores;
+        Postings first = lists.get(0);
+        first.lock.lock();
+        try {
+            candidates = Arrays.copyOf(first.ids, first.size);
+            scores = new double[first.size];
+            double idf = idf(total, first.size);
+            for (int i = 0; i < first.size; i++) {
+                scores[i] = idf * weight(first.fields[i]);
+            }
+        } finally {
+            first.lock.unlock();
+        }
+
+        int alive = candidates.length;
+        for (int k = 1; k < lists.size() && alive > 0; k++) {
+            Postings postings = lists.get(k);
+            postings.lock.lock();
+            try {
+                double idf = idf(total, postings.size);
+                int next = 0;
+                int from = 0;
+                for (int i = 0; i < alive; i++) {
+                    int found = Arrays.binarySearch(postings.ids, from, postings.size, candidates[i]);
+                    if (found < 0) {
+                        from = -found - 1;
+                        continue;
+                    }
+                    from = found + 1;
+                    candidates[next] = candidates[i];
+                    scores[next++] = scores[i] + idf * weight(postings.fields[found]);
+                }
+                alive = next;
+            } finally {
+                postings.lock.unlock();
+            }
+        }
+        return top(candidates, scores, alive, limit);
+    }
+
+    /**
+     * Переводит признаки слов фильма из одного состояния в другое. Списки изменяются внутри вычисления
+     * словаря, поэтому фильм не попадает в список, который в это время удаляется из словаря опустевшим.
+     */
+    private void apply(long filmId, Map<String, Byte> before, Map<String, Byte> after) {
+        before.forEach((term, fields) -> {
+            if (!after.containsKey(term)) {
+                terms.computeIfPresent(term, (key, postings) -> postings.remove(filmId) ? null : postings);
+            }
+        });
+        after.forEach((term, fields) -> {
+            if (!fields.equals(before.get(term))) {
+                terms.compute(term, (key, postings) -> {
+                    Postings updated = postings == null ? new Postings() : postings;
+                    updated.put(filmId, fields);
+                    return updated;
+                });
+            }
+        });
+    }
+
+    private static Map<String, Byte> fields(String name, String description) {
+        Map<String, Byte> fields = new HashMap<>();
+        for (String term : tokenize(name)) {
+            fields.put(term, NAME);
+        }
+        for (String term : tokenize(description)) {
+            fields.merge(term, DESCRIPTION, (a, b) -> (byte) (a | b));
+        }
+        return fields;
+    }
+
+    private static double idf(int documents, int frequency) {
+        return Math.log(1 + (double) documents / Math.max(frequency, 1));
+    }
+
+    private static int weight(byte fields) {
+        return ((fields & NAME) != 0 ? NAME_WEIGHT : 0) + ((fields & DESCRIPTION) != 0 ? DESCRIPTION_WEIGHT : 0);
+    }
+
+    private static List<Hit> top(long[] ids, double[] scores, int size, int limit) {
+        Comparator<Integer> order = Comparator.<Integer>comparingDouble(i -> scores[i])
+                .thenComparing(Comparator.<Integer>comparingLong(i -> ids[i]).reversed());
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, order);
+        for (int i = 0; i < size; i++) {
+            if (heap.size() < limit) {
+                heap.add(i);
+            } else if (order.compare(i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        Hit[] top = new Hit[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            int index = heap.poll();
+            top[i] = new Hit(ids[index], scores[index]);
+        }
+        return List.of(top);
+    }
+
+    /**
+     * Найденный фильм и его вес.
+     */
+    record Hit(long filmId, double score) {
+    }
+
+    /**
+     * Список фильмов одного слова, упорядоченный по id. Фильмы добавляются по возрастанию id,
+     * поэтому вставка обычно дописывает в конец массива.
+     */
+    private static final class Postings {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] ids = new long[4];
+        private byte[] fields = new byte[4];
+
+        /**
+         * Длина списка; изменяется под блокировкой, а читается без неё для упорядочивания списков запроса.
+         */
+        private volatile int size;
+
+        int size() {
+            return size;
+        }
+
+        void put(long filmId, byte filmFields) {
+            lock.lock();
+            try {
+                insert(filmId, filmFields);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Удаляет фильм из списка.
+         *
+         * @return true, если список стал пустым.
+         */
+        boolean remove(long filmId) {
+            lock.lock();
+            try {
+                int index = Arrays.binarySearch(ids, 0, size, filmId);
+                if (index >= 0) {
+                    System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                    System.arraycopy(fields, index + 1, fields, index, size - index - 1);
+                    size--;
+                }
+                return size == 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void insert(long filmId, byte filmFields) {
+            int index = size == 0 || ids[size - 1] < filmId ? -size - 1 : Arrays.binarySearch(ids, 0, size, filmId);
+            if (index >= 0) {
+                fields[index] = filmFields;
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(fields, index, fields, index + 1, size - index);
+            ids[index] = filmId;
+            fields[index] = filmFields;
+            size++;
+        }
+    }
+}
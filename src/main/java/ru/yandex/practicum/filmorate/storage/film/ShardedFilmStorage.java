@@ -0,0 +1,410 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.storage.wal.DurabilityManager;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.LongSetType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Хранилище фильмов, разделённое по id на независимые сегменты в памяти.
+ * <p>
+ * Каждый сегмент — отдельное {@link InMemoryFilmStorage} со своими блокировками, индексами и журналом.
+ * Операции с одним фильмом выполняются в его сегменте. Обходы и выборки выполняются во всех сегментах
+ * параллельно, упорядоченные результаты сегментов сливаются: например, рейтинг популярных фильмов
+ * собирается слиянием рейтингов сегментов длины count.
+ * <p>
+ * Количество сегментов определяет имена журналов, поэтому при включённом сохранении на диск
+ * его нельзя менять между запусками.
+ */
+@Component
+@Profile("sharded & !db")
+@Timed("filmorate.storage")
+@Slf4j
+public class ShardedFilmStorage implements FilmStorage, DisposableBean {
+
+    private static final Comparator<Film> BY_ID = Comparator.comparing(Film::getId);
+
+    private static final Comparator<Film> BY_POPULARITY = Comparator
+            .comparingInt((Film film) -> film.getLikes().size()).reversed()
+            .thenComparing(Film::getId);
+
+    private static final Comparator<Film> BY_RELEASE_DATE = Comparator
+            .comparing(Film::getReleaseDate)
+            .thenComparing(Film::getId);
+
+    private static final Comparator<SearchIndex.Hit> BY_SCORE = Comparator
+            .comparingDouble(SearchIndex.Hit::score).reversed()
+            .thenComparingLong(SearchIndex.Hit::filmId);
+
+    private final InMemoryFilmStorage[] shards;
+
+    /**
+     * Общая последовательность идентификаторов: id выдаётся до выбора сегмента.
+     */
+    private final AtomicLong idSequence = new AtomicLong();
+
+    /**
+     * Пул параллельного обхода сегментов; останавливается вместе с контекстом приложения.
+     */
+    private final ForkJoinPool pool;
+
+    public ShardedFilmStorage(int shards) {
+        this(shards, LongSetType.HASH, new DurabilityManager());
+    }
+
+    /**
+     * Создаёт хранилище и восстанавливает сегменты из их журналов.
+     *
+     * @param shards     количество сегментов; 0 — по числу процессоров
+     * @param adjacency  представление множеств лайков
+     * @param durability журналы сегментов.
+     */
+    @Autowired
+    public ShardedFilmStorage(@Value("${filmorate.storage.shards:0}") int shards,
+                              @Value("${filmorate.storage.adjacency:HASH}") LongSetType adjacency,
+                              DurabilityManager durability) {
+        int count = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        this.shards = new InMemoryFilmStorage[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new InMemoryFilmStorage(adjacency, durability, "films-shard-" + i);
+            idSequence.accumulateAndGet(this.shards[i].lastId(), Math::max);
+        }
+        this.pool = new ForkJoinPool(count);
+        log.info("Количество сегментов хранилища фильмов: {}", count);
+    }
+
+    /**
+     * Останавливает пул обхода сегментов, дожидаясь выполняющихся обходов.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public Film create(Film film) {
+        long id = idSequence.incrementAndGet();
+        return shard(id).create(film, id);
+    }
+
+    @Override
+    public Film update(Film film) {
+        return shard(film.getId()).update(film);
+    }
+
+    @Override
+    public void delete(Long id) {
+        shard(id).delete(id);
+    }
+
+    @Override
+    public Optional<Film> getById(Long id) {
+        return shard(id).getById(id);
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        List<Film> films = new ArrayList<>();
+        merge(fanOut(i -> shards[i].getAll()), BY_ID).forEachRemaining(films::add);
+        return films;
+    }
+
+    /**
+     * Каждый сегмент возвращает свою страницу после курсора, первые limit фильмов слияния образуют общую страницу.
+     */
+    @Override
+    public Page<Film> getPage(long after, int limit) {
+        List<Page<Film>> pages = fanOut(i -> shards[i].getPage(after, limit));
+        boolean more = false;
+        List<Collection<Film>> items = new ArrayList<>(pages.size());
+        for (Page<Film> page : pages) {
+            more |= page.getNextCursor() != null;
+            items.add(page.getItems());
+        }
+
+        List<Film> films = new ArrayList<>(limit);
+        Iterator<Film> merged = merge(items, BY_ID);
+        while (films.size() < limit && merged.hasNext()) {
+            films.add(merged.next());
+        }
+        more |= merged.hasNext();
+        return new Page<>(films, more && !films.isEmpty() ? films.get(films.size() - 1).getId() : null);
+    }
+
+    /**
+     * Потоки сегментов сливаются лениво по мере чтения, без копирования каталога.
+     */
+    @Override
+    public Stream<Film> stream() {
+        List<Iterator<Film>> iterators = new ArrayList<>(shards.length);
+        for (InMemoryFilmStorage shard : shards) {
+            iterators.add(shard.stream().iterator());
+        }
+        Iterator<Film> merged = new MergingIterator<>(iterators, BY_ID);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean addLike(Long id, Long userId) {
+        return shard(id).addLike(id, userId);
+    }
+
+    @Override
+    public boolean deleteLike(Long id, Long userId) {
+        return shard(id).deleteLike(id, userId);
+    }
+
+    @Override
+    public int deleteUserLikes(Long userId) {
+        return fanOut(i -> shards[i].deleteUserLikes(userId)).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        return getPopular(count, PopularFilter.ANY);
+    }
+
+    @Override
+    public List<Film> getPopular(int count, PopularFilter filter) {
+        return take(merge(fanOut(i -> shards[i].getPopular(count, filter)), BY_POPULARITY), count);
+    }
+
+    @Override
+    public List<Film> getReleased(LocalDate from, LocalDate to, int limit) {
+        return take(merge(fanOut(i -> shards[i].getReleased(from, to, limit)), BY_RELEASE_DATE), limit);
+    }
+
+    /**
+     * Редкость слов считается по сегменту: при равномерном распределении фильмов по id она близка к общей.
+     */
+    @Override
+    public List<Film> search(String query, int limit) {
+        Iterator<SearchIndex.Hit> hits = merge(fanOut(i -> shards[i].searchHits(query, limit)), BY_SCORE);
+        List<Film> films = new ArrayList<>(limit);
+        while (films.size() < limit && hits.hasNext()) {
+            long filmId = hits.next().filmId();
+            getById(filmId).ifPresent(films::add);
+        }
+        return films;
+    }
+
+    @Override
+    public long[] getCommonLikerIds(Long id, Long otherId) {
+        return LongSet.intersect(getExisting(id).getLikes(), getExisting(otherId).getLikes());
+    }
+
+    @Override
+    public LongSet getLikerIds(Long id) {
+        return shard(id).getLikerIds(id);
+    }
+
+    /**
+     * Фильмы пользователя лежат во всех сегментах; при одном сегменте его множество отдаётся без копирования.
+     */
+    @Override
+    public LongSet getLikedFilmIds(Long userId) {
+        if (shards.length == 1) {
+            return shards[0].getLikedFilmIds(userId);
+        }
+        LongSet liked = new LongHashSet();
+        for (InMemoryFilmStorage shard : shards) {
+            shard.getLikedFilmIds(userId).forEachLong(liked::add);
+        }
+        return liked;
+    }
+
+    @Override
+    public LongSet findExistingIds(long[] ids) {
+        int[][] positions = partition(ids);
+        List<LongSet> found = fanOut(i -> shards[i].findExistingIds(select(ids, positions[i])));
+        LongSet existing = new LongHashSet();
+        for (LongSet shardIds : found) {
+            shardIds.forEachLong(existing::add);
+        }
+        return existing;
+    }
+
+    /**
+     * Пакет делится по сегментам фильмов, части применяются параллельно.
+     */
+    @Override
+    public boolean[] addLikes(long[] filmIds, long[] userIds) {
+        int[][] positions = partition(filmIds);
+        List<boolean[]> results = fanOut(i -> shards[i].addLikes(select(filmIds, positions[i]),
+                select(userIds, positions[i])));
+
+        boolean[] applied = new boolean[filmIds.length];
+        for (int i = 0; i < shards.length; i++) {
+            boolean[] shardApplied = results.get(i);
+            for (int k = 0; k < positions[i].length; k++) {
+                applied[positions[i][k]] = shardApplied[k];
+            }
+        }
+        return applied;
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (InMemoryFilmStorage shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long likeCount() {
+        long count = 0;
+        for (InMemoryFilmStorage shard : shards) {
+            count += shard.likeCount();
+        }
+        return count;
+    }
+
+    private InMemoryFilmStorage shard(long id) {
+        return shards[Math.floorMod(id, shards.length)];
+    }
+
+    private Film getExisting(Long id) {
+        return getById(id).orElseThrow(() -> new NotFoundException("Фильм с id=" + id + " не найден"));
+    }
+
+    /**
+     * Выполняет действие в каждом сегменте: при нескольких сегментах — параллельно в пуле.
+     *
+     * @param action действие по номеру сегмента
+     * @return результаты в порядке сегментов.
+     */
+    private <T> List<T> fanOut(IntFunction<T> action) {
+        if (shards.length == 1) {
+            return List.of(action.apply(0));
+        }
+        List<ForkJoinTask<T>> tasks = new ArrayList<>(shards.length);
+        for (int i = 1; i < shards.length; i++) {
+            int shard = i;
+            tasks.add(pool.submit(() -> action.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        results.add(action.apply(0));
+        for (ForkJoinTask<T> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Раскладывает позиции идентификаторов по сегментам с сохранением порядка.
+     */
+    private int[][] partition(long[] ids) {
+        int[] sizes = new int[shards.length];
+        for (long id : ids) {
+            sizes[Math.floorMod(id, shards.length)]++;
+        }
+        int[][] positions = new int[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            positions[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int k = 0; k < ids.length; k++) {
+            int shard = Math.floorMod(ids[k], shards.length);
+            positions[shard][sizes[shard]++] = k;
+        }
+        return positions;
+    }
+
+    private static long[] select(long[] values, int[] positions) {
+        long[] selected = new long[positions.length];
+        for (int k = 0; k < positions.length; k++) {
+            selected[k] = values[positions[k]];
+        }
+        return selected;
+    }
+
+    private static <T> Iterator<T> merge(List<? extends Collection<T>> sorted, Comparator<? super T> order) {
+        List<Iterator<T>> iterators = new ArrayList<>(sorted.size());
+        for (Collection<T> items : sorted) {
+            iterators.add(items.iterator());
+        }
+        return new MergingIterator<>(iterators, order);
+    }
+
+    private static List<Film> take(Iterator<Film> films, int limit) {
+        List<Film> taken = new ArrayList<>(limit);
+        while (taken.size() < limit && films.hasNext()) {
+            taken.add(films.next());
+        }
+        return taken;
+    }
+
+    /**
+     * Слияние k упорядоченных последовательностей кучей их текущих элементов: O(log k) на элемент.
+     * Ключ элемента читается при сравнении, поэтому элементы, изменившиеся после выборки,
+     * могут выйти немного не по порядку.
+     */
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        private final PriorityQueue<Head<T>> heads;
+
+        MergingIterator(List<Iterator<T>> iterators, Comparator<? super T> order) {
+            this.heads = new PriorityQueue<>(Math.max(iterators.size(), 1),
+                    (a, b) -> order.compare(a.value(), b.value()));
+            for (Iterator<T> iterator : iterators) {
+                if (iterator.hasNext()) {
+                    heads.add(new Head<>(iterator.next(), iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest().hasNext()) {
+                heads.add(new Head<>(head.rest().next(), head.rest()));
+            }
+            return head.value();
+        }
+
+        private record Head<T>(T value, Iterator<T> rest) {
+        }
+    }
+}
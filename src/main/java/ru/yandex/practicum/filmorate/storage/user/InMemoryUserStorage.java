@@ -1,21 +1,110 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.StripedLock;
+import ru.yandex.practicum.filmorate.storage.wal.DurabilityManager;
+import ru.yandex.practicum.filmorate.storage.wal.Journal;
+import ru.yandex.practicum.filmorate.storage.wal.RecordSink;
+import ru.yandex.practicum.filmorate.storage.wal.Records;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.LongSetType;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 @Component
+@Profile("!db")
+@Timed("filmorate.storage")
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
 
     /**
-     * Хранилище пользователей.
+     * Значение индекса, занятое создаваемым пользователем до выдачи ему id.
+     * Идентификаторы начинаются с единицы, поэтому с id существующих пользователей оно не совпадает.
      */
-    private final Map<Long, User> users = new HashMap<>();
+    private static final Long RESERVED = 0L;
+
+    /**
+     * Хранилище пользователей, упорядоченное по id.
+     */
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+
+    /**
+     * Последний выданный идентификатор пользователя.
+     */
+    private final AtomicLong idSequence = new AtomicLong();
+
+    /**
+     * Количество пользователей; размер ConcurrentSkipListMap вычисляется обходом.
+     */
+    private final LongAdder userCount = new LongAdder();
+
+    /**
+     * Общее количество записей в списках друзей.
+     */
+    private final LongAdder friendLinkCount = new LongAdder();
+
+    /**
+     * Блокировки пользователей для изменения данных и списков друзей.
+     */
+    private final StripedLock locks = new StripedLock();
+
+    /**
+     * Индекс нормализованных адресов электронной почты.
+     */
+    private final Map<String, Long> emailIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Индекс логинов.
+     */
+    private final Map<String, Long> loginIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Представление множеств друзей.
+     */
+    private final LongSetType adjacency;
+
+    /**
+     * Журнал изменений; {@link Journal#NONE}, если режим сохранения на диск выключен.
+     */
+    private final Journal journal;
+
+    public InMemoryUserStorage() {
+        this(LongSetType.HASH);
+    }
+
+    public InMemoryUserStorage(LongSetType adjacency) {
+        this(adjacency, new DurabilityManager());
+    }
+
+    @Autowired
+    public InMemoryUserStorage(@Value("${filmorate.storage.adjacency:HASH}") LongSetType adjacency,
+                               DurabilityManager durability) {
+        this.adjacency = adjacency;
+        Map<Long, User> recovered = new HashMap<>();
+        this.journal = durability.open("users", record -> replay(record, recovered), this::snapshot);
+        users.putAll(new TreeMap<>(recovered));
+        users.values().forEach(user -> {
+            userCount.increment();
+            friendLinkCount.add(user.getFriends().size());
+        });
+    }
 
     @Override
     public Collection<User> getAll() {
@@ -23,62 +112,111 @@ public class InMemoryUserStorage implements UserStorage {
     }
 
     @Override
-    public User create(User user) {
-        log.info("Создание пользователя: {}", user);
+    public Page<User> getPage(long after, int limit) {
+        List<User> items = new ArrayList<>(limit);
+        Long nextCursor = null;
+        for (User user : users.tailMap(after, false).values()) {
+            if (items.size() == limit) {
+                nextCursor = items.get(limit - 1).getId();
+                break;
+            }
+            items.add(user);
+        }
+        return new Page<>(items, nextCursor);
+    }
 
-        boolean emailExists = users.values()
-                .stream()
-                .anyMatch(exisitnigUser -> exisitnigUser.getEmail().equals(user.getEmail()));
+    @Override
+    public Stream<User> stream() {
+        return users.values().stream();
+    }
 
-        if (emailExists) {
+    @Override
+    public User create(User user) {
+        String email = normalizeEmail(user.getEmail());
+        if (emailIndex.putIfAbsent(email, RESERVED) != null) {
             throw new DuplicatedDataException("Эта электронная почта уже используется");
         }
 
+        if (loginIndex.putIfAbsent(user.getLogin(), RESERVED) != null) {
+            emailIndex.remove(email, RESERVED);
+            throw new DuplicatedDataException("Этот логин уже используется");
+        }
+
+        long id = getNextId();
+        emailIndex.replace(email, RESERVED, id);
+        loginIndex.replace(user.getLogin(), RESERVED, id);
+
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
 
-        user.setId(getNextId());
-        users.put(user.getId(), user);
-        log.info("Пользователь успешно создан: id = {}", user.getId());
+        user.setFriends(adjacency.copyOf(user.getFriends()));
+        user.setId(id);
+        locks.withLock(id, () -> {
+            users.put(id, user);
+            userCount.increment();
+            friendLinkCount.add(user.getFriends().size());
+            journal.append(out -> UserRecords.writePut(out, user, true));
+        });
+        journal.sync();
+        log.info("Пользователь успешно создан: id = {}, друзей = {}", id, user.getFriends().size());
         return user;
     }
 
     @Override
     public User update(User user) {
-        log.info("Обновление данных пользователя: {}", user);
+        log.debug("Обновление данных пользователя id={}", user.getId());
 
-        User oldUser = users.get(user.getId());
+        User oldUser = locks.withLock(user.getId(), () -> {
+            User existing = users.get(user.getId());
 
-        if (oldUser == null) {
-            throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден");
-        }
+            if (existing == null) {
+                throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден");
+            }
 
-        if (user.getEmail() != null) {
-            boolean emailExists = users.values()
-                    .stream()
-                    .anyMatch(exisitnigUser ->
-                            exisitnigUser.getEmail().equals(user.getEmail())
-                                    && !exisitnigUser.getId().equals(user.getId()));
+            String oldEmail = normalizeEmail(existing.getEmail());
+            String newEmail = user.getEmail() == null ? oldEmail : normalizeEmail(user.getEmail());
+            String oldLogin = existing.getLogin();
+            String newLogin = user.getLogin() == null ? oldLogin : user.getLogin();
 
-            if (emailExists) {
+            if (!reserve(emailIndex, newEmail, existing.getId())) {
                 throw new DuplicatedDataException("Этот email уже используется");
             }
 
-            oldUser.setEmail(user.getEmail());
-        }
+            if (!reserve(loginIndex, newLogin, existing.getId())) {
+                if (!newEmail.equals(oldEmail)) {
+                    emailIndex.remove(newEmail, existing.getId());
+                }
+                throw new DuplicatedDataException("Этот логин уже используется");
+            }
 
-        if (user.getLogin() != null) {
-            oldUser.setLogin(user.getLogin());
-        }
+            if (!newEmail.equals(oldEmail)) {
+                emailIndex.remove(oldEmail, existing.getId());
+            }
 
-        if (user.getName() != null) {
-            oldUser.setName(user.getName());
-        }
+            if (!newLogin.equals(oldLogin)) {
+                loginIndex.remove(oldLogin, existing.getId());
+            }
 
-        if (user.getBirthday() != null) {
-            oldUser.setBirthday(user.getBirthday());
-        }
+            if (user.getEmail() != null) {
+                existing.setEmail(user.getEmail());
+            }
+
+            if (user.getLogin() != null) {
+                existing.setLogin(user.getLogin());
+            }
+
+            if (user.getName() != null) {
+                existing.setName(user.getName());
+            }
+
+            if (user.getBirthday() != null) {
+                existing.setBirthday(user.getBirthday());
+            }
+            journal.append(out -> UserRecords.writePut(out, existing, false));
+            return existing;
+        });
+        journal.sync();
 
         log.info("Обновление пользователя id={} прошло успешно", oldUser.getId());
         return oldUser;
@@ -86,10 +224,29 @@ public class InMemoryUserStorage implements UserStorage {
 
     @Override
     public void delete(Long id) {
-        if (!users.containsKey(id)) {
-            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        User deleted = locks.withLock(id, () -> {
+            User user = users.remove(id);
+            if (user == null) {
+                throw new NotFoundException("Пользователь с id=" + id + " не найден");
+            }
+            emailIndex.remove(normalizeEmail(user.getEmail()), id);
+            loginIndex.remove(user.getLogin(), id);
+            userCount.decrement();
+            friendLinkCount.add(-user.getFriends().size());
+            journal.append(out -> UserRecords.writeId(out, UserRecords.DELETE, id));
+            return user;
+        });
+        journal.sync();
+
+        // Новых друзей у удалённого пользователя не появится: добавление дружбы проверяет обоих под блокировками.
+        for (long friendId : deleted.getFriends().toLongArray()) {
+            locks.withLocks(id, friendId, () -> {
+                User friend = users.get(friendId);
+                if (friend != null && friend.getFriends().remove(id)) {
+                    friendLinkCount.decrement();
+                }
+            });
         }
-        users.remove(id);
     }
 
     @Override
@@ -97,17 +254,269 @@ public class InMemoryUserStorage implements UserStorage {
         return Optional.ofNullable(users.get(id));
     }
 
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return Optional.ofNullable(emailIndex.get(normalizeEmail(email)))
+                .map(users::get);
+    }
+
+    @Override
+    public Optional<User> findByLogin(String login) {
+        return Optional.ofNullable(loginIndex.get(login))
+                .map(users::get);
+    }
+
+    @Override
+    public boolean addFriend(Long id, Long friendId) {
+        boolean[] added = new boolean[1];
+        locks.withLocks(id, friendId, () -> {
+            User user = getExisting(id);
+            User friend = getExisting(friendId);
+
+            added[0] = link(user, friend);
+            if (added[0]) {
+                journal.append(out -> UserRecords.writePair(out, UserRecords.FRIEND_ADD, id, friendId));
+            }
+        });
+        journal.sync();
+        return added[0];
+    }
+
+    @Override
+    public boolean deleteFriend(Long id, Long friendId) {
+        boolean[] removed = new boolean[1];
+        locks.withLocks(id, friendId, () -> {
+            User user = getExisting(id);
+            User friend = getExisting(friendId);
+
+            removed[0] = unlink(user, friend);
+            if (removed[0]) {
+                journal.append(out -> UserRecords.writePair(out, UserRecords.FRIEND_REMOVE, id, friendId));
+            }
+        });
+        journal.sync();
+        return removed[0];
+    }
+
+    @Override
+    public long size() {
+        return userCount.sum();
+    }
+
+    @Override
+    public long friendLinkCount() {
+        return friendLinkCount.sum();
+    }
+
+    @Override
+    public List<User> getFriends(Long id) {
+        long[] friendIds = getExisting(id).getFriends().toLongArray();
+
+        List<User> friends = new ArrayList<>(friendIds.length);
+        for (long friendId : friendIds) {
+            User friend = users.get(friendId);
+            if (friend != null) {
+                friends.add(friend);
+            }
+        }
+        return friends;
+    }
+
+    @Override
+    public LongSet getFriendIds(Long id) {
+        User user = users.get(id);
+        return user == null ? new LongHashSet() : user.getFriends();
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long id, Long otherId) {
+        long[] commonIds = LongSet.intersect(getExisting(id).getFriends(), getExisting(otherId).getFriends());
+
+        List<User> common = new ArrayList<>(commonIds.length);
+        for (long friendId : commonIds) {
+            User friend = users.get(friendId);
+            if (friend != null) {
+                common.add(friend);
+            }
+        }
+        return common;
+    }
+
+    @Override
+    public LongSet findExistingIds(long[] ids) {
+        LongSet existing = new LongHashSet();
+        for (long id : ids) {
+            if (users.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public boolean[] addFriends(long[] ids, long[] friendIds) {
+        boolean[] applied = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int index = i;
+            long id = ids[i];
+            long friendId = friendIds[i];
+            locks.withLocks(id, friendId, () -> {
+                User user = users.get(id);
+                User friend = users.get(friendId);
+                if (user != null && friend != null && link(user, friend)) {
+                    applied[index] = true;
+                    journal.append(out -> UserRecords.writePair(out, UserRecords.FRIEND_ADD, id, friendId));
+                }
+            });
+        }
+        journal.sync();
+        return applied;
+    }
+
+    /**
+     * Применяет запись журнала при восстановлении вместе с индексами email и логина.
+     */
+    private void replay(ByteBuffer record, Map<Long, User> users) {
+        byte type = record.get();
+        switch (type) {
+            case UserRecords.PUT -> {
+                User user = UserRecords.readUser(record);
+                User existing = users.get(user.getId());
+                LongSet friends;
+                if (record.get() != 0) {
+                    friends = adjacency.copyOf(null);
+                    Records.readLongs(record, friends);
+                } else {
+                    friends = existing == null ? adjacency.copyOf(null) : existing.getFriends();
+                }
+                user.setFriends(friends);
+                if (existing != null) {
+                    unindex(existing);
+                }
+                users.put(user.getId(), user);
+                emailIndex.put(normalizeEmail(user.getEmail()), user.getId());
+                loginIndex.put(user.getLogin(), user.getId());
+                idSequence.accumulateAndGet(user.getId(), Math::max);
+            }
+            case UserRecords.DELETE -> {
+                long id = record.getLong();
+                User user = users.remove(id);
+                if (user != null) {
+                    unindex(user);
+                    user.getFriends().forEachLong(friendId -> {
+                        User friend = users.get(friendId);
+                        if (friend != null) {
+                            friend.getFriends().remove(id);
+                        }
+                    });
+                }
+            }
+            case UserRecords.FRIEND_ADD, UserRecords.FRIEND_REMOVE -> {
+                long id = record.getLong();
+                long friendId = record.getLong();
+                User user = users.get(id);
+                User friend = users.get(friendId);
+                if (user != null && friend != null && type == UserRecords.FRIEND_ADD) {
+                    user.getFriends().add(friendId);
+                    friend.getFriends().add(id);
+                } else if (user != null && friend != null) {
+                    user.getFriends().remove(friendId);
+                    friend.getFriends().remove(id);
+                }
+            }
+            case UserRecords.SEQUENCE -> idSequence.accumulateAndGet(record.getLong(), Math::max);
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала пользователей: " + type);
+        }
+    }
+
+    /**
+     * Записывает всех пользователей в снимок; каждый пользователь сериализуется под его блокировкой.
+     */
+    private void snapshot(RecordSink sink) {
+        long sequence = idSequence.get();
+        sink.write(out -> UserRecords.writeId(out, UserRecords.SEQUENCE, sequence));
+        for (Long id : users.keySet()) {
+            locks.withLock(id, () -> {
+                User user = users.get(id);
+                if (user != null) {
+                    sink.write(out -> UserRecords.writePut(out, user, true));
+                }
+            });
+        }
+    }
+
+    /**
+     * Добавляет взаимную дружбу. Вызывается под блокировками обоих пользователей.
+     *
+     * @return true, если изменилась хотя бы одна сторона связи.
+     */
+    private boolean link(User user, User friend) {
+        boolean changed = false;
+        if (user.getFriends().add(friend.getId())) {
+            friendLinkCount.increment();
+            changed = true;
+        }
+        if (friend.getFriends().add(user.getId())) {
+            friendLinkCount.increment();
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Удаляет взаимную дружбу. Вызывается под блокировками обоих пользователей.
+     *
+     * @return true, если изменилась хотя бы одна сторона связи.
+     */
+    private boolean unlink(User user, User friend) {
+        boolean changed = false;
+        if (user.getFriends().remove(friend.getId())) {
+            friendLinkCount.decrement();
+            changed = true;
+        }
+        if (friend.getFriends().remove(user.getId())) {
+            friendLinkCount.decrement();
+            changed = true;
+        }
+        return changed;
+    }
+
+    private void unindex(User user) {
+        emailIndex.remove(normalizeEmail(user.getEmail()), user.getId());
+        loginIndex.remove(user.getLogin(), user.getId());
+    }
+
+    private User getExisting(Long id) {
+        User user = users.get(id);
+        if (user == null) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+        return user;
+    }
+
+    /**
+     * Закрепляет значение уникального ключа за пользователем.
+     *
+     * @param index индекс уникальных значений
+     * @param key   значение ключа
+     * @param id    идентификатор пользователя
+     * @return false, если значение уже занято другим пользователем.
+     */
+    private boolean reserve(Map<String, Long> index, String key, Long id) {
+        Long owner = index.putIfAbsent(key, id);
+        return owner == null || owner.equals(id);
+    }
+
+    private String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Генерирует новый уникальный идентификатор.
      *
      * @return id.
      */
     private long getNextId() {
-        long currentMaxId = users.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
-    }
-}
\ No newline at end of file
+        return idSequence.incrementAndGet();
+    }
+}
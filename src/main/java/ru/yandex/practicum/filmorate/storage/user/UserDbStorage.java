@@ -0,0 +1,367 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.user.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.LongBatch;
+import ru.yandex.practicum.filmorate.storage.PagedStream;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище пользователей в базе данных.
+ * Уникальность email и логина обеспечивается ограничениями таблицы users.
+ */
+@Component
+@Profile("db")
+@Timed("filmorate.storage")
+@Slf4j
+@RequiredArgsConstructor
+public class UserDbStorage implements UserStorage {
+
+    /**
+     * Размер страницы при потоковом обходе всех пользователей.
+     */
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    /**
+     * Максимальный размер списка IN; для больших списков друзья загружаются из всей таблицы.
+     */
+    private static final int MAX_IN_LIST = 1000;
+
+    private static final String SELECT_USERS = """
+            SELECT id, email, login, name, birthday
+            FROM users
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Override
+    @Transactional
+    public User create(User user) {
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement("""
+                        INSERT INTO users (email, login, name, birthday)
+                        VALUES (?, ?, ?, ?)
+                        """, new String[]{"id"});
+                statement.setString(1, user.getEmail());
+                statement.setString(2, user.getLogin());
+                statement.setString(3, user.getName());
+                statement.setObject(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+                return statement;
+            }, keyHolder);
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e, "Эта электронная почта уже используется");
+        }
+        long id = keyHolder.getKeyAs(Long.class);
+
+        if (user.getFriends() != null && !user.getFriends().isEmpty()) {
+            long[] friendIds = user.getFriends().toLongArray();
+            insertFriendships("""
+                    INSERT INTO friends (user_id, friend_id, status)
+                    SELECT ?, id, 'CONFIRMED' FROM users WHERE id = ?
+                    """, id, friendIds);
+            insertFriendships("""
+                    INSERT INTO friends (friend_id, user_id, status)
+                    SELECT ?, id, 'CONFIRMED' FROM users WHERE id = ?
+                    """, id, friendIds);
+        }
+
+        User created = getExisting(id);
+        log.info("Пользователь успешно создан: id = {}, друзей = {}", id, created.getFriends().size());
+        return created;
+    }
+
+    @Override
+    public User update(User user) {
+        log.debug("Обновление данных пользователя id={}", user.getId());
+
+        int updated;
+        try {
+            updated = jdbcTemplate.update("""
+                            UPDATE users
+                            SET email = COALESCE(?, email),
+                                login = COALESCE(?, login),
+                                name = COALESCE(?, name),
+                                birthday = COALESCE(?, birthday)
+                            WHERE id = ?
+                            """,
+                    user.getEmail(),
+                    user.getLogin(),
+                    user.getName(),
+                    user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()),
+                    user.getId());
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e, "Этот email уже используется");
+        }
+        if (updated == 0) {
+            throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден");
+        }
+
+        log.info("Обновление пользователя id={} прошло успешно", user.getId());
+        return getExisting(user.getId());
+    }
+
+    @Override
+    public void delete(Long id) {
+        if (jdbcTemplate.update("DELETE FROM users WHERE id = ?", id) == 0) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+    }
+
+    @Override
+    public Optional<User> getById(Long id) {
+        return findOne(SELECT_USERS + "WHERE id = ?", id);
+    }
+
+    @Override
+    public Collection<User> getAll() {
+        return fillFriends(jdbcTemplate.query(SELECT_USERS + "ORDER BY id", this::mapUser));
+    }
+
+    @Override
+    public Page<User> getPage(long after, int limit) {
+        List<User> users = jdbcTemplate.query(SELECT_USERS + "WHERE id > ? ORDER BY id LIMIT ?",
+                this::mapUser, after, limit + 1);
+
+        Long nextCursor = null;
+        if (users.size() > limit) {
+            users = users.subList(0, limit);
+            nextCursor = users.get(limit - 1).getId();
+        }
+        return new Page<>(fillFriends(new ArrayList<>(users)), nextCursor);
+    }
+
+    @Override
+    public Stream<User> stream() {
+        return PagedStream.of(after -> getPage(after, STREAM_PAGE_SIZE));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return findOne(SELECT_USERS + "WHERE email_key = ?", email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public Optional<User> findByLogin(String login) {
+        return findOne(SELECT_USERS + "WHERE login = ?", login);
+    }
+
+    @Override
+    @Transactional
+    public boolean addFriend(Long id, Long friendId) {
+        checkExists(id);
+        checkExists(friendId);
+        String sql = """
+                INSERT INTO friends (user_id, friend_id, status) SELECT ?, ?, ?
+                WHERE NOT EXISTS (SELECT 1 FROM friends WHERE user_id = ? AND friend_id = ?)
+                """;
+        String status = FriendshipStatus.CONFIRMED.name();
+        int added = jdbcTemplate.update(sql, id, friendId, status, id, friendId);
+        added += jdbcTemplate.update(sql, friendId, id, status, friendId, id);
+        return added > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteFriend(Long id, Long friendId) {
+        checkExists(id);
+        checkExists(friendId);
+        return jdbcTemplate.update("""
+                DELETE FROM friends
+                WHERE (user_id = ? AND friend_id = ?) OR (user_id = ? AND friend_id = ?)
+                """, id, friendId, friendId, id) > 0;
+    }
+
+    @Override
+    public long size() {
+        return count("SELECT COUNT(*) FROM users");
+    }
+
+    @Override
+    public long friendLinkCount() {
+        return count("SELECT COUNT(*) FROM friends WHERE status = 'CONFIRMED'");
+    }
+
+    @Override
+    public List<User> getFriends(Long id) {
+        checkExists(id);
+        return fillFriends(jdbcTemplate.query("""
+                        SELECT u.id, u.email, u.login, u.name, u.birthday
+                        FROM users AS u
+                        JOIN friends AS f ON f.friend_id = u.id
+                        WHERE f.user_id = ? AND f.status = 'CONFIRMED'
+                        ORDER BY u.id
+                        """, this::mapUser, id));
+    }
+
+    @Override
+    public LongSet getFriendIds(Long id) {
+        LongSet friendIds = new LongHashSet();
+        jdbcTemplate.query("SELECT friend_id FROM friends WHERE user_id = ? AND status = 'CONFIRMED'",
+                rs -> {
+                    friendIds.add(rs.getLong("friend_id"));
+                }, id);
+        return friendIds;
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long id, Long otherId) {
+        checkExists(id);
+        checkExists(otherId);
+        return fillFriends(jdbcTemplate.query("""
+                        SELECT u.id, u.email, u.login, u.name, u.birthday
+                        FROM users AS u
+                        WHERE u.id IN (SELECT friend_id
+                                       FROM friends
+                                       WHERE user_id IN (?, ?) AND status = 'CONFIRMED'
+                                       GROUP BY friend_id
+                                       HAVING COUNT(DISTINCT user_id) = ?)
+                        ORDER BY u.id
+                        """, this::mapUser, id, otherId, id.equals(otherId) ? 1 : 2));
+    }
+
+    @Override
+    public LongSet findExistingIds(long[] ids) {
+        LongSet existing = new LongHashSet();
+        for (int from = 0; from < ids.length; from += MAX_IN_LIST) {
+            long[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + MAX_IN_LIST));
+            namedJdbcTemplate.query("SELECT id FROM users WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", Arrays.stream(chunk).boxed().toList()),
+                    rs -> {
+                        existing.add(rs.getLong("id"));
+                    });
+        }
+        return existing;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] addFriends(long[] ids, long[] friendIds) {
+        String sql = """
+                INSERT INTO friends (user_id, friend_id, status)
+                SELECT u.id, f.id, 'CONFIRMED' FROM users AS u, users AS f WHERE u.id = ? AND f.id = ?
+                AND NOT EXISTS (SELECT 1 FROM friends AS r WHERE r.user_id = u.id AND r.friend_id = f.id)
+                """;
+        int[] counts = jdbcTemplate.batchUpdate(sql, LongBatch.pairs(ids, friendIds));
+        int[] reverse = jdbcTemplate.batchUpdate(sql, LongBatch.pairs(friendIds, ids));
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += reverse[i];
+        }
+        return LongBatch.applied(counts);
+    }
+
+    private Optional<User> findOne(String sql, Object key) {
+        List<User> users = jdbcTemplate.query(sql, this::mapUser, key);
+        return users.stream().findFirst().map(user -> fillFriends(List.of(user)).get(0));
+    }
+
+    private long count(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private User getExisting(Long id) {
+        return getById(id)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + id + " не найден"));
+    }
+
+    private void checkExists(Long id) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, id);
+        if (count == null || count == 0) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+    }
+
+    private void insertFriendships(String sql, long userId, long[] friendIds) {
+        jdbcTemplate.batchUpdate(sql, new LongBatch(friendIds, (statement, friendId) -> {
+            statement.setLong(1, userId);
+            statement.setLong(2, friendId);
+        }));
+    }
+
+    /**
+     * Определяет нарушенное ограничение уникальности по тексту ошибки базы данных.
+     *
+     * @param e            ошибка нарушения уникальности
+     * @param emailMessage сообщение для занятого email
+     * @return исключение с сообщением для клиента.
+     */
+    private DuplicatedDataException duplicate(DuplicateKeyException e, String emailMessage) {
+        String reason = String.valueOf(e.getMessage()).toUpperCase(Locale.ROOT);
+        if (reason.contains("USERS_EMAIL_KEY_UQ")) {
+            return new DuplicatedDataException(emailMessage);
+        }
+        return new DuplicatedDataException("Этот логин уже используется");
+    }
+
+    /**
+     * Загружает подтверждённых друзей для всех пользователей списка одним запросом.
+     */
+    private List<User> fillFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Long, User> byId = new HashMap<>();
+        for (User user : users) {
+            user.setFriends(new LongHashSet());
+            byId.put(user.getId(), user);
+        }
+
+        String filter = byId.size() > MAX_IN_LIST ? "" : " AND user_id IN (:ids)";
+        namedJdbcTemplate.query("SELECT user_id, friend_id FROM friends WHERE status = 'CONFIRMED'" + filter,
+                new MapSqlParameterSource("ids", byId.keySet()), rs -> {
+                    User user = byId.get(rs.getLong("user_id"));
+                    if (user != null) {
+                        user.getFriends().add(rs.getLong("friend_id"));
+                    }
+                });
+        return users;
+    }
+
+    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        Date birthday = rs.getDate("birthday");
+        user.setBirthday(birthday == null ? null : birthday.toLocalDate());
+        return user;
+    }
+}
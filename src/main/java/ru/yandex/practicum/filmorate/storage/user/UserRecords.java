@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.wal.Records;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Записи журнала пользователей. Первый байт записи — её тип.
+ */
+final class UserRecords {
+
+    /**
+     * Состояние пользователя; друзья присутствуют только в записях создания и снимка.
+     */
+    static final byte PUT = 1;
+
+    static final byte DELETE = 2;
+
+    static final byte FRIEND_ADD = 3;
+
+    static final byte FRIEND_REMOVE = 4;
+
+    /**
+     * Последний выданный идентификатор.
+     */
+    static final byte SEQUENCE = 5;
+
+    private UserRecords() {
+    }
+
+    static void writePut(DataOutput out, User user, boolean withFriends) throws IOException {
+        out.writeByte(PUT);
+        out.writeLong(user.getId());
+        Records.writeString(out, user.getEmail());
+        Records.writeString(out, user.getLogin());
+        Records.writeString(out, user.getName());
+        Records.writeDate(out, user.getBirthday());
+        out.writeBoolean(withFriends);
+        if (withFriends) {
+            Records.writeLongs(out, user.getFriends());
+        }
+    }
+
+    /**
+     * Читает поля пользователя без друзей; после вызова в записи остаётся признак наличия друзей.
+     */
+    static User readUser(ByteBuffer in) {
+        User user = new User();
+        user.setId(in.getLong());
+        user.setEmail(Records.readString(in));
+        user.setLogin(Records.readString(in));
+        user.setName(Records.readString(in));
+        user.setBirthday(Records.readDate(in));
+        return user;
+    }
+
+    static void writeId(DataOutput out, byte type, long id) throws IOException {
+        out.writeByte(type);
+        out.writeLong(id);
+    }
+
+    static void writePair(DataOutput out, byte type, long id, long friendId) throws IOException {
+        out.writeByte(type);
+        out.writeLong(id);
+        out.writeLong(friendId);
+    }
+}
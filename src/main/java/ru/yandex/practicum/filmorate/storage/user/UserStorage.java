@@ -1,9 +1,13 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.util.LongSet;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserStorage {
 
@@ -16,4 +20,114 @@ public interface UserStorage {
     Optional<User> getById(Long id);
 
     Collection<User> getAll();
+
+    /**
+     * Возвращает страницу пользователей с id больше курсора в порядке возрастания id.
+     *
+     * @param after курсор: id последнего элемента предыдущей страницы
+     * @param limit максимальный размер страницы
+     * @return страница с курсором следующей страницы.
+     */
+    Page<User> getPage(long after, int limit);
+
+    /**
+     * Возвращает поток всех пользователей в порядке возрастания id без копирования коллекции.
+     * Поток слабо согласован: изменения во время обхода могут быть не видны.
+     *
+     * @return поток пользователей.
+     */
+    Stream<User> stream();
+
+    /**
+     * Ищет пользователя по электронной почте без учёта регистра.
+     *
+     * @param email электронная почта
+     * @return пользователь, если найден.
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * Ищет пользователя по логину.
+     *
+     * @param login логин
+     * @return пользователь, если найден.
+     */
+    Optional<User> findByLogin(String login);
+
+    /**
+     * Добавляет взаимную дружбу между пользователями.
+     *
+     * @param id       идентификатор пользователя
+     * @param friendId идентификатор друга
+     * @return true, если дружбы ещё не было.
+     */
+    boolean addFriend(Long id, Long friendId);
+
+    /**
+     * Удаляет взаимную дружбу между пользователями.
+     *
+     * @param id       идентификатор пользователя
+     * @param friendId идентификатор друга
+     * @return true, если дружба была.
+     */
+    boolean deleteFriend(Long id, Long friendId);
+
+    /**
+     * Возвращает друзей пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @return список друзей.
+     */
+    List<User> getFriends(Long id);
+
+    /**
+     * Возвращает идентификаторы друзей пользователя без загрузки самих друзей.
+     * Возвращаемое множество нельзя изменять: хранилище в памяти отдаёт его без копирования.
+     *
+     * @param id идентификатор пользователя
+     * @return идентификаторы друзей; пустое множество, если пользователь не найден.
+     */
+    LongSet getFriendIds(Long id);
+
+    /**
+     * Возвращает общих друзей двух пользователей.
+     *
+     * @param id      идентификатор пользователя
+     * @param otherId идентификатор другого пользователя
+     * @return список общих друзей.
+     */
+    List<User> getCommonFriends(Long id, Long otherId);
+
+    /**
+     * Отбирает идентификаторы существующих пользователей.
+     *
+     * @param ids проверяемые идентификаторы
+     * @return множество найденных идентификаторов.
+     */
+    LongSet findExistingIds(long[] ids);
+
+    /**
+     * Добавляет взаимную дружбу пакетом за один проход по хранилищу.
+     * Пары задаются параллельными массивами одинаковой длины.
+     *
+     * @param ids       идентификаторы пользователей
+     * @param friendIds идентификаторы друзей
+     * @return признаки применения: false, если дружба уже была или один из пользователей
+     * к моменту записи уже не существует.
+     */
+    boolean[] addFriends(long[] ids, long[] friendIds);
+
+    /**
+     * Возвращает количество пользователей.
+     *
+     * @return количество пользователей.
+     */
+    long size();
+
+    /**
+     * Возвращает общее количество записей в списках друзей; взаимная дружба учитывается дважды.
+     *
+     * @return количество записей о дружбе.
+     */
+    long friendLinkCount();
 }
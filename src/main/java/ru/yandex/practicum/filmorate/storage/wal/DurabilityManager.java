@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Открывает журналы хранилищ в памяти и по таймеру сбрасывает их на диск и сохраняет снимки.
+ * Режим включается свойством filmorate.storage.durability.enabled, по умолчанию выключен.
+ */
+@Component
+@Slf4j
+public class DurabilityManager implements DisposableBean {
+
+    private final boolean enabled;
+    private final Path dir;
+    private final FsyncPolicy fsync;
+    private final Duration fsyncInterval;
+    private final Duration snapshotInterval;
+    private final List<WriteAheadLog> logs = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Создаёт выключенный режим: журналы не ведутся.
+     */
+    public DurabilityManager() {
+        this(false, Path.of("."), FsyncPolicy.NEVER, Duration.ZERO, Duration.ZERO);
+    }
+
+    @Autowired
+    public DurabilityManager(@Value("${filmorate.storage.durability.enabled:false}") boolean enabled,
+                             @Value("${filmorate.storage.durability.dir:./data}") Path dir,
+                             @Value("${filmorate.storage.durability.fsync:INTERVAL}") FsyncPolicy fsync,
+                             @Value("${filmorate.storage.durability.fsync-interval:1s}") Duration fsyncInterval,
+                             @Value("${filmorate.storage.durability.snapshot-interval:10m}") Duration snapshotInterval) {
+        this.enabled = enabled;
+        this.dir = dir;
+        this.fsync = fsync;
+        this.fsyncInterval = fsyncInterval;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Восстанавливает состояние хранилища и открывает его журнал.
+     *
+     * @param name        имя журнала
+     * @param replay      применение записей снимка и журнала
+     * @param snapshotter запись полного состояния в снимок
+     * @return журнал хранилища или {@link Journal#NONE}, если режим выключен.
+     */
+    public synchronized Journal open(String name, RecordReader replay, Consumer<RecordSink> snapshotter) {
+        if (!enabled) {
+            return Journal.NONE;
+        }
+
+        long start = System.nanoTime();
+        WriteAheadLog wal;
+        try {
+            wal = WriteAheadLog.open(dir, name, fsync, replay, snapshotter);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить журнал " + name, e);
+        }
+        log.info("Журнал {} восстановлен за {} мс", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logs.add(wal);
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (fsync == FsyncPolicy.INTERVAL) {
+            scheduler.scheduleWithFixedDelay(() -> runSafely(name, wal::flush),
+                    fsyncInterval.toMillis(), fsyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (snapshotInterval.isPositive()) {
+            scheduler.scheduleWithFixedDelay(() -> runSafely(name, () -> {
+                try {
+                    wal.snapshot();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }), snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return wal;
+    }
+
+    /**
+     * Сохраняет снимки всех открытых журналов.
+     */
+    public void snapshot() throws IOException {
+        for (WriteAheadLog wal : logs) {
+            wal.snapshot();
+        }
+    }
+
+    /**
+     * Останавливает таймеры и закрывает журналы с окончательным сбросом на диск.
+     */
+    @Override
+    public synchronized void destroy() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        for (WriteAheadLog wal : logs) {
+            try {
+                wal.close();
+            } catch (IOException e) {
+                log.error("Не удалось закрыть журнал", e);
+            }
+        }
+        logs.clear();
+    }
+
+    private void runSafely(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Ошибка обслуживания журнала {}", name, e);
+        }
+    }
+}
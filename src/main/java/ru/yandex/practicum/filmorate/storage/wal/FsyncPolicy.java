@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+/**
+ * Политика сброса журнала на диск.
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Запись подтверждается после fsync; одновременные записи разделяют один fsync.
+     */
+    ALWAYS,
+
+    /**
+     * Запись подтверждается после передачи в операционную систему, fsync выполняется по таймеру.
+     * При сбое процесса данные не теряются, при сбое системы теряется последний интервал.
+     */
+    INTERVAL,
+
+    /**
+     * Запись подтверждается после передачи в операционную систему, fsync не выполняется.
+     */
+    NEVER
+}
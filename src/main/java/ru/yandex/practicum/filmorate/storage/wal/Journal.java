@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+/**
+ * Журнал изменений хранилища.
+ * Запись добавляется под блокировкой изменённой сущности сразу после изменения в памяти,
+ * поэтому порядок записей одной сущности совпадает с порядком изменений.
+ * Ожидание сброса на диск выполняется после снятия блокировки.
+ */
+public interface Journal {
+
+    /**
+     * Журнал, который ничего не сохраняет.
+     */
+    Journal NONE = new Journal() {
+        @Override
+        public void append(RecordWriter writer) {
+        }
+
+        @Override
+        public void sync() {
+        }
+    };
+
+    /**
+     * Добавляет запись в конец журнала без ожидания записи на диск.
+     *
+     * @param writer кодирование записи.
+     */
+    void append(RecordWriter writer);
+
+    /**
+     * Ожидает сохранения всех записей, добавленных текущим потоком, согласно политике fsync.
+     */
+    void sync();
+}
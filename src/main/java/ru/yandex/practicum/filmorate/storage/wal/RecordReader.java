@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Применение одной записи журнала или снимка при восстановлении.
+ */
+@FunctionalInterface
+public interface RecordReader {
+    void read(ByteBuffer record);
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+/**
+ * Приёмник записей снимка состояния.
+ */
+@FunctionalInterface
+public interface RecordSink {
+    void write(RecordWriter writer);
+}
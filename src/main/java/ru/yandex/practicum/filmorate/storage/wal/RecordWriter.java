@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Кодирование одной записи журнала.
+ */
+@FunctionalInterface
+public interface RecordWriter {
+    void write(DataOutput out) throws IOException;
+}
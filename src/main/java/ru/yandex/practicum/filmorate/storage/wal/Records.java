@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Кодирование полей записей журнала.
+ */
+public final class Records {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private Records() {
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    public static void writeDate(DataOutput out, LocalDate value) throws IOException {
+        out.writeLong(value == null ? NO_DATE : value.toEpochDay());
+    }
+
+    public static LocalDate readDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    public static void writeLongs(DataOutput out, LongSet values) throws IOException {
+        out.writeInt(values.size());
+        values.forEachLong(value -> {
+            try {
+                out.writeLong(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public static void writeLongs(DataOutput out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    /**
+     * Читает список значений, записанный {@link #writeLongs}, в множество.
+     *
+     * @param in     запись
+     * @param target множество, в которое добавляются значения.
+     */
+    public static void readLongs(ByteBuffer in, LongSet target) {
+        int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            target.add(in.getLong());
+        }
+    }
+}
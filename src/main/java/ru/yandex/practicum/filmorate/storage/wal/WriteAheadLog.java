@@ -0,0 +1,498 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений в файлах на диске.
+ * <p>
+ * Журнал состоит из сегментов {@code <name>-<номер>.log}. Запись сегмента: длина (int),
+ * CRC32C содержимого (int), содержимое. Записи копируются в общий буфер, а буфер
+ * записывается в файл одним потоком за всех ожидающих (групповая фиксация).
+ * <p>
+ * Снимок {@code <name>.snapshot} содержит номер первого не вошедшего в него сегмента и
+ * записи полного состояния в том же формате. Перед снимком журнал переключается на новый сегмент,
+ * поэтому все записи предыдущих сегментов уже применены к состоянию в памяти и попадут в снимок.
+ * Записи после переключения могут частично попасть в снимок, поэтому применение записей
+ * должно быть идемпотентным: при восстановлении они применяются повторно поверх снимка.
+ */
+@Slf4j
+public class WriteAheadLog implements Journal, Closeable {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int READ_BUFFER_SIZE = 4 << 20;
+    private static final int MAX_RECORD_SIZE = 1 << 28;
+    private static final int SNAPSHOT_MAGIC = 0x46534E50;
+
+    private static final ThreadLocal<RecordBuffer> RECORD_BUFFERS = ThreadLocal.withInitial(RecordBuffer::new);
+
+    private final Path dir;
+    private final String name;
+    private final Pattern segmentPattern;
+    private final FsyncPolicy policy;
+    private final Consumer<RecordSink> snapshotter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    /**
+     * Позиция последней записи, добавленной текущим потоком.
+     */
+    private final ThreadLocal<long[]> lastAppended = ThreadLocal.withInitial(() -> new long[1]);
+
+    private FileChannel channel;
+    private long segment;
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean flushing;
+    private boolean closed;
+    private long appended;
+    private volatile long written;
+    private volatile long durable;
+
+    private WriteAheadLog(Path dir, String name, FsyncPolicy policy, Consumer<RecordSink> snapshotter) {
+        this.dir = dir;
+        this.name = name;
+        this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)\\.log");
+        this.policy = policy;
+        this.snapshotter = snapshotter;
+    }
+
+    /**
+     * Восстанавливает состояние из снимка и сегментов журнала и открывает новый сегмент для записи.
+     *
+     * @param dir         каталог журнала
+     * @param name        имя журнала
+     * @param policy      политика сброса на диск
+     * @param replay      применение записей к состоянию в памяти
+     * @param snapshotter запись полного состояния в снимок
+     * @return открытый журнал.
+     */
+    public static WriteAheadLog open(Path dir, String name, FsyncPolicy policy,
+                                     RecordReader replay, Consumer<RecordSink> snapshotter) throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(dir, name, policy, snapshotter);
+        wal.recover(replay);
+        return wal;
+    }
+
+    @Override
+    public void append(RecordWriter writer) {
+        RecordBuffer record = encode(writer);
+        int length = record.size();
+        int checksum = record.checksum();
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Журнал " + name + " закрыт");
+            }
+            while (active.remaining() < HEADER_SIZE + length) {
+                if (active.position() == 0) {
+                    active = ByteBuffer.allocate(HEADER_SIZE + length);
+                } else {
+                    flushLocked(false);
+                }
+            }
+            active.putInt(length).putInt(checksum).put(record.array(), 0, length);
+            appended += HEADER_SIZE + length;
+            lastAppended.get()[0] = appended;
+        } finally {
+            lock.unlock();
+            record.release();
+        }
+    }
+
+    @Override
+    public void sync() {
+        long position = lastAppended.get()[0];
+        boolean force = policy == FsyncPolicy.ALWAYS;
+        if (reached(position, force)) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (!reached(position, force)) {
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                } else {
+                    flushLocked(force);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Записывает буфер в файл и выполняет fsync. Вызывается по таймеру при политике INTERVAL.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (!closed) {
+                flushLocked(true);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сохраняет снимок состояния и удаляет сегменты, полностью вошедшие в него.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long firstUncovered = rotate();
+            Path tmp = dir.resolve(name + ".snapshot.tmp");
+            try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, BUFFER_SIZE))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(firstUncovered);
+                snapshotter.accept(writer -> writeFramed(out, writer));
+                out.flush();
+                file.getChannel().force(true);
+            }
+            Files.move(tmp, snapshotFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (long number : segments()) {
+                if (number < firstUncovered) {
+                    Files.deleteIfExists(segmentFile(number));
+                }
+            }
+            log.info("Снимок журнала {} сохранён, сегменты до {} удалены", name, firstUncovered);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            flushAllLocked();
+            closed = true;
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover(RecordReader replay) throws IOException {
+        Files.createDirectories(dir);
+        long firstUncovered = 0;
+        Path snapshot = snapshotFile();
+        if (Files.exists(snapshot)) {
+            firstUncovered = replaySnapshot(snapshot, replay);
+        }
+
+        long last = firstUncovered;
+        for (long number : segments()) {
+            Path file = segmentFile(number);
+            if (number < firstUncovered) {
+                Files.delete(file);
+                continue;
+            }
+            long size = Files.size(file);
+            long valid = replayRecords(file, 0, replay);
+            if (valid < size) {
+                log.warn("Журнал {}: отброшен повреждённый хвост сегмента {} ({} байт)", name, number, size - valid);
+                try (FileChannel truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    truncated.truncate(valid);
+                }
+            }
+            last = Math.max(last, number);
+        }
+
+        segment = last + 1;
+        channel = openSegment(segment);
+    }
+
+    private long replaySnapshot(Path snapshot, RecordReader replay) throws IOException {
+        long firstUncovered;
+        try (FileChannel in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            while (header.hasRemaining()) {
+                if (in.read(header) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < 12 || header.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Повреждён заголовок снимка " + snapshot);
+            }
+            firstUncovered = header.getLong();
+        }
+        long valid = replayRecords(snapshot, 12, replay);
+        if (valid < Files.size(snapshot)) {
+            throw new IOException("Повреждён снимок " + snapshot);
+        }
+        return firstUncovered;
+    }
+
+    /**
+     * Применяет записи файла начиная со смещения.
+     *
+     * @return смещение конца последней целой записи.
+     */
+    private static long replayRecords(Path file, long start, RecordReader replay) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            in.position(start);
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE).limit(0);
+            CRC32C crc = new CRC32C();
+            long position = start;
+            while (true) {
+                buffer = fill(in, buffer, HEADER_SIZE);
+                if (buffer.remaining() < HEADER_SIZE) {
+                    return position;
+                }
+                int length = buffer.getInt(buffer.position());
+                int checksum = buffer.getInt(buffer.position() + 4);
+                if (length < 0 || length > MAX_RECORD_SIZE) {
+                    return position;
+                }
+                buffer = fill(in, buffer, HEADER_SIZE + length);
+                if (buffer.remaining() < HEADER_SIZE + length) {
+                    return position;
+                }
+                ByteBuffer record = buffer.slice(buffer.position() + HEADER_SIZE, length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return position;
+                }
+                replay.read(record);
+                buffer.position(buffer.position() + HEADER_SIZE + length);
+                position += HEADER_SIZE + length;
+            }
+        }
+    }
+
+    /**
+     * Дочитывает файл, пока в буфере не окажется нужное количество байт или файл не закончится.
+     */
+    private static ByteBuffer fill(FileChannel in, ByteBuffer buffer, int required) throws IOException {
+        if (buffer.remaining() >= required) {
+            return buffer;
+        }
+        if (buffer.capacity() < required) {
+            buffer = ByteBuffer.allocate(required).put(buffer);
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < required) {
+            if (in.read(buffer) < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Переключает запись на новый сегмент.
+     *
+     * @return номер нового сегмента.
+     */
+    private long rotate() throws IOException {
+        lock.lock();
+        try {
+            flushAllLocked();
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushAllLocked() {
+        while (flushing || active.position() > 0 || durable < appended) {
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+            } else {
+                flushLocked(true);
+            }
+        }
+    }
+
+    /**
+     * Записывает накопленный буфер в файл. Вызывается под блокировкой; на время записи
+     * блокировка отпускается, и другие потоки продолжают добавлять записи во второй буфер.
+     */
+    private void flushLocked(boolean force) {
+        while (flushing) {
+            flushed.awaitUninterruptibly();
+        }
+        if (active.position() == 0 && (!force || durable == written)) {
+            return;
+        }
+
+        ByteBuffer out = active;
+        active = spare;
+        spare = out;
+        long target = appended;
+        flushing = true;
+        lock.unlock();
+        boolean success = false;
+        try {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            if (force) {
+                channel.force(false);
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи журнала " + name, e);
+        } finally {
+            out.clear();
+            lock.lock();
+            flushing = false;
+            if (success) {
+                written = target;
+                if (force) {
+                    durable = target;
+                }
+            }
+            flushed.signalAll();
+        }
+    }
+
+    private boolean reached(long position, boolean force) {
+        return (force ? durable : written) >= position;
+    }
+
+    private void writeFramed(DataOutputStream out, RecordWriter writer) {
+        RecordBuffer record = encode(writer);
+        try {
+            out.writeInt(record.size());
+            out.writeInt(record.checksum());
+            out.write(record.array(), 0, record.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи снимка " + name, e);
+        } finally {
+            record.release();
+        }
+    }
+
+    private static RecordBuffer encode(RecordWriter writer) {
+        RecordBuffer record = RECORD_BUFFERS.get();
+        record.reset();
+        try {
+            writer.write(record.data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return record;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentFile(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> segmentPattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return dir.resolve(String.format("%s-%012d.log", name, number));
+    }
+
+    private Path snapshotFile() {
+        return dir.resolve(name + ".snapshot");
+    }
+
+    /**
+     * Буфер кодирования записи, переиспользуемый потоком.
+     * В отличие от {@link java.io.ByteArrayOutputStream} не захватывает монитор на каждую запись:
+     * кодирование выполняется под блокировкой сущности и не должно закреплять виртуальный поток.
+     */
+    private static final class RecordBuffer extends OutputStream {
+
+        private final DataOutputStream data = new DataOutputStream(this);
+        private final CRC32C crc = new CRC32C();
+        private byte[] buf = new byte[256];
+        private int count;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(count + length);
+            System.arraycopy(bytes, offset, buf, count, length);
+            count += length;
+        }
+
+        void reset() {
+            count = 0;
+        }
+
+        int size() {
+            return count;
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        int checksum() {
+            crc.reset();
+            crc.update(buf, 0, count);
+            return (int) crc.getValue();
+        }
+
+        /**
+         * Освобождает память после записи большого объёма, чтобы не держать её в потоке.
+         */
+        void release() {
+            if (buf.length > BUFFER_SIZE) {
+                buf = new byte[256];
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(capacity, buf.length << 1));
+            }
+        }
+    }
+}
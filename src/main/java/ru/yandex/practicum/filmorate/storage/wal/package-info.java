@@ -0,0 +1,4 @@
+/**
+ * Пакет содержит журнал изменений и снимки состояния хранилищ в памяти.
+ */
+package ru.yandex.practicum.filmorate.storage.wal;
@@ -0,0 +1,309 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * Компактное множество примитивных long на основе открытой адресации.
+ * Каждый элемент занимает одну ячейку массива long вместо узла HashMap и объекта Long.
+ * <p>
+ * Обход без блокировки не бросает ConcurrentModificationException
+ * и не возвращает элемент дважды, но может не увидеть параллельные изменения.
+ */
+public class LongHashSet extends LongSet {
+
+    private static final long FREE = 0L;
+    private static final long REMOVED = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 4;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Таблица элементов. Элементы не перемещаются внутри таблицы, только при перестроении.
+     */
+    private volatile long[] table;
+
+    /**
+     * Признаки присутствия значений, совпадающих со служебными.
+     */
+    private volatile boolean containsFree;
+    private volatile boolean containsRemoved;
+
+    private volatile int size;
+
+    /**
+     * Количество занятых ячеек таблицы, включая удалённые.
+     */
+    private int used;
+
+    public LongHashSet() {
+    }
+
+    public LongHashSet(Collection<Long> values) {
+        if (!values.isEmpty()) {
+            table = new long[capacityFor(values.size())];
+        }
+        for (Long value : values) {
+            add(value.longValue());
+        }
+    }
+
+    @Override
+    public boolean add(long value) {
+        if (value == FREE || value == REMOVED) {
+            return addSpecial(value);
+        }
+
+        long[] current = table;
+        if (current == null || (used + 1) > current.length * LOAD_FACTOR) {
+            current = rehash(size + 1);
+        }
+
+        int mask = current.length - 1;
+        int slot = mix(value) & mask;
+        int firstRemoved = -1;
+        long stored;
+        while ((stored = current[slot]) != FREE) {
+            if (stored == value) {
+                return false;
+            }
+            if (stored == REMOVED && firstRemoved < 0) {
+                firstRemoved = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (firstRemoved >= 0) {
+            current[firstRemoved] = value;
+        } else {
+            current[slot] = value;
+            used++;
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(long value) {
+        if (value == FREE || value == REMOVED) {
+            return removeSpecial(value);
+        }
+
+        long[] current = table;
+        int slot = find(current, value);
+        if (slot < 0) {
+            return false;
+        }
+        current[slot] = REMOVED;
+        size--;
+        return true;
+    }
+
+    @Override
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        if (value == REMOVED) {
+            return containsRemoved;
+        }
+        return find(table, value) >= 0;
+    }
+
+    @Override
+    public void forEachLong(LongConsumer action) {
+        if (containsFree) {
+            action.accept(FREE);
+        }
+        if (containsRemoved) {
+            action.accept(REMOVED);
+        }
+        long[] current = table;
+        if (current == null) {
+            return;
+        }
+        for (long value : current) {
+            if (value != FREE && value != REMOVED) {
+                action.accept(value);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        table = null;
+        containsFree = false;
+        containsRemoved = false;
+        size = 0;
+        used = 0;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new SnapshotIterator();
+    }
+
+    private boolean addSpecial(long value) {
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+        } else {
+            if (containsRemoved) {
+                return false;
+            }
+            containsRemoved = true;
+        }
+        size++;
+        return true;
+    }
+
+    private boolean removeSpecial(long value) {
+        if (value == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+        } else {
+            if (!containsRemoved) {
+                return false;
+            }
+            containsRemoved = false;
+        }
+        size--;
+        return true;
+    }
+
+    private static int find(long[] current, long value) {
+        if (current == null) {
+            return -1;
+        }
+        int mask = current.length - 1;
+        int slot = mix(value) & mask;
+        long stored;
+        while ((stored = current[slot]) != FREE) {
+            if (stored == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Перестраивает таблицу под ожидаемое количество элементов, отбрасывая удалённые ячейки.
+     * Новая таблица заполняется полностью до публикации, поэтому параллельный обход
+     * продолжает работать со старой таблицей.
+     */
+    private long[] rehash(int expected) {
+        long[] old = table;
+        long[] fresh = new long[capacityFor(expected)];
+        int mask = fresh.length - 1;
+        int count = 0;
+        if (old != null) {
+            for (long value : old) {
+                if (value != FREE && value != REMOVED) {
+                    int slot = mix(value) & mask;
+                    while (fresh[slot] != FREE) {
+                        slot = (slot + 1) & mask;
+                    }
+                    fresh[slot] = value;
+                    count++;
+                }
+            }
+        }
+        used = count;
+        table = fresh;
+        return fresh;
+    }
+
+    private static int capacityFor(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expected) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Итератор по таблице, актуальной на момент его создания.
+     */
+    private class SnapshotIterator implements Iterator<Long> {
+
+        private final long[] snapshot = table;
+        private int specialStage;
+        private int slot = -1;
+        private long next;
+        private boolean hasNext;
+        private long last;
+        private boolean canRemove;
+
+        SnapshotIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public Long next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            canRemove = true;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            LongHashSet.this.remove(last);
+            canRemove = false;
+        }
+
+        private void advance() {
+            while (specialStage < 2) {
+                int stage = specialStage++;
+                if (stage == 0 && containsFree) {
+                    next = FREE;
+                    hasNext = true;
+                    return;
+                }
+                if (stage == 1 && containsRemoved) {
+                    next = REMOVED;
+                    hasNext = true;
+                    return;
+                }
+            }
+            if (snapshot != null) {
+                while (++slot < snapshot.length) {
+                    long value = snapshot[slot];
+                    if (value != FREE && value != REMOVED) {
+                        next = value;
+                        hasNext = true;
+                        return;
+                    }
+                }
+            }
+            hasNext = false;
+        }
+    }
+}
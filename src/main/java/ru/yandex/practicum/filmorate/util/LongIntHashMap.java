@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.util;
+
+/**
+ * Счётчики по ключам long на основе открытой адресации, без упаковки ключей и значений.
+ * Удаление не поддерживается: таблица предназначена для подсчёта в пределах одного вычисления.
+ * <p>
+ * Не потокобезопасна.
+ */
+public class LongIntHashMap {
+
+    private static final long FREE = 0L;
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Значение ключа, совпадающего со служебным.
+     */
+    private int freeValue;
+    private boolean containsFree;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expected) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Прибавляет число к значению ключа; отсутствующий ключ считается равным нулю.
+     *
+     * @param key   ключ
+     * @param delta прибавляемое число
+     * @return новое значение.
+     */
+    public int addTo(long key, int delta) {
+        if (key == FREE) {
+            containsFree = true;
+            return freeValue += delta;
+        }
+        int slot = slot(keys, key);
+        if (keys[slot] == FREE) {
+            if ((size + 1) > keys.length * LOAD_FACTOR) {
+                rehash(keys.length << 1);
+                slot = slot(keys, key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        return values[slot] += delta;
+    }
+
+    /**
+     * Возвращает значение ключа.
+     *
+     * @param key ключ
+     * @return значение или 0, если ключа нет.
+     */
+    public int get(long key) {
+        if (key == FREE) {
+            return freeValue;
+        }
+        int slot = slot(keys, key);
+        return keys[slot] == FREE ? 0 : values[slot];
+    }
+
+    /**
+     * Прибавляет к себе все значения другой таблицы.
+     *
+     * @param other таблица счётчиков.
+     */
+    public void addAll(LongIntHashMap other) {
+        other.forEach(this::addTo);
+    }
+
+    /**
+     * Обходит пары ключ-значение.
+     *
+     * @param action действие над каждой парой.
+     */
+    public void forEach(Entry action) {
+        if (containsFree) {
+            action.accept(FREE, freeValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size + (containsFree ? 1 : 0);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Находит ячейку ключа или первую свободную ячейку его цепочки.
+     */
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        long stored;
+        while ((stored = keys[slot]) != FREE && stored != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Действие над парой ключ-значение без упаковки.
+     */
+    @FunctionalInterface
+    public interface Entry {
+
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Множество примитивных long, совместимое с Set&lt;Long&gt;.
+ * Используется для хранения связей между сущностями: лайков фильмов и друзей пользователей.
+ * <p>
+ * Изменения должны выполняться под внешней блокировкой, чтение без блокировки слабо согласовано.
+ */
+@JsonDeserialize(as = LongHashSet.class)
+public abstract class LongSet extends AbstractSet<Long> {
+
+    /**
+     * Добавляет значение.
+     *
+     * @param value значение
+     * @return true, если значения не было во множестве.
+     */
+    public abstract boolean add(long value);
+
+    /**
+     * Удаляет значение.
+     *
+     * @param value значение
+     * @return true, если значение было во множестве.
+     */
+    public abstract boolean remove(long value);
+
+    /**
+     * Проверяет наличие значения.
+     *
+     * @param value значение
+     * @return true, если значение есть во множестве.
+     */
+    public abstract boolean contains(long value);
+
+    /**
+     * Обходит значения без упаковки в Long.
+     *
+     * @param action действие над каждым значением.
+     */
+    public abstract void forEachLong(LongConsumer action);
+
+    /**
+     * Возвращает значения в виде массива.
+     *
+     * @return новый массив значений.
+     */
+    public long[] toLongArray() {
+        LongArrayBuilder values = new LongArrayBuilder(size());
+        forEachLong(values::add);
+        return values.build();
+    }
+
+    /**
+     * Возвращает пересечение двух множеств.
+     * Для двух битовых множеств пересечение выполняется по контейнерам,
+     * в остальных случаях обходится меньшее множество с проверкой по большему.
+     *
+     * @param first  первое множество
+     * @param second второе множество
+     * @return значения, присутствующие в обоих множествах.
+     */
+    public static long[] intersect(LongSet first, LongSet second) {
+        if (first instanceof RoaringLongSet firstBitmap && second instanceof RoaringLongSet secondBitmap) {
+            return firstBitmap.and(secondBitmap);
+        }
+
+        LongSet smaller = first.size() <= second.size() ? first : second;
+        LongSet larger = smaller == first ? second : first;
+        LongArrayBuilder common = new LongArrayBuilder(Math.min(smaller.size(), 16));
+        smaller.forEachLong(value -> {
+            if (larger.contains(value)) {
+                common.add(value);
+            }
+        });
+        return common.build();
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Long longValue && remove(longValue.longValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Long longValue && contains(longValue.longValue());
+    }
+
+    /**
+     * Растущий массив long для сбора результатов.
+     */
+    static final class LongArrayBuilder {
+
+        private long[] values;
+        private int size;
+
+        LongArrayBuilder(int capacity) {
+            values = new long[Math.max(capacity, 4)];
+        }
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] build() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Collection;
+
+/**
+ * Представление множеств связей между сущностями.
+ * Выбирается свойством filmorate.storage.adjacency.
+ */
+public enum LongSetType {
+
+    /**
+     * Хеш-таблица с открытой адресацией, быстрые точечные операции.
+     */
+    HASH,
+
+    /**
+     * Сжатая битовая карта, компактное хранение плотных id и быстрые пересечения.
+     */
+    BITMAP;
+
+    /**
+     * Создаёт множество выбранного типа с копией значений.
+     *
+     * @param values исходные значения, может быть null
+     * @return новое множество.
+     */
+    public LongSet copyOf(Collection<Long> values) {
+        LongSet set = this == BITMAP ? new RoaringLongSet() : new LongHashSet();
+        if (values != null) {
+            for (Long value : values) {
+                set.add(value.longValue());
+            }
+        }
+        return set;
+    }
+}
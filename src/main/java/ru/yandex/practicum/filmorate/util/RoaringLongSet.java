@@ -0,0 +1,675 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * Сжатое битовое множество long по схеме Roaring.
+ * Значения делятся на старшие 48 бит (ключ контейнера) и младшие 16 бит (значение в контейнере).
+ * Контейнер хранит свои значения в наиболее компактном из трёх видов:
+ * отсортированный массив, битовая карта на 65536 бит или список непрерывных интервалов.
+ * Пересечение двух множеств выполняется по контейнерам с совпадающими ключами.
+ * <p>
+ * Массивы и интервалы при изменении копируются, битовая карта изменяется на месте,
+ * поэтому обход без блокировки не видит элемент дважды, но может не увидеть параллельные изменения.
+ */
+public class RoaringLongSet extends LongSet {
+
+    /**
+     * Максимальное количество значений в контейнере-массиве.
+     */
+    private static final int ARRAY_MAX = 4096;
+
+    /**
+     * Размер битовой карты в словах long.
+     */
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * Размер битовой карты в символах char, используется для выбора представления.
+     */
+    private static final int BITMAP_CHARS = BITMAP_WORDS * 4;
+
+    private volatile Directory directory = new Directory(new long[0], new Container[0]);
+
+    private volatile int size;
+
+    public RoaringLongSet() {
+    }
+
+    public RoaringLongSet(Collection<Long> values) {
+        for (Long value : values) {
+            add(value.longValue());
+        }
+    }
+
+    @Override
+    public boolean add(long value) {
+        long key = value >>> 16;
+        char low = (char) value;
+        Directory current = directory;
+        int index = Arrays.binarySearch(current.keys(), key);
+
+        if (index >= 0) {
+            Container container = current.containers()[index];
+            if (container.contains(low)) {
+                return false;
+            }
+            current.containers()[index] = container.add(low);
+        } else {
+            int position = -index - 1;
+            directory = current.insert(position, key, new ArrayContainer(new char[]{low}));
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(long value) {
+        long key = value >>> 16;
+        char low = (char) value;
+        Directory current = directory;
+        int index = Arrays.binarySearch(current.keys(), key);
+        if (index < 0) {
+            return false;
+        }
+
+        Container container = current.containers()[index];
+        if (!container.contains(low)) {
+            return false;
+        }
+
+        Container updated = container.remove(low);
+        if (updated == null) {
+            directory = current.delete(index);
+        } else {
+            current.containers()[index] = updated;
+        }
+        size--;
+        return true;
+    }
+
+    @Override
+    public boolean contains(long value) {
+        Directory current = directory;
+        int index = Arrays.binarySearch(current.keys(), value >>> 16);
+        return index >= 0 && current.containers()[index].contains((char) value);
+    }
+
+    @Override
+    public void forEachLong(LongConsumer action) {
+        Directory current = directory;
+        for (int i = 0; i < current.keys().length; i++) {
+            current.containers()[i].forEach(current.keys()[i] << 16, action);
+        }
+    }
+
+    /**
+     * Возвращает пересечение с другим множеством, вычисленное по контейнерам.
+     *
+     * @param other другое множество
+     * @return общие значения в порядке возрастания.
+     */
+    public long[] and(RoaringLongSet other) {
+        Directory left = directory;
+        Directory right = other.directory;
+        LongArrayBuilder common = new LongArrayBuilder(16);
+
+        int i = 0;
+        int j = 0;
+        while (i < left.keys().length && j < right.keys().length) {
+            long leftKey = left.keys()[i];
+            long rightKey = right.keys()[j];
+            if (leftKey < rightKey) {
+                i++;
+            } else if (leftKey > rightKey) {
+                j++;
+            } else {
+                and(left.containers()[i], right.containers()[j], leftKey << 16, common);
+                i++;
+                j++;
+            }
+        }
+        return common.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        directory = new Directory(new long[0], new Container[0]);
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new ContainerIterator();
+    }
+
+    private static void and(Container left, Container right, long base, LongArrayBuilder out) {
+        if (left instanceof ArrayContainer array) {
+            array.filter(right, base, out);
+        } else if (right instanceof ArrayContainer array) {
+            array.filter(left, base, out);
+        } else if (left instanceof BitmapContainer leftBitmap && right instanceof BitmapContainer rightBitmap) {
+            leftBitmap.and(rightBitmap, base, out);
+        } else if (left instanceof RunContainer leftRuns && right instanceof RunContainer rightRuns) {
+            leftRuns.and(rightRuns, base, out);
+        } else if (left instanceof RunContainer runs) {
+            runs.and((BitmapContainer) right, base, out);
+        } else {
+            ((RunContainer) right).and((BitmapContainer) left, base, out);
+        }
+    }
+
+    /**
+     * Выбирает самое компактное представление для отсортированных значений контейнера.
+     */
+    private static Container optimal(char[] values) {
+        int runs = countRuns(values);
+        int arrayChars = values.length <= ARRAY_MAX ? values.length : Integer.MAX_VALUE;
+        int runChars = runs * 2;
+
+        if (runChars < arrayChars && runChars < BITMAP_CHARS) {
+            return RunContainer.of(values, runs);
+        }
+        if (arrayChars <= BITMAP_CHARS) {
+            return new ArrayContainer(values);
+        }
+        return BitmapContainer.of(values);
+    }
+
+    private static int countRuns(char[] values) {
+        int runs = values.length == 0 ? 0 : 1;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != values[i - 1] + 1) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Ключи и контейнеры, упорядоченные по ключу. Новый ключ публикуется заменой всего каталога.
+     */
+    private record Directory(long[] keys, Container[] containers) {
+
+        Directory insert(int position, long key, Container container) {
+            long[] newKeys = new long[keys.length + 1];
+            Container[] newContainers = new Container[containers.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(containers, 0, newContainers, 0, position);
+            newKeys[position] = key;
+            newContainers[position] = container;
+            System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+            System.arraycopy(containers, position, newContainers, position + 1, containers.length - position);
+            return new Directory(newKeys, newContainers);
+        }
+
+        Directory delete(int position) {
+            long[] newKeys = new long[keys.length - 1];
+            Container[] newContainers = new Container[containers.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(containers, 0, newContainers, 0, position);
+            System.arraycopy(keys, position + 1, newKeys, position, newKeys.length - position);
+            System.arraycopy(containers, position + 1, newContainers, position, newContainers.length - position);
+            return new Directory(newKeys, newContainers);
+        }
+    }
+
+    /**
+     * Контейнер младших 16 бит значений с общим ключом.
+     */
+    private abstract static class Container {
+
+        abstract boolean contains(char low);
+
+        /**
+         * Добавляет отсутствующее значение.
+         *
+         * @return контейнер с добавленным значением, возможно в другом представлении.
+         */
+        abstract Container add(char low);
+
+        /**
+         * Удаляет присутствующее значение.
+         *
+         * @return контейнер без значения или null, если контейнер опустел.
+         */
+        abstract Container remove(char low);
+
+        abstract int cardinality();
+
+        abstract void forEach(long base, LongConsumer action);
+
+        abstract char[] toCharArray();
+    }
+
+    /**
+     * Отсортированный массив значений, не более ARRAY_MAX элементов.
+     */
+    private static final class ArrayContainer extends Container {
+
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            if (values.length == ARRAY_MAX) {
+                return BitmapContainer.of(values).add(low);
+            }
+            int position = -Arrays.binarySearch(values, low) - 1;
+            char[] updated = new char[values.length + 1];
+            System.arraycopy(values, 0, updated, 0, position);
+            updated[position] = low;
+            System.arraycopy(values, position, updated, position + 1, values.length - position);
+            return optimal(updated);
+        }
+
+        @Override
+        Container remove(char low) {
+            if (values.length == 1) {
+                return null;
+            }
+            int position = Arrays.binarySearch(values, low);
+            char[] updated = new char[values.length - 1];
+            System.arraycopy(values, 0, updated, 0, position);
+            System.arraycopy(values, position + 1, updated, position, updated.length - position);
+            return new ArrayContainer(updated);
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (char value : values) {
+                action.accept(base | value);
+            }
+        }
+
+        @Override
+        char[] toCharArray() {
+            return values;
+        }
+
+        void filter(Container other, long base, LongArrayBuilder out) {
+            if (other instanceof ArrayContainer array) {
+                char[] right = array.values;
+                int i = 0;
+                int j = 0;
+                while (i < values.length && j < right.length) {
+                    if (values[i] < right[j]) {
+                        i++;
+                    } else if (values[i] > right[j]) {
+                        j++;
+                    } else {
+                        out.add(base | values[i]);
+                        i++;
+                        j++;
+                    }
+                }
+                return;
+            }
+            for (char value : values) {
+                if (other.contains(value)) {
+                    out.add(base | value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Битовая карта на все 65536 значений контейнера. Изменяется на месте.
+     */
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality;
+
+        static BitmapContainer of(char[] values) {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (char value : values) {
+                bitmap.words[value >>> 6] |= 1L << value;
+            }
+            bitmap.cardinality = values.length;
+            return bitmap;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            words[low >>> 6] |= 1L << low;
+            cardinality++;
+            if (cardinality % ARRAY_MAX == 0) {
+                int runs = countRuns();
+                if (runs * 2 < BITMAP_CHARS) {
+                    return RunContainer.of(toCharArray(), runs);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            words[low >>> 6] &= ~(1L << low);
+            cardinality--;
+            if (cardinality <= ARRAY_MAX) {
+                return optimal(toCharArray());
+            }
+            return this;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(base | ((long) i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        char[] toCharArray() {
+            char[] values = new char[cardinality];
+            int position = 0;
+            for (int i = 0; i < BITMAP_WORDS && position < values.length; i++) {
+                long word = words[i];
+                while (word != 0 && position < values.length) {
+                    values[position++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return position == values.length ? values : Arrays.copyOf(values, position);
+        }
+
+        void and(BitmapContainer other, long base, LongArrayBuilder out) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i] & other.words[i];
+                while (word != 0) {
+                    out.add(base | ((long) i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private int countRuns() {
+            int runs = 0;
+            long previous = 0;
+            for (long word : words) {
+                runs += Long.bitCount(word & ~((word << 1) | (previous >>> 63)));
+                previous = word;
+            }
+            return runs;
+        }
+    }
+
+    /**
+     * Непрерывные интервалы значений: пары (начало, длина минус один).
+     */
+    private static final class RunContainer extends Container {
+
+        private final char[] runs;
+        private final int cardinality;
+
+        private RunContainer(char[] runs, int cardinality) {
+            this.runs = runs;
+            this.cardinality = cardinality;
+        }
+
+        static RunContainer of(char[] values, int runCount) {
+            char[] runs = new char[runCount * 2];
+            int run = -1;
+            for (int i = 0; i < values.length; i++) {
+                if (i == 0 || values[i] != values[i - 1] + 1) {
+                    run++;
+                    runs[run * 2] = values[i];
+                } else {
+                    runs[run * 2 + 1]++;
+                }
+            }
+            return new RunContainer(runs, values.length);
+        }
+
+        @Override
+        boolean contains(char low) {
+            int run = runAtOrBefore(low);
+            return run >= 0 && low <= end(run);
+        }
+
+        @Override
+        Container add(char low) {
+            int run = runAtOrBefore(low);
+            int count = runs.length / 2;
+            boolean extendsPrevious = run >= 0 && end(run) + 1 == low;
+            boolean extendsNext = run + 1 < count && start(run + 1) == low + 1;
+
+            char[] updated;
+            if (extendsPrevious && extendsNext) {
+                updated = new char[runs.length - 2];
+                System.arraycopy(runs, 0, updated, 0, (run + 1) * 2);
+                System.arraycopy(runs, (run + 2) * 2, updated, (run + 1) * 2, runs.length - (run + 2) * 2);
+                updated[run * 2 + 1] = (char) (end(run + 1) - start(run));
+            } else if (extendsPrevious) {
+                updated = runs.clone();
+                updated[run * 2 + 1]++;
+            } else if (extendsNext) {
+                updated = runs.clone();
+                updated[(run + 1) * 2] = low;
+                updated[(run + 1) * 2 + 1]++;
+            } else {
+                int position = (run + 1) * 2;
+                updated = new char[runs.length + 2];
+                System.arraycopy(runs, 0, updated, 0, position);
+                updated[position] = low;
+                System.arraycopy(runs, position, updated, position + 2, runs.length - position);
+            }
+            return choose(updated, cardinality + 1);
+        }
+
+        @Override
+        Container remove(char low) {
+            if (cardinality == 1) {
+                return null;
+            }
+            int run = runAtOrBefore(low);
+            int start = start(run);
+            int end = end(run);
+
+            char[] updated;
+            if (start == end) {
+                updated = new char[runs.length - 2];
+                System.arraycopy(runs, 0, updated, 0, run * 2);
+                System.arraycopy(runs, (run + 1) * 2, updated, run * 2, runs.length - (run + 1) * 2);
+            } else if (low == start) {
+                updated = runs.clone();
+                updated[run * 2] = (char) (start + 1);
+                updated[run * 2 + 1]--;
+            } else if (low == end) {
+                updated = runs.clone();
+                updated[run * 2 + 1]--;
+            } else {
+                updated = new char[runs.length + 2];
+                System.arraycopy(runs, 0, updated, 0, (run + 1) * 2);
+                System.arraycopy(runs, (run + 1) * 2, updated, (run + 2) * 2, runs.length - (run + 1) * 2);
+                updated[run * 2 + 1] = (char) (low - 1 - start);
+                updated[(run + 1) * 2] = (char) (low + 1);
+                updated[(run + 1) * 2 + 1] = (char) (end - low - 1);
+            }
+            return choose(updated, cardinality - 1);
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (int run = 0; run < runs.length / 2; run++) {
+                for (int value = start(run); value <= end(run); value++) {
+                    action.accept(base | value);
+                }
+            }
+        }
+
+        @Override
+        char[] toCharArray() {
+            char[] values = new char[cardinality];
+            int position = 0;
+            for (int run = 0; run < runs.length / 2; run++) {
+                for (int value = start(run); value <= end(run); value++) {
+                    values[position++] = (char) value;
+                }
+            }
+            return values;
+        }
+
+        void and(RunContainer other, long base, LongArrayBuilder out) {
+            int i = 0;
+            int j = 0;
+            while (i < runs.length / 2 && j < other.runs.length / 2) {
+                int from = Math.max(start(i), other.start(j));
+                int to = Math.min(end(i), other.end(j));
+                for (int value = from; value <= to; value++) {
+                    out.add(base | value);
+                }
+                if (end(i) < other.end(j)) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+
+        void and(BitmapContainer bitmap, long base, LongArrayBuilder out) {
+            for (int run = 0; run < runs.length / 2; run++) {
+                int start = start(run);
+                int end = end(run);
+                for (int wordIndex = start >>> 6; wordIndex <= end >>> 6; wordIndex++) {
+                    long mask = -1L;
+                    if (wordIndex == start >>> 6) {
+                        mask &= -1L << start;
+                    }
+                    if (wordIndex == end >>> 6) {
+                        mask &= -1L >>> (63 - (end & 63));
+                    }
+                    long word = bitmap.words[wordIndex] & mask;
+                    while (word != 0) {
+                        out.add(base | ((long) wordIndex << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+
+        private int start(int run) {
+            return runs[run * 2];
+        }
+
+        private int end(int run) {
+            return runs[run * 2] + runs[run * 2 + 1];
+        }
+
+        /**
+         * Возвращает номер последнего интервала, начинающегося не позже значения, или -1.
+         */
+        private int runAtOrBefore(char low) {
+            int from = 0;
+            int to = runs.length / 2 - 1;
+            while (from <= to) {
+                int middle = (from + to) >>> 1;
+                if (start(middle) <= low) {
+                    from = middle + 1;
+                } else {
+                    to = middle - 1;
+                }
+            }
+            return to;
+        }
+
+        private static Container choose(char[] runs, int cardinality) {
+            RunContainer container = new RunContainer(runs, cardinality);
+            if (runs.length >= BITMAP_CHARS) {
+                return BitmapContainer.of(container.toCharArray());
+            }
+            if (cardinality <= ARRAY_MAX && cardinality < runs.length) {
+                return new ArrayContainer(container.toCharArray());
+            }
+            return container;
+        }
+    }
+
+    /**
+     * Итератор, обходящий контейнеры каталога, актуального на момент создания.
+     */
+    private class ContainerIterator implements Iterator<Long> {
+
+        private final Directory snapshot = directory;
+        private int containerIndex = -1;
+        private char[] values = new char[0];
+        private int position;
+        private long base;
+        private long last;
+        private boolean canRemove;
+
+        @Override
+        public boolean hasNext() {
+            while (position >= values.length) {
+                if (++containerIndex >= snapshot.keys().length) {
+                    return false;
+                }
+                values = snapshot.containers()[containerIndex].toCharArray();
+                base = snapshot.keys()[containerIndex] << 16;
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public Long next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = base | values[position++];
+            canRemove = true;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            RoaringLongSet.this.remove(last);
+            canRemove = false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Монотонные счётчики версий для условных запросов: общий и по ключам.
+ * <p>
+ * Версия ключа хранится в одной из полос, поэтому изменение одного ключа может сменить версию другого.
+ * Это приводит лишь к лишней полной выдаче, но не к ответу 304 на изменившиеся данные.
+ * Версию нужно сдвигать после того, как изменение стало видно читателям, а читать — до чтения данных.
+ * <p>
+ * ETag содержит эпоху запуска: счётчики начинаются заново после перезапуска,
+ * и без неё старый ETag мог бы совпасть с версией других данных.
+ */
+public class VersionClock {
+
+    private static final int STRIPES = 4096;
+
+    private final String name;
+    private final String epoch;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray keyed = new AtomicLongArray(STRIPES);
+
+    /**
+     * Создаёт счётчики.
+     *
+     * @param name имя набора данных, входит в ETag.
+     */
+    public VersionClock(String name) {
+        this.name = name;
+        this.epoch = Long.toString(System.currentTimeMillis(), 36);
+    }
+
+    /**
+     * Сдвигает общую версию.
+     */
+    public void advance() {
+        sequence.incrementAndGet();
+    }
+
+    /**
+     * Сдвигает версию ключа и общую версию.
+     *
+     * @param key ключ.
+     */
+    public void advance(long key) {
+        long version = sequence.incrementAndGet();
+        keyed.accumulateAndGet(stripe(key), version, Math::max);
+    }
+
+    public long current() {
+        return sequence.get();
+    }
+
+    public long current(long key) {
+        return keyed.get(stripe(key));
+    }
+
+    /**
+     * Возвращает строгий ETag общей версии.
+     *
+     * @return значение заголовка ETag в кавычках.
+     */
+    public String etag() {
+        return etagOf(current());
+    }
+
+    /**
+     * Возвращает строгий ETag заданной общей версии, например версии, с которой построен кэш.
+     *
+     * @param version общая версия
+     * @return значение заголовка ETag в кавычках.
+     */
+    public String etagOf(long version) {
+        return "\"" + name + "-" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * Возвращает строгий ETag версии ключа.
+     *
+     * @param key ключ
+     * @return значение заголовка ETag в кавычках.
+     */
+    public String etag(long key) {
+        return "\"" + name + "-" + epoch + "-" + key + "-" + current(key) + "\"";
+    }
+
+    private static int stripe(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ограниченный кэш значений по ключу long с вытеснением по количеству записей и суммарному весу.
+ * <p>
+ * Чтение выполняется без блокировок. Вытеснение использует алгоритм второго шанса:
+ * записи обходятся в порядке добавления, запись с признаком обращения получает ещё один круг.
+ * <p>
+ * Инвалидация, выполненная во время загрузки значения, не даёт загрузке сохранить устаревшее значение:
+ * для каждого ключа ведётся счётчик поколений, и значение сохраняется, только если поколение не изменилось.
+ *
+ * @param <V> тип значения.
+ */
+public class WeightedCache<V> {
+
+    private static final int GENERATION_STRIPES = 1024;
+    private static final int MIN_PURGE_THRESHOLD = 1024;
+
+    private final Map<Long, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry<V>> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ToIntFunction<V> weigher;
+    private final long maxEntries;
+    private final long maxWeight;
+
+    private final LongAdder weight = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Примерное количество инвалидированных записей, оставшихся в очереди вытеснения.
+     */
+    private final LongAdder stale = new LongAdder();
+
+    /**
+     * Создаёт кэш.
+     *
+     * @param maxEntries максимальное количество записей
+     * @param maxWeight  максимальный суммарный вес записей
+     * @param weigher    вес значения; к нему добавляется единица за саму запись.
+     */
+    public WeightedCache(long maxEntries, long maxWeight, ToIntFunction<V> weigher) {
+        if (maxEntries < 0 || maxWeight < 0) {
+            throw new IllegalArgumentException("Границы кэша не могут быть отрицательными");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Возвращает значение из кэша или загружает и сохраняет его.
+     * Исключение загрузчика передаётся вызывающему, значение при этом не сохраняется.
+     *
+     * @param key    ключ
+     * @param loader загрузка значения
+     * @return значение.
+     */
+    public V get(long key, LongFunction<V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry.value;
+        }
+
+        misses.increment();
+        long generation = generations.get(stripe(key));
+        V value = loader.apply(key);
+        put(key, value, generation);
+        return value;
+    }
+
+    /**
+     * Удаляет значение ключа и отменяет сохранение загружаемых в этот момент значений.
+     *
+     * @param key ключ.
+     */
+    public void invalidate(long key) {
+        generations.incrementAndGet(stripe(key));
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight.add(-removed.weight);
+            invalidations.increment();
+            stale.increment();
+            purgeIfNeeded();
+        }
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    public long weight() {
+        return weight.sum();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long invalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Сохраняет загруженное значение. Вес учитывается до публикации записи: инвалидация,
+     * удалившая только что опубликованную запись, вычитает уже добавленный вес.
+     */
+    private void put(long key, V value, long generation) {
+        int entryWeight = weigher.applyAsInt(value) + 1;
+        if (entryWeight > maxWeight || maxEntries == 0) {
+            return;
+        }
+
+        Entry<V> entry = new Entry<>(key, value, entryWeight);
+        weight.add(entryWeight);
+        if (entries.putIfAbsent(key, entry) != null) {
+            weight.add(-entryWeight);
+            return;
+        }
+        if (generations.get(stripe(key)) != generation) {
+            if (entries.remove(key, entry)) {
+                weight.add(-entryWeight);
+            }
+            return;
+        }
+        puts.increment();
+        clock.offer(entry);
+        evictIfNeeded();
+    }
+
+    private void evictIfNeeded() {
+        if (entries.size() <= maxEntries && weight.sum() <= maxWeight) {
+            return;
+        }
+        evictionLock.lock();
+        try {
+            while (entries.size() > maxEntries || weight.sum() > maxWeight) {
+                Entry<V> candidate = clock.poll();
+                if (candidate == null) {
+                    return;
+                }
+                if (entries.get(candidate.key) != candidate) {
+                    continue;
+                }
+                if (candidate.referenced) {
+                    candidate.referenced = false;
+                    clock.offer(candidate);
+                } else if (entries.remove(candidate.key, candidate)) {
+                    weight.add(-candidate.weight);
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Убирает из очереди вытеснения удалённые записи, когда их становится больше, чем живых.
+     * Иначе при частой инвалидации без переполнения очередь росла бы без ограничений.
+     */
+    private void purgeIfNeeded() {
+        if (stale.sum() <= Math.max(entries.size(), MIN_PURGE_THRESHOLD) || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            clock.removeIf(entry -> entries.get(entry.key) != entry);
+            stale.reset();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static int stripe(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (GENERATION_STRIPES - 1);
+    }
+
+    private static final class Entry<V> {
+
+        private final long key;
+        private final V value;
+        private final int weight;
+        private volatile boolean referenced;
+
+        Entry(long key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
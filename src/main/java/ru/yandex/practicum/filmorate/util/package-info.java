@@ -0,0 +1,4 @@
+/**
+ * Пакет содержит вспомогательные структуры данных приложения Filmorate.
+ */
+package ru.yandex.practicum.filmorate.util;
@@ -0,0 +1,60 @@
+CREATE TABLE IF NOT EXISTS users (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email     VARCHAR(255) NOT NULL,
+    email_key VARCHAR(255) GENERATED ALWAYS AS (LOWER(TRIM(email))),
+    login     VARCHAR(255) NOT NULL,
+    name      VARCHAR(255),
+    birthday  DATE,
+    CONSTRAINT users_email_key_uq UNIQUE (email_key),
+    CONSTRAINT users_login_uq UNIQUE (login)
+);
+
+CREATE TABLE IF NOT EXISTS films (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255),
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     INTEGER,
+    mpa_rating   VARCHAR(16)
+);
+
+CREATE INDEX IF NOT EXISTS films_mpa_rating_idx ON films (mpa_rating);
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date, id);
+
+CREATE TABLE IF NOT EXISTS genres (
+    id   INTEGER PRIMARY KEY,
+    name VARCHAR(64) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS film_genres (
+    film_id  BIGINT  NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    genre_id INTEGER NOT NULL REFERENCES genres (id),
+    PRIMARY KEY (film_id, genre_id)
+);
+
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id);
+
+CREATE TABLE IF NOT EXISTS likes (
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    film_id BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id);
+
+CREATE TABLE IF NOT EXISTS friends (
+    user_id   BIGINT      NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT      NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    status    VARCHAR(16) NOT NULL,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friends_friend_idx ON friends (friend_id);
+
+MERGE INTO genres (id, name) KEY (id) VALUES
+    (1, 'COMEDY'),
+    (2, 'DRAMA'),
+    (3, 'CARTOON'),
+    (4, 'THRILLER'),
+    (5, 'DOCUMENTARY'),
+    (6, 'ACTION');
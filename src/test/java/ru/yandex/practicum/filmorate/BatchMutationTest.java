@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Like;
+import ru.yandex.practicum.filmorate.model.user.Friendship;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.ActivityFeed;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchMutationTest {
+
+    FilmStorage filmStorage;
+    UserStorage userStorage;
+    FilmService filmService;
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        ActivityFeed feed = ServiceFixtures.activityFeed(userStorage);
+        filmService = ServiceFixtures.filmService(filmStorage, userStorage, feed);
+        userService = ServiceFixtures.userService(userStorage, filmService, feed);
+
+        for (int i = 1; i <= 3; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.now());
+            film.setDuration(60);
+            filmStorage.create(film);
+
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            userStorage.create(user);
+        }
+    }
+
+    @Test
+    @DisplayName("Пакет лайков применяет корректные элементы и сообщает об ошибках остальных")
+    void shouldApplyValidLikesAndReportFailures() {
+        List<Like> likes = new ArrayList<>(Arrays.asList(
+                like(1L, 1L),
+                like(1L, 2L),
+                like(99L, 1L),
+                like(2L, 99L),
+                like(null, 1L),
+                like(3L, 3L),
+                like(1L, 3L)));
+
+        BatchResult result = filmService.addLikes(likes);
+
+        assertEquals(4, result.getApplied());
+        assertEquals(List.of(2, 3, 4), result.getFailed().stream().map(BatchResult.Failure::getIndex).toList());
+        assertEquals("Фильм с id=99 не найден", result.getFailed().get(0).getMessage());
+        assertEquals("Пользователь с id=99 не найден", result.getFailed().get(1).getMessage());
+        assertEquals(List.of(1L, 3L), filmStorage.getPopular(2).stream().map(Film::getId).toList());
+        assertEquals(3, filmStorage.getById(1L).orElseThrow().getLikes().size());
+    }
+
+    @Test
+    @DisplayName("Повторный лайк в пакете не считается применённым и не попадает в ошибки")
+    void shouldNotCountRepeatedLikes() {
+        filmService.addLike(1L, 1L);
+
+        BatchResult result = filmService.addLikes(List.of(like(1L, 1L), like(1L, 2L), like(1L, 2L)));
+
+        assertEquals(1, result.getApplied());
+        assertTrue(result.getFailed().isEmpty());
+        assertEquals(2, filmStorage.getById(1L).orElseThrow().getLikes().size());
+    }
+
+    @Test
+    @DisplayName("Пакет дружбы добавляет взаимные связи и сообщает о несуществующих пользователях")
+    void shouldApplyValidFriendshipsAndReportFailures() {
+        BatchResult result = userService.addFriends(List.of(
+                friendship(1L, 2L),
+                friendship(1L, 42L),
+                friendship(3L, 2L)));
+
+        assertEquals(2, result.getApplied());
+        assertEquals(1, result.getFailed().size());
+        assertEquals(1, result.getFailed().get(0).getIndex());
+        assertTrue(userStorage.getById(2L).orElseThrow().getFriends().containsAll(List.of(1L, 3L)));
+        assertEquals(List.of(2L), userService.getCommonFriends(1L, 3L).stream().map(User::getId).toList());
+    }
+
+    private Like like(Long filmId, Long userId) {
+        Like like = new Like();
+        like.setFilmId(filmId);
+        like.setUserId(userId);
+        return like;
+    }
+
+    private Friendship friendship(Long userId, Long friendId) {
+        Friendship friendship = new Friendship();
+        friendship.setUserId(userId);
+        friendship.setFriendId(friendId);
+        return friendship;
+    }
+}
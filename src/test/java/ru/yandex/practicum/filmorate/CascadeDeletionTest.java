@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.ActivityFeed;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CascadeDeletionTest {
+
+    FilmStorage filmStorage;
+    UserStorage userStorage;
+    FilmService filmService;
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        ActivityFeed feed = ServiceFixtures.activityFeed(userStorage);
+        filmService = ServiceFixtures.filmService(filmStorage, userStorage, feed);
+        userService = ServiceFixtures.userService(userStorage, filmService, feed);
+        for (int i = 1; i <= 4; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+    }
+
+    @Test
+    @DisplayName("Удаление пользователя убирает его из списков друзей")
+    void shouldRemoveDeletedUserFromFriends() {
+        userService.addFriends(1L, 2L);
+        userService.addFriends(1L, 3L);
+        userService.addFriends(2L, 3L);
+        assertEquals(List.of(2L, 3L), userIds(userService.getFriends(1L)));
+
+        userService.delete(3L);
+
+        assertEquals(List.of(2L), userIds(userService.getFriends(1L)));
+        assertEquals(List.of(1L), userIds(userService.getFriends(2L)));
+        assertEquals(Set.of(2L), userStorage.getFriendIds(1L));
+        assertEquals(2, userStorage.friendLinkCount());
+    }
+
+    @Test
+    @DisplayName("Удаление лайков пользователя обновляет фильмы, рейтинг и обратный индекс")
+    void shouldRemoveLikesOfDeletedUser() {
+        filmService.addLike(1L, 1L);
+        filmService.addLike(2L, 1L);
+        filmService.addLike(2L, 2L);
+        filmService.addLike(3L, 2L);
+        filmService.addLike(4L, 2L);
+        filmService.addLike(4L, 3L);
+        assertEquals(List.of(2L, 4L, 1L, 3L), filmIds(filmService.getTopFilms(4)));
+        assertEquals(List.of(2L, 3L, 4L), filmIds(filmService.getLikedFilms(2L)));
+        String etag = filmService.getCatalogETag();
+
+        userService.delete(2L);
+
+        assertEquals(List.of(1L, 2L, 4L, 3L), filmIds(filmService.getTopFilms(4)));
+        assertEquals(Set.of(1L), filmStorage.getById(2L).orElseThrow().getLikes());
+        assertTrue(filmStorage.getLikedFilmIds(2L).isEmpty());
+        assertEquals(3, filmStorage.likeCount());
+        assertNotEquals(etag, filmService.getCatalogETag());
+        assertEquals(List.of(1L, 2L), filmIds(filmService.getLikedFilms(1L)));
+        assertThrows(NotFoundException.class, () -> filmService.getLikedFilms(2L));
+    }
+
+    @Test
+    @DisplayName("Лайк, добавляемый одновременно с удалением пользователя, не переживает удаление")
+    void shouldNotLeaveLikesOfUserDeletedConcurrently() throws InterruptedException {
+        for (int i = 5; i <= 200; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            userStorage.create(user);
+        }
+
+        Thread liker = new Thread(() -> {
+            for (long userId = 1; userId <= 200; userId++) {
+                for (long filmId = 1; filmId <= 4; filmId++) {
+                    try {
+                        filmService.addLike(filmId, userId);
+                    } catch (NotFoundException ignored) {
+                        // пользователь уже удалён
+                    }
+                }
+            }
+        });
+        liker.start();
+        for (long userId = 200; userId >= 1; userId--) {
+            userService.delete(userId);
+        }
+        liker.join();
+
+        assertEquals(0, filmStorage.likeCount());
+        for (long filmId = 1; filmId <= 4; filmId++) {
+            assertTrue(filmStorage.getById(filmId).orElseThrow().getLikes().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Общие лайки пропускают пользователя, удалённого раньше своих лайков")
+    void shouldSkipDeletedLikerInCommonLikers() {
+        for (long userId = 1; userId <= 2; userId++) {
+            filmService.addLike(1L, userId);
+            filmService.addLike(2L, userId);
+        }
+
+        userStorage.delete(2L);
+
+        assertEquals(List.of(1L), userIds(filmService.getCommonLikers(1L, 2L)));
+    }
+
+    private static List<Long> userIds(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+
+    private static List<Long> filmIds(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+import static ru.yandex.practicum.filmorate.ModelFixtures.user;
+
+public class ConcurrentStorageTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 2_000;
+
+    FilmStorage filmStorage;
+    UserStorage userStorage;
+    ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Параллельное создание фильмов выдаёт уникальные id")
+    void shouldNotDuplicateIdsWhenCreatingConcurrently() throws Exception {
+        Collection<Long> ids = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                ids.add(filmStorage.create(film("Film " + thread + "-" + i)).getId());
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS, ids.size());
+        assertEquals(THREADS * OPERATIONS, new HashSet<>(ids).size());
+        assertEquals(THREADS * OPERATIONS, filmStorage.getAll().size());
+    }
+
+    @Test
+    @DisplayName("Параллельные лайки одного фильма не теряются")
+    void shouldNotLoseConcurrentLikes() throws Exception {
+        Film film = filmStorage.create(film("Film"));
+        Film other = filmStorage.create(film("Other"));
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                long userId = (long) thread * OPERATIONS + i;
+                filmStorage.addLike(film.getId(), userId);
+                filmStorage.addLike(other.getId(), userId);
+                if (i % 2 == 0) {
+                    filmStorage.deleteLike(other.getId(), userId);
+                }
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS, film.getLikes().size());
+        assertEquals(THREADS * OPERATIONS / 2, other.getLikes().size());
+        assertEquals(List.of(film, other), filmStorage.getPopular(2));
+    }
+
+    @Test
+    @DisplayName("Параллельные частичные обновления разных полей не затирают друг друга")
+    void shouldApplyConcurrentPartialUpdates() throws Exception {
+        Film film = filmStorage.create(film("Film"));
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                Film patch = new Film();
+                patch.setId(film.getId());
+                if (thread % 2 == 0) {
+                    patch.setDuration(thread * OPERATIONS + i + 1);
+                } else {
+                    patch.setDescription("Description " + thread + "-" + i);
+                }
+                filmStorage.update(patch);
+            }
+        });
+
+        Film stored = filmStorage.getById(film.getId()).orElseThrow();
+        assertEquals("Film", stored.getName());
+        assertNotEquals(ModelFixtures.DURATION, stored.getDuration());
+        assertNotEquals("Description", stored.getDescription());
+    }
+
+    @Test
+    @DisplayName("Параллельная регистрация с одной почтой создаёт одного пользователя")
+    void shouldRegisterEmailOnlyOnceUnderConcurrency() throws Exception {
+        Collection<Long> ids = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 100; i++) {
+                User user = user("user" + (thread * 100 + i));
+                user.setEmail("same" + i + "@mail.ru");
+                try {
+                    ids.add(userStorage.create(user).getId());
+                } catch (DuplicatedDataException ignore) {
+                }
+            }
+        });
+
+        assertEquals(100, ids.size());
+        assertEquals(100, userStorage.getAll().size());
+    }
+
+    @Test
+    @DisplayName("Отклонённая регистрация не расходует id")
+    void shouldNotSpendIdOnDuplicatedUser() {
+        assertEquals(1L, userStorage.create(user("user1")).getId());
+
+        User sameEmail = user("user2");
+        sameEmail.setEmail("user1@mail.ru");
+        assertThrows(DuplicatedDataException.class, () -> userStorage.create(sameEmail));
+        User sameLogin = user("user3");
+        sameLogin.setLogin("user1");
+        assertThrows(DuplicatedDataException.class, () -> userStorage.create(sameLogin));
+
+        assertEquals(2L, userStorage.create(user("user4")).getId());
+        assertEquals(Set.of(1L, 2L), new HashSet<>(userStorage.getAll().stream().map(User::getId).toList()));
+    }
+
+    @Test
+    @DisplayName("Параллельное добавление и удаление друзей сохраняет симметричность дружбы")
+    void shouldKeepFriendshipSymmetricUnderConcurrency() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(userStorage.create(user("user" + i)).getId());
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                Long id = ids.get((thread + i) % ids.size());
+                Long friendId = ids.get((thread * 7 + i * 3) % ids.size());
+                if (id.equals(friendId)) {
+                    continue;
+                }
+                if ((thread + i) % 3 == 0) {
+                    userStorage.deleteFriend(id, friendId);
+                } else {
+                    userStorage.addFriend(friendId, id);
+                }
+            }
+        });
+
+        for (User user : userStorage.getAll()) {
+            for (Long friendId : user.getFriends()) {
+                User friend = userStorage.getById(friendId).orElseThrow();
+                assertTrue(friend.getFriends().contains(user.getId()));
+            }
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int number = thread;
+            Callable<Void> callable = () -> {
+                start.await();
+                task.run(number);
+                return null;
+            };
+            futures.add(executor.submit(callable));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
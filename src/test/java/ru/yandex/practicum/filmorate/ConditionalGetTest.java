@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+import static ru.yandex.practicum.filmorate.ModelFixtures.user;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ConditionalGetTest {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @SpyBean
+    FilmService filmService;
+
+    @Test
+    @DisplayName("Список друзей отдаёт 304 до изменения дружбы или данных друга")
+    void shouldRevalidateFriendsList() {
+        long id = createUser("etag1").getId();
+        User friend = createUser("etag2");
+        long otherId = createUser("etag3").getId();
+        String url = "/users/" + id + "/friends";
+
+        String etag = get(url, null).getHeaders().getETag();
+        assertNotNull(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, get(url, etag).getStatusCode());
+
+        restTemplate.put("/users/" + id + "/friends/" + friend.getId(), null);
+        ResponseEntity<String> changed = get(url, etag);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        etag = changed.getHeaders().getETag();
+        assertNotEquals(etag, get("/users/" + otherId + "/friends", null).getHeaders().getETag());
+
+        restTemplate.put("/users/" + otherId + "/friends/" + friend.getId(), null);
+        assertEquals(HttpStatus.NOT_MODIFIED, get(url, etag).getStatusCode());
+
+        friend.setName("Renamed");
+        restTemplate.put("/users", friend);
+        assertEquals(HttpStatus.OK, get(url, etag).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Каталог и рейтинг отдают 304 до изменения фильмов или лайков")
+    void shouldRevalidateCatalog() {
+        long filmId = restTemplate.postForObject("/films", film("Etag film"), Film.class).getId();
+        long userId = createUser("etag4").getId();
+
+        String etag = get("/films", null).getHeaders().getETag();
+        assertEquals(HttpStatus.NOT_MODIFIED, get("/films", etag).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, get("/films/popular?count=5", etag).getStatusCode());
+
+        restTemplate.put("/films/" + filmId + "/like/" + userId, null);
+        assertEquals(HttpStatus.OK, get("/films/popular?count=5", etag).getStatusCode());
+        assertEquals(HttpStatus.OK, get("/films", etag).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Рейтинг с совпадающим ETag отвечает 304, не строя рейтинг")
+    void shouldNotBuildChartForNotModified() {
+        restTemplate.postForObject("/films", film("Chart film"), Film.class);
+        String etag = get("/films/popular", null).getHeaders().getETag();
+        assertEquals(filmService.getCatalogETag(), etag);
+        clearInvocations(filmService);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, get("/films/popular", etag).getStatusCode());
+        verify(filmService, never()).getPopularChart(anyInt());
+    }
+
+    @Test
+    @DisplayName("Слишком длинный рейтинг отклоняется, не строясь")
+    void shouldRejectTooLongChart() {
+        clearInvocations(filmService);
+
+        assertEquals(HttpStatus.BAD_REQUEST, get("/films/popular?count=1001", null).getStatusCode());
+        assertEquals(HttpStatus.OK, get("/films/popular?count=1000", null).getStatusCode());
+        verify(filmService, times(1)).getPopularChart(anyInt());
+    }
+
+    private User createUser(String login) {
+        return restTemplate.postForObject("/users", user(login), User.class);
+    }
+
+    private ResponseEntity<String> get(String url, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        if (etag != null) {
+            headers.setIfNoneMatch(etag);
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
@@ -0,0 +1,286 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+import static ru.yandex.practicum.filmorate.ModelFixtures.user;
+
+@SpringBootTest
+@ActiveProfiles("db")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:filmorate;DB_CLOSE_DELAY=-1")
+@Transactional
+public class DbStorageTest {
+
+    @Autowired
+    FilmStorage filmStorage;
+
+    @Autowired
+    UserStorage userStorage;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Профиль db подключает хранилища в базе данных")
+    void shouldUseDbStorages() {
+        assertInstanceOf(FilmDbStorage.class, filmStorage);
+        assertInstanceOf(UserDbStorage.class, userStorage);
+    }
+
+    @Test
+    @DisplayName("Id жанров совпадают с ключами таблицы жанров")
+    void shouldMatchGenreIdsWithGenresTable() {
+        jdbcTemplate.query("SELECT id, name FROM genres", rs -> {
+            assertEquals(rs.getString("name"), Genre.byId(rs.getInt("id")).name());
+        });
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class);
+        assertEquals(Genre.values().length, count);
+    }
+
+    @Test
+    @DisplayName("Фильм сохраняется и читается вместе с жанрами и рейтингом")
+    void shouldCreateAndReadFilm() {
+        Film film = film("Film");
+        film.setGenres(Set.of(Genre.COMEDY, Genre.DRAMA));
+        film.setRating(Mpa.PG);
+
+        Film created = filmStorage.create(film);
+        Film loaded = filmStorage.getById(created.getId()).orElseThrow();
+
+        assertEquals("Film", loaded.getName());
+        assertEquals(Set.of(Genre.COMEDY, Genre.DRAMA), loaded.getGenres());
+        assertEquals(Mpa.PG, loaded.getRating());
+    }
+
+    @Test
+    @DisplayName("Частичное обновление фильма сохраняет незаданные поля")
+    void shouldPartiallyUpdateFilm() {
+        Film created = filmStorage.create(film("Film"));
+        Film patch = new Film();
+        patch.setId(created.getId());
+        patch.setName("New name");
+
+        Film updated = filmStorage.update(patch);
+
+        assertEquals("New name", updated.getName());
+        assertEquals(created.getDescription(), updated.getDescription());
+        assertThrows(NotFoundException.class, () -> {
+            patch.setId(-1L);
+            filmStorage.update(patch);
+        });
+    }
+
+    @Test
+    @DisplayName("Популярные фильмы и общие лайкнувшие считаются запросами к базе")
+    void shouldRankPopularFilmsAndFindCommonLikers() {
+        User first = userStorage.create(user("first"));
+        User second = userStorage.create(user("second"));
+        Film top = filmStorage.create(film("Top"));
+        Film other = filmStorage.create(film("Other"));
+
+        filmStorage.addLike(top.getId(), first.getId());
+        filmStorage.addLike(top.getId(), second.getId());
+        filmStorage.addLike(other.getId(), first.getId());
+        filmStorage.addLike(other.getId(), first.getId());
+
+        List<Film> popular = filmStorage.getPopular(2);
+
+        assertEquals(List.of(top.getId(), other.getId()), popular.stream().map(Film::getId).toList());
+        assertEquals(2, popular.get(0).getLikes().size());
+        assertArrayEquals(new long[]{first.getId()}, filmStorage.getCommonLikerIds(top.getId(), other.getId()));
+        assertEquals(Set.of(first.getId(), second.getId()), filmStorage.getLikerIds(top.getId()));
+        assertEquals(Set.of(top.getId(), other.getId()), filmStorage.getLikedFilmIds(first.getId()));
+
+        filmStorage.deleteLike(top.getId(), second.getId());
+        assertEquals(1, filmStorage.getById(top.getId()).orElseThrow().getLikes().size());
+    }
+
+    @Test
+    @DisplayName("Популярные фильмы отбираются по жанрам, рейтингу и году после обновления")
+    void shouldFilterPopularFilms() {
+        User user = userStorage.create(user("filter"));
+        Film drama = film("Drama");
+        drama.setGenres(Set.of(Genre.DRAMA, Genre.COMEDY));
+        drama.setRating(Mpa.PG_13);
+        drama = filmStorage.create(drama);
+        Film comedy = film("Comedy");
+        comedy.setGenres(Set.of(Genre.COMEDY));
+        comedy.setRating(Mpa.G);
+        comedy = filmStorage.create(comedy);
+        filmStorage.addLike(comedy.getId(), user.getId());
+
+        assertEquals(List.of(comedy.getId(), drama.getId()), ids(filmStorage.getPopular(10,
+                PopularFilter.of(Set.of(Genre.COMEDY), null, 2000))));
+        assertEquals(List.of(drama.getId()), ids(filmStorage.getPopular(10,
+                PopularFilter.of(Set.of(Genre.COMEDY, Genre.DRAMA), Mpa.PG_13, null))));
+        assertEquals(List.of(), ids(filmStorage.getPopular(10, PopularFilter.of(null, null, 2001))));
+
+        Film patch = new Film();
+        patch.setId(comedy.getId());
+        patch.setGenres(Set.of(Genre.DRAMA));
+        patch.setRating(Mpa.PG_13);
+        Film updated = filmStorage.update(patch);
+
+        assertEquals(Set.of(Genre.DRAMA), updated.getGenres());
+        assertEquals(Mpa.PG_13, updated.getRating());
+        assertEquals(List.of(comedy.getId(), drama.getId()), ids(filmStorage.getPopular(10,
+                PopularFilter.of(Set.of(Genre.DRAMA), Mpa.PG_13, null))));
+    }
+
+    @Test
+    @DisplayName("Фильмы выбираются по периоду выхода в порядке дат после изменения даты")
+    void shouldSelectReleasedFilms() {
+        Film first = filmStorage.create(film("First"));
+        Film second = film("Second");
+        second.setReleaseDate(LocalDate.of(1999, 12, 31));
+        second = filmStorage.create(second);
+
+        assertEquals(List.of(second.getId(), first.getId()), ids(filmStorage.getReleased(null, null, 10)));
+        assertEquals(List.of(second.getId()), ids(filmStorage.getReleased(null, LocalDate.of(1999, 12, 31), 10)));
+
+        Film patch = new Film();
+        patch.setId(second.getId());
+        patch.setReleaseDate(LocalDate.of(2001, 1, 1));
+        filmStorage.update(patch);
+
+        assertEquals(List.of(first.getId(), second.getId()),
+                ids(filmStorage.getReleased(LocalDate.of(2000, 1, 1), LocalDate.of(2001, 1, 1), 10)));
+        assertEquals(List.of(first.getId()), ids(filmStorage.getReleased(null, null, 1)));
+    }
+
+    @Test
+    @DisplayName("Поиск находит фильмы со всеми словами запроса, совпадения в названии выше")
+    void shouldSearchFilms() {
+        Film inDescription = film("Зелёная миля");
+        inDescription.setDescription("Тюремная драма о надзирателе");
+        inDescription = filmStorage.create(inDescription);
+        Film inName = filmStorage.create(film("Тюремная драма"));
+        filmStorage.create(film("Matrix"));
+
+        assertEquals(List.of(inName.getId(), inDescription.getId()), ids(filmStorage.search("ДРАМА тюремная", 10)));
+        assertEquals(List.of(inDescription.getId()), ids(filmStorage.search("зеленая", 10)));
+        assertEquals(List.of(), ids(filmStorage.search("драма matrix", 10)));
+        assertEquals(List.of(), ids(filmStorage.search("?!", 10)));
+    }
+
+    @Test
+    @DisplayName("Страницы фильмов обходят каталог по курсору")
+    void shouldPageFilms() {
+        for (int i = 0; i < 5; i++) {
+            filmStorage.create(film("Film " + i));
+        }
+
+        Page<Film> page = filmStorage.getPage(0, 3);
+        Page<Film> next = filmStorage.getPage(page.getNextCursor(), 3);
+
+        assertEquals(3, page.getItems().size());
+        assertEquals(2, next.getItems().size());
+        assertNull(next.getNextCursor());
+        assertEquals(5, filmStorage.stream().count());
+    }
+
+    @Test
+    @DisplayName("Email уникален без учёта регистра, логин уникален")
+    void shouldRejectDuplicatedEmailAndLogin() {
+        User created = userStorage.create(user("login"));
+
+        User sameEmail = user("other");
+        sameEmail.setEmail(" LOGIN@mail.ru ");
+        DuplicatedDataException emailError = assertThrows(DuplicatedDataException.class,
+                () -> userStorage.create(sameEmail));
+        assertEquals("Эта электронная почта уже используется", emailError.getMessage());
+
+        User sameLogin = user("login");
+        sameLogin.setEmail("new@mail.ru");
+        DuplicatedDataException loginError = assertThrows(DuplicatedDataException.class,
+                () -> userStorage.create(sameLogin));
+        assertEquals("Этот логин уже используется", loginError.getMessage());
+
+        assertEquals(created.getId(), userStorage.findByEmail("Login@Mail.ru").orElseThrow().getId());
+        assertEquals("login", created.getName());
+    }
+
+    @Test
+    @DisplayName("Дружба взаимна, общие друзья находятся одним запросом")
+    void shouldAddFriendsAndFindCommon() {
+        User first = userStorage.create(user("first"));
+        User second = userStorage.create(user("second"));
+        User common = userStorage.create(user("common"));
+
+        userStorage.addFriend(first.getId(), common.getId());
+        userStorage.addFriend(second.getId(), common.getId());
+
+        assertTrue(userStorage.getById(common.getId()).orElseThrow().getFriends().contains(first.getId()));
+        assertEquals(List.of(common.getId()), userStorage.getCommonFriends(first.getId(), second.getId())
+                .stream().map(User::getId).toList());
+        assertEquals(List.of(first.getId(), second.getId()), userStorage.getFriends(common.getId())
+                .stream().map(User::getId).toList());
+        assertEquals(Set.of(first.getId(), second.getId()), userStorage.getFriendIds(common.getId()));
+
+        userStorage.deleteFriend(common.getId(), first.getId());
+        assertTrue(userStorage.getById(first.getId()).orElseThrow().getFriends().isEmpty());
+        assertThrows(NotFoundException.class, () -> userStorage.addFriend(first.getId(), -1L));
+    }
+
+    @Test
+    @DisplayName("Лайк от удалённого пользователя не найден, повторный лайк не добавляется")
+    void shouldRejectLikeFromDeletedUser() {
+        User user = userStorage.create(user("liker"));
+        Film film = filmStorage.create(film("Film"));
+
+        assertTrue(filmStorage.addLike(film.getId(), user.getId()));
+        assertFalse(filmStorage.addLike(film.getId(), user.getId()));
+
+        userStorage.delete(user.getId());
+
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(film.getId(), user.getId()));
+        assertTrue(filmStorage.getLikerIds(film.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Пакетные лайки и дружба пропускают несуществующие связи")
+    void shouldApplyBatches() {
+        User first = userStorage.create(user("first"));
+        User second = userStorage.create(user("second"));
+        Film film = filmStorage.create(film("Film"));
+
+        boolean[] likes = filmStorage.addLikes(new long[]{film.getId(), film.getId(), -1},
+                new long[]{first.getId(), -1, second.getId()});
+        boolean[] friends = userStorage.addFriends(new long[]{first.getId(), first.getId()},
+                new long[]{second.getId(), -1});
+
+        assertArrayEquals(new boolean[]{true, false, false}, likes);
+        assertArrayEquals(new boolean[]{true, false}, friends);
+        assertEquals(1, filmStorage.getById(film.getId()).orElseThrow().getLikes().size());
+        assertTrue(userStorage.getById(second.getId()).orElseThrow().getFriends().contains(first.getId()));
+        assertEquals(2, userStorage.findExistingIds(new long[]{first.getId(), second.getId(), -1}).size());
+    }
+
+    private List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
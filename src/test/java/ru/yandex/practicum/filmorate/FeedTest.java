@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.feed.FeedEvent;
+import ru.yandex.practicum.filmorate.model.feed.FeedEventType;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.service.ActivityFeed;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.WeightedCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+import static ru.yandex.practicum.filmorate.ModelFixtures.user;
+
+public class FeedTest {
+
+    private static final int CAPACITY = 10;
+
+    UserStorage userStorage;
+    ActivityFeed feed;
+    FilmService filmService;
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+        feed = new ActivityFeed(userStorage, CAPACITY);
+        filmService = new FilmService(new InMemoryFilmStorage(), userStorage, new ObjectMapper(), 10, Duration.ZERO,
+                50, 1_000_000, ServiceFixtures.PARALLEL_COUNTER, feed);
+        userService = new UserService(userStorage,
+                new WeightedCache<>(100, 10_000, List::size),
+                new WeightedCache<>(100, 10_000, ids -> ids.length),
+                1_000_000, ServiceFixtures.PARALLEL_COUNTER, feed, filmService);
+        for (int i = 1; i <= 4; i++) {
+            userService.create(user("user" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("Действие пользователя попадает в ленты его друзей, но не в ленты остальных")
+    void shouldFanOutToFriends() {
+        userService.addFriends(1L, 2L);
+        Film film = filmService.create(film("Film"));
+        filmService.addLike(film.getId(), 1L);
+        filmService.deleteLike(film.getId(), 1L);
+        userService.deleteFriend(1L, 2L);
+        filmService.addLike(film.getId(), 1L);
+
+        List<FeedEvent> events = userService.getFeed(2L, null, 10).getItems();
+        assertEquals(List.of(FeedEventType.FRIEND_REMOVED, FeedEventType.LIKE_REMOVED, FeedEventType.LIKE_ADDED,
+                FeedEventType.FILM_CREATED, FeedEventType.FRIEND_ADDED), types(events));
+        assertEquals(1L, events.get(1).getUserId());
+        assertEquals(film.getId(), events.get(1).getEntityId());
+        assertNull(events.get(3).getUserId());
+
+        assertEquals(List.of(FeedEventType.LIKE_ADDED, FeedEventType.FRIEND_REMOVED, FeedEventType.LIKE_REMOVED,
+                FeedEventType.LIKE_ADDED, FeedEventType.FILM_CREATED, FeedEventType.FRIEND_ADDED),
+                types(userService.getFeed(1L, null, 10).getItems()));
+        assertEquals(List.of(FeedEventType.FILM_CREATED), types(userService.getFeed(3L, null, 10).getItems()));
+    }
+
+    @Test
+    @DisplayName("Лента хранит только последние события и листается курсором без пропусков и повторов")
+    void shouldKeepLatestEventsAndPage() {
+        Film film = filmService.create(film("Film"));
+        for (long userId = 2; userId <= 4; userId++) {
+            userService.addFriends(1L, userId);
+        }
+        for (int i = 0; i < 20; i++) {
+            filmService.addLike(film.getId(), 2L + i % 3);
+            filmService.deleteLike(film.getId(), 2L + i % 3);
+        }
+
+        List<FeedEvent> all = new ArrayList<>();
+        Page<FeedEvent> page = userService.getFeed(1L, null, 3);
+        while (true) {
+            all.addAll(page.getItems());
+            if (page.getNextCursor() == null) {
+                break;
+            }
+            page = userService.getFeed(1L, page.getNextCursor(), 3);
+        }
+
+        assertEquals(CAPACITY + 1, all.size());
+        assertEquals(FeedEventType.FILM_CREATED, all.get(CAPACITY).getType());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getId() > all.get(i).getId());
+        }
+        assertEquals(FeedEventType.LIKE_REMOVED, all.get(0).getType());
+        assertEquals(3L, all.get(0).getUserId());
+    }
+
+    @Test
+    @DisplayName("Повтор действия или удаление несуществующей связи не создают событий")
+    void shouldNotPublishUnchangedActions() {
+        Film film = filmService.create(film("Film"));
+        userService.addFriends(1L, 2L);
+        userService.addFriends(1L, 2L);
+        userService.addFriends(2L, 1L);
+        filmService.addLike(film.getId(), 1L);
+        filmService.addLike(film.getId(), 1L);
+        filmService.deleteLike(film.getId(), 3L);
+        userService.deleteFriend(1L, 3L);
+
+        assertEquals(List.of(FeedEventType.LIKE_ADDED, FeedEventType.FRIEND_ADDED, FeedEventType.FILM_CREATED),
+                types(userService.getFeed(2L, null, 10).getItems()));
+    }
+
+    @Test
+    @DisplayName("Лента удалённого пользователя освобождается и больше не читается")
+    void shouldDropFeedOfDeletedUser() {
+        userService.addFriends(1L, 2L);
+        userService.delete(2L);
+
+        assertThrows(NotFoundException.class, () -> userService.getFeed(2L, null, 10));
+        assertEquals(0, feed.read(2L, null, 10).getItems().size());
+        assertEquals(List.of(FeedEventType.FRIEND_ADDED), types(userService.getFeed(1L, null, 10).getItems()));
+    }
+
+    @Test
+    @DisplayName("Событие для удалённого пользователя не заводит ему ленту заново")
+    void shouldNotRecreateFeedOfDeletedUser() {
+        userService.delete(2L);
+        assertEquals(3, feed.size());
+
+        feed.publish(FeedEventType.FRIEND_ADDED, 1L, 2L, 2L);
+
+        assertEquals(3, feed.size());
+        assertEquals(0, feed.read(2L, null, 10).getItems().size());
+        assertEquals(List.of(FeedEventType.FRIEND_ADDED), types(feed.read(1L, null, 10).getItems()));
+    }
+
+    private static List<FeedEventType> types(List<FeedEvent> events) {
+        return events.stream().map(FeedEvent::getType).toList();
+    }
+}
@@ -5,13 +5,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.film.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.validator.Marker;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -123,4 +126,30 @@ public class FilmControllerTest {
 
         assertEquals(2, films.size());
     }
+
+    @Test
+    @DisplayName("Постраничная выдача по курсору обходит все фильмы без пропусков")
+    void shouldPageFilmsByCursor() {
+        for (int i = 0; i < 25; i++) {
+            Film next = new Film();
+            next.setName("Film " + i);
+            next.setReleaseDate(LocalDate.now());
+            next.setDuration(60);
+            filmStorage.create(next);
+        }
+        filmStorage.delete(10L);
+
+        List<Long> ids = new ArrayList<>();
+        Page<Film> page = filmStorage.getPage(0, 10);
+        ids.addAll(page.getItems().stream().map(Film::getId).toList());
+        while (page.getNextCursor() != null) {
+            page = filmStorage.getPage(page.getNextCursor(), 10);
+            ids.addAll(page.getItems().stream().map(Film::getId).toList());
+        }
+
+        assertEquals(24, ids.size());
+        assertFalse(ids.contains(10L));
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertEquals(4, page.getItems().size());
+    }
 }
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmPopularityTest {
+
+    private static final int FILMS = 200;
+    private static final int USERS = 50;
+
+    FilmStorage filmStorage;
+    List<Long> filmIds;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        filmIds = new ArrayList<>();
+
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.now());
+            film.setDuration(60);
+            filmIds.add(filmStorage.create(film).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Индекс популярности совпадает с полной сортировкой при случайных лайках")
+    void shouldMatchSortedCatalogOnRandomWorkload() {
+        Random random = new Random(42);
+
+        for (int round = 0; round < 50; round++) {
+            for (int op = 0; op < 500; op++) {
+                Long filmId = filmIds.get(random.nextInt(filmIds.size()));
+                long userId = random.nextInt(USERS) + 1;
+                if (random.nextInt(3) == 0) {
+                    filmStorage.deleteLike(filmId, userId);
+                } else {
+                    filmStorage.addLike(filmId, userId);
+                }
+            }
+
+            if (round % 10 == 9) {
+                Long filmId = filmIds.remove(random.nextInt(filmIds.size()));
+                filmStorage.delete(filmId);
+            }
+
+            for (int count : new int[]{1, 10, FILMS}) {
+                assertEquals(sortedTop(count), filmStorage.getPopular(count));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Фильм, чьи лайки меняются, не пропадает из рейтинга и не повторяется в нём")
+    void shouldKeepEveryFilmInTopWhileLikesChange() throws Exception {
+        long filmId = filmIds.get(FILMS / 2);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                filmStorage.addLike(filmId, 1L);
+                filmStorage.deleteLike(filmId, 1L);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            List<Long> top = filmStorage.getPopular(FILMS).stream().map(Film::getId).toList();
+            assertEquals(FILMS, top.size());
+            assertEquals(FILMS, Set.copyOf(top).size());
+        }
+        writer.join();
+    }
+
+    @Test
+    @DisplayName("При равном количестве лайков фильмы упорядочены по id")
+    void shouldOrderTiesById() {
+        filmStorage.addLike(filmIds.get(5), 1L);
+        filmStorage.addLike(filmIds.get(3), 1L);
+
+        List<Film> top = filmStorage.getPopular(3);
+
+        assertEquals(List.of(filmIds.get(3), filmIds.get(5), filmIds.get(0)),
+                top.stream().map(Film::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Рейтинги по жанрам, MPA и году совпадают с фильтрацией полной сортировки")
+    void shouldMatchFilteredCatalogOnRandomWorkload() {
+        Random random = new Random(7);
+        Genre[] genres = Genre.values();
+        Mpa[] ratings = Mpa.values();
+
+        for (int round = 0; round < 30; round++) {
+            for (int op = 0; op < 300; op++) {
+                Long filmId = filmIds.get(random.nextInt(filmIds.size()));
+                if (random.nextInt(2) == 0) {
+                    filmStorage.addLike(filmId, random.nextInt(USERS) + 1L);
+                } else {
+                    filmStorage.deleteLike(filmId, random.nextInt(USERS) + 1L);
+                }
+            }
+            for (int op = 0; op < 20; op++) {
+                Film patch = new Film();
+                patch.setId(filmIds.get(random.nextInt(filmIds.size())));
+                patch.setGenres(EnumSet.of(genres[random.nextInt(genres.length)], genres[random.nextInt(genres.length)]));
+                patch.setRating(ratings[random.nextInt(ratings.length)]);
+                patch.setReleaseDate(LocalDate.of(2000 + random.nextInt(3), 1, 1));
+                filmStorage.update(patch);
+            }
+
+            List<PopularFilter> filters = List.of(
+                    PopularFilter.of(Set.of(genres[random.nextInt(genres.length)]), null, null),
+                    PopularFilter.of(Set.of(Genre.DRAMA, Genre.COMEDY), null, null),
+                    PopularFilter.of(null, ratings[random.nextInt(ratings.length)], null),
+                    PopularFilter.of(Set.of(Genre.ACTION), Mpa.R, 2001),
+                    PopularFilter.of(null, null, 2002));
+            for (PopularFilter filter : filters) {
+                for (int count : new int[]{1, 10, FILMS}) {
+                    assertEquals(sortedTop(count, filter), filmStorage.getPopular(count, filter));
+                }
+            }
+        }
+    }
+
+    private List<Film> sortedTop(int count) {
+        return sortedTop(count, PopularFilter.ANY);
+    }
+
+    private List<Film> sortedTop(int count, PopularFilter filter) {
+        return filmStorage.getAll().stream()
+                .filter(film -> (film.getGenres() == null ? Set.of() : film.getGenres()).containsAll(genresOf(filter)))
+                .filter(film -> filter.rating() == null || filter.rating() == film.getRating())
+                .filter(film -> filter.year() == null || filter.year() == film.getReleaseDate().getYear())
+                .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed()
+                        .thenComparing(Film::getId))
+                .limit(count)
+                .toList();
+    }
+
+    private static Set<Genre> genresOf(PopularFilter filter) {
+        return Arrays.stream(Genre.values())
+                .filter(genre -> (filter.genres() & genre.bit()) != 0)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmRecommendationTest {
+
+    private static final int USERS = 200;
+    private static final int FILMS = 100;
+    private static final int NEIGHBOURS = 5;
+
+    FilmStorage filmStorage;
+    UserStorage userStorage;
+    FilmService filmService;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        filmService = new FilmService(filmStorage, userStorage, new ObjectMapper(), 10, Duration.ZERO,
+                NEIGHBOURS, 1_000_000, ServiceFixtures.PARALLEL_COUNTER, ServiceFixtures.activityFeed(userStorage));
+        for (int i = 1; i <= USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            userStorage.create(user);
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+    }
+
+    @Test
+    @DisplayName("Обратный индекс лайков согласован с лайками фильмов после всех видов изменений")
+    void shouldKeepReverseIndexConsistent() {
+        Random random = new Random(3);
+        for (int i = 0; i < 2_000; i++) {
+            long filmId = random.nextInt(FILMS) + 1;
+            long userId = random.nextInt(USERS) + 1;
+            switch (random.nextInt(3)) {
+                case 0 -> filmStorage.addLike(filmId, userId);
+                case 1 -> filmStorage.deleteLike(filmId, userId);
+                default -> filmStorage.addLikes(new long[]{filmId, filmId}, new long[]{userId, userId + 1});
+            }
+        }
+        filmStorage.delete(7L);
+
+        for (long userId = 1; userId <= USERS; userId++) {
+            long id = userId;
+            Set<Long> expected = filmStorage.getAll().stream()
+                    .filter(film -> film.getLikes().contains(id))
+                    .map(Film::getId)
+                    .collect(Collectors.toSet());
+            assertEquals(expected, filmStorage.getLikedFilmIds(userId));
+        }
+        assertTrue(filmStorage.getLikerIds(7L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Рекомендованные фильмы совпадают с полным перебором матрицы лайков")
+    void shouldMatchBruteForce() {
+        Random random = new Random(5);
+        for (long userId = 1; userId <= USERS; userId++) {
+            int taste = random.nextInt(4);
+            for (int i = 0; i < 15; i++) {
+                long filmId = taste * 25L + random.nextInt(25) + 1;
+                filmStorage.addLike(random.nextInt(10) == 0 ? random.nextInt(FILMS) + 1L : filmId, userId);
+            }
+        }
+
+        for (long userId = 1; userId <= USERS; userId += 17) {
+            List<Long> recommended = filmService.getRecommendedFilms(userId, 10).stream().map(Film::getId).toList();
+            assertEquals(bruteForce(userId, 10), recommended);
+            for (Long filmId : recommended) {
+                assertFalse(filmStorage.getById(filmId).orElseThrow().getLikes().contains(userId));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Пользователь без лайков получает пустой список, несуществующий — ошибку")
+    void shouldHandleUsersWithoutLikes() {
+        filmStorage.addLike(1L, 2L);
+
+        assertEquals(List.of(), filmService.getRecommendedFilms(1L, 10));
+        assertThrows(NotFoundException.class, () -> filmService.getRecommendedFilms(-1L, 10));
+    }
+
+    private List<Long> bruteForce(long userId, int limit) {
+        Map<Long, Set<Long>> liked = new HashMap<>();
+        for (Film film : filmStorage.getAll()) {
+            for (Long liker : film.getLikes()) {
+                liked.computeIfAbsent(liker, key -> new HashSet<>()).add(film.getId());
+            }
+        }
+        Set<Long> mine = liked.getOrDefault(userId, Set.of());
+
+        Map<Long, Integer> overlap = new HashMap<>();
+        liked.forEach((other, films) -> {
+            int common = (int) films.stream().filter(mine::contains).count();
+            if (other != userId && common > 0) {
+                overlap.put(other, common);
+            }
+        });
+        List<Long> similar = top(overlap, NEIGHBOURS);
+
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Long other : similar) {
+            for (Long filmId : liked.get(other)) {
+                if (!mine.contains(filmId)) {
+                    scores.merge(filmId, overlap.get(other), Integer::sum);
+                }
+            }
+        }
+        return top(scores, limit);
+    }
+
+    private static List<Long> top(Map<Long, Integer> counts, int limit) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+
+public class FilmReleaseDateTest {
+
+    private static final LocalDate START = LocalDate.of(1990, 1, 1);
+
+    FilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+    }
+
+    @Test
+    @DisplayName("Выборка периода совпадает с полным перебором после изменения дат и удалений")
+    void shouldMatchBruteForceAfterUpdates() {
+        Random random = new Random(17);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ids.add(filmStorage.create(film("Film", randomDate(random))).getId());
+        }
+        for (int i = 0; i < 300; i++) {
+            Long id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(4) == 0) {
+                filmStorage.delete(id);
+                ids.remove(id);
+            } else {
+                Film patch = new Film();
+                patch.setId(id);
+                patch.setReleaseDate(randomDate(random));
+                filmStorage.update(patch);
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            LocalDate from = random.nextInt(10) == 0 ? null : randomDate(random);
+            LocalDate to = random.nextInt(10) == 0 ? null : randomDate(random);
+            int limit = 1 + random.nextInt(100);
+            assertEquals(bruteForce(from, to, limit), ids(filmStorage.getReleased(from, to, limit)));
+        }
+    }
+
+    @Test
+    @DisplayName("Фильм переходит в рейтинг нового года после изменения даты выхода")
+    void shouldMoveFilmBetweenYears() {
+        Film film = filmStorage.create(film("Film", LocalDate.of(1999, 3, 31)));
+        Film other = filmStorage.create(film("Film", LocalDate.of(1999, 12, 31)));
+
+        Film patch = new Film();
+        patch.setId(film.getId());
+        patch.setReleaseDate(LocalDate.of(2001, 1, 1));
+        filmStorage.update(patch);
+
+        assertEquals(List.of(other.getId()), ids(filmStorage.getPopular(10, PopularFilter.of(null, null, 1999))));
+        assertEquals(List.of(film.getId()), ids(filmStorage.getPopular(10, PopularFilter.of(null, null, 2001))));
+        assertEquals(List.of(), ids(filmStorage.getPopular(10, PopularFilter.of(null, null, 2000))));
+        assertEquals(List.of(other.getId(), film.getId()), ids(filmStorage.getReleased(null, null, 10)));
+        assertEquals(List.of(), ids(filmStorage.getReleased(LocalDate.of(2001, 1, 2), LocalDate.of(2000, 1, 1), 10)));
+    }
+
+    private List<Long> bruteForce(LocalDate from, LocalDate to, int limit) {
+        return filmStorage.getAll().stream()
+                .filter(film -> from == null || !film.getReleaseDate().isBefore(from))
+                .filter(film -> to == null || !film.getReleaseDate().isAfter(to))
+                .sorted(Comparator.comparing(Film::getReleaseDate).thenComparing(Film::getId))
+                .limit(limit)
+                .map(Film::getId)
+                .toList();
+    }
+
+    private static LocalDate randomDate(Random random) {
+        return START.plusDays(random.nextInt(3_650));
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+
+public class FilmSearchTest {
+
+    private static final String[] WORDS = {"матрица", "Matrix", "ёлка", "драма", "space", "Одиссея", "2001", "кот"};
+
+    FilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+    }
+
+    @Test
+    @DisplayName("Поиск разбирает кириллицу и латиницу без учёта регистра и ставит совпадения в названии выше")
+    void shouldRankNameMatchesFirst() {
+        Film inDescription = filmStorage.create(film("Зелёная миля", "Тюремная драма о надзирателе"));
+        Film inName = filmStorage.create(film("Тюремная драма", "Фильм о побеге"));
+        Film latin = filmStorage.create(film("2001: A Space Odyssey", "Космическая одиссея Кубрика"));
+
+        assertEquals(List.of(inName.getId(), inDescription.getId()), ids(filmStorage.search("ДРАМА, тюремная!", 10)));
+        assertEquals(List.of(inName.getId()), ids(filmStorage.search("драма", 1)));
+        assertEquals(List.of(inDescription.getId()), ids(filmStorage.search("зеленая", 10)));
+        assertEquals(List.of(latin.getId()), ids(filmStorage.search("space 2001 одиссея", 10)));
+        assertEquals(List.of(), ids(filmStorage.search("драма space", 10)));
+        assertEquals(List.of(), ids(filmStorage.search(" ?! ", 10)));
+    }
+
+    @Test
+    @DisplayName("Индекс поиска обновляется при изменении и удалении фильма")
+    void shouldUpdateIndexIncrementally() {
+        Film film = filmStorage.create(film("Матрица", "Нео выбирает красную таблетку"));
+
+        Film patch = new Film();
+        patch.setId(film.getId());
+        patch.setName("Матрица: перезагрузка");
+        filmStorage.update(patch);
+
+        assertEquals(List.of(film.getId()), ids(filmStorage.search("перезагрузка таблетку", 10)));
+
+        patch.setName("Начало");
+        patch.setDescription("Сон во сне");
+        filmStorage.update(patch);
+
+        assertEquals(List.of(), ids(filmStorage.search("матрица", 10)));
+        assertEquals(List.of(), ids(filmStorage.search("таблетку", 10)));
+        assertEquals(List.of(film.getId()), ids(filmStorage.search("сон начало", 10)));
+
+        filmStorage.delete(film.getId());
+
+        assertEquals(List.of(), ids(filmStorage.search("сон", 10)));
+    }
+
+    @Test
+    @DisplayName("Поиск находит те же фильмы, что и полный перебор, после случайных изменений")
+    void shouldMatchBruteForce() {
+        Random random = new Random(13);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            ids.add(filmStorage.create(film(phrase(random), phrase(random))).getId());
+        }
+        for (int i = 0; i < 300; i++) {
+            Long id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(5) == 0) {
+                filmStorage.delete(id);
+                ids.remove(id);
+                continue;
+            }
+            Film patch = new Film();
+            patch.setId(id);
+            if (random.nextBoolean()) {
+                patch.setName(phrase(random));
+            } else {
+                patch.setDescription(phrase(random));
+            }
+            filmStorage.update(patch);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            String query = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            Set<String> terms = words(query);
+            Set<Long> expected = filmStorage.getAll().stream()
+                    .filter(film -> {
+                        Set<String> words = words(film.getName() + " " + film.getDescription());
+                        return words.containsAll(terms);
+                    })
+                    .map(Film::getId)
+                    .collect(Collectors.toSet());
+
+            List<Long> found = ids(filmStorage.search(query, 1_000));
+            assertEquals(expected, Set.copyOf(found));
+            assertEquals(found.subList(0, Math.min(3, found.size())), ids(filmStorage.search(query, 3)));
+        }
+    }
+
+    private static String phrase(Random random) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = random.nextInt(4); i >= 0; i--) {
+            phrase.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextBoolean() ? " " : ", ");
+        }
+        return phrase.toString();
+    }
+
+    private static Set<String> words(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).replace('ё', 'е').split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
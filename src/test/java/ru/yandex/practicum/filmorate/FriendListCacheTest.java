@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.WeightedCache;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FriendListCacheTest {
+
+    UserStorage userStorage;
+    WeightedCache<List<User>> cache;
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = spy(new InMemoryUserStorage());
+        cache = new WeightedCache<>(100, 1_000, List::size);
+        userService = ServiceFixtures.userService(userStorage, cache, ServiceFixtures.activityFeed(userStorage));
+        for (int i = 1; i <= 4; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+        }
+        userService.addFriends(1L, 2L);
+        userService.addFriends(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("Повторное чтение друзей берётся из кэша")
+    void shouldServeRepeatedReadsFromCache() {
+        assertEquals(2, userService.getFriends(1L).size());
+        assertEquals(2, userService.getFriends(1L).size());
+
+        verify(userStorage, times(1)).getFriends(1L);
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("Изменение дружбы сбрасывает списки только обоих участников")
+    void shouldInvalidateBothSidesOfFriendship() {
+        userService.getFriends(1L);
+        userService.getFriends(2L);
+        userService.getFriends(4L);
+
+        userService.addFriends(4L, 2L);
+
+        assertEquals(List.of(1L, 4L), userService.getFriends(2L).stream().map(User::getId).sorted().toList());
+        assertEquals(1, userService.getFriends(4L).size());
+        userService.getFriends(1L);
+        verify(userStorage, times(1)).getFriends(1L);
+        verify(userStorage, times(2)).getFriends(2L);
+
+        userService.deleteFriend(1L, 2L);
+        assertEquals(List.of(3L), userService.getFriends(1L).stream().map(User::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Обновление и удаление пользователя сбрасывают списки его друзей")
+    void shouldInvalidateFriendsOnUpdateAndDelete() {
+        userService.getFriends(2L);
+        userService.getFriends(3L);
+        userService.getFriends(4L);
+
+        User update = new User();
+        update.setId(1L);
+        update.setName("Renamed");
+        userService.update(update);
+        userService.getFriends(2L);
+        userService.getFriends(4L);
+        verify(userStorage, times(2)).getFriends(2L);
+        verify(userStorage, times(1)).getFriends(4L);
+
+        userService.delete(1L);
+        assertTrue(userService.getFriends(3L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Кэш вытесняет записи по количеству и по суммарному весу")
+    void shouldEvictBySizeAndWeight() {
+        WeightedCache<String> bySize = new WeightedCache<>(2, 1_000, String::length);
+        for (long key = 0; key < 10; key++) {
+            bySize.get(key, Long::toString);
+        }
+        assertEquals(2, bySize.size());
+        assertEquals(8, bySize.evictionCount());
+
+        WeightedCache<String> byWeight = new WeightedCache<>(100, 10, String::length);
+        byWeight.get(1, key -> "aaaa");
+        byWeight.get(2, key -> "bbbb");
+        byWeight.get(3, key -> "cccc");
+        assertTrue(byWeight.weight() <= 10);
+        assertEquals(1, byWeight.evictionCount());
+        byWeight.get(4, key -> "x".repeat(20));
+        assertEquals(0, byWeight.putCount() - 3, "значение тяжелее всего кэша не сохраняется");
+    }
+
+    @Test
+    @DisplayName("Инвалидация во время загрузки не даёт сохранить устаревшее значение")
+    void shouldNotStoreValueLoadedBeforeInvalidation() {
+        WeightedCache<String> stringCache = new WeightedCache<>(10, 100, String::length);
+        assertEquals("old", stringCache.get(1, key -> {
+            stringCache.invalidate(1);
+            return "old";
+        }));
+        assertEquals("new", stringCache.get(1, key -> "new"));
+        assertEquals(0, stringCache.hitCount());
+    }
+
+    @Test
+    @DisplayName("Вес кэша совпадает с суммой весов записей при гонке загрузки и инвалидации")
+    void shouldKeepWeightConsistentUnderConcurrentInvalidation() throws InterruptedException {
+        WeightedCache<String> stringCache = new WeightedCache<>(1_000, 100_000, String::length);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    long key = (i * 31L + seed) % 8;
+                    if (i % 2 == seed % 2) {
+                        stringCache.get(key, k -> "value" + k);
+                    } else {
+                        stringCache.invalidate(key);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (long key = 0; key < 8; key++) {
+            stringCache.invalidate(key);
+        }
+        assertEquals(0, stringCache.size());
+        assertEquals(0, stringCache.weight());
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.ActivityFeed;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.WeightedCache;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FriendRecommendationTest {
+
+    private static final int USERS = 300;
+
+    UserStorage userStorage;
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = spy(new InMemoryUserStorage());
+        userService = service(1_000_000);
+        for (int i = 1; i <= USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+        }
+    }
+
+    @Test
+    @DisplayName("Рекомендации совпадают с полным перебором друзей друзей")
+    void shouldMatchBruteForceRanking() {
+        Random random = new Random(11);
+        for (long friendId = 2; friendId <= 200; friendId++) {
+            userService.addFriends(1L, friendId);
+        }
+        for (int i = 0; i < 3_000; i++) {
+            long id = random.nextInt(USERS) + 1;
+            long friendId = random.nextInt(USERS) + 1;
+            if (id != friendId) {
+                userService.addFriends(id, friendId);
+            }
+        }
+
+        for (long id = 1; id <= USERS; id += 37) {
+            assertEquals(bruteForce(id, 20), ids(userService.getRecommendations(id, 20)));
+        }
+    }
+
+    @Test
+    @DisplayName("Рекомендации не содержат самого пользователя и его друзей")
+    void shouldSkipSelfAndFriends() {
+        userService.addFriends(1L, 2L);
+        userService.addFriends(1L, 3L);
+        userService.addFriends(2L, 3L);
+        userService.addFriends(2L, 4L);
+        userService.addFriends(3L, 4L);
+        userService.addFriends(3L, 5L);
+
+        assertEquals(List.of(4L, 5L), ids(userService.getRecommendations(1L, 10)));
+        assertEquals(List.of(4L), ids(userService.getRecommendations(1L, 1)));
+        assertThrows(NotFoundException.class, () -> userService.getRecommendations(-1L, 10));
+    }
+
+    @Test
+    @DisplayName("Рекомендации кэшируются и сбрасываются при изменении дружбы на втором шаге")
+    void shouldCacheAndInvalidateOnFriendshipChanges() {
+        userService.addFriends(1L, 2L);
+        userService.addFriends(2L, 3L);
+        clearInvocations(userStorage);
+
+        assertEquals(List.of(3L), ids(userService.getRecommendations(1L, 10)));
+        assertEquals(List.of(3L), ids(userService.getRecommendations(1L, 10)));
+        verify(userStorage, times(1)).getFriendIds(1L);
+
+        userService.addFriends(4L, 5L);
+        assertEquals(List.of(3L), ids(userService.getRecommendations(1L, 10)));
+        verify(userStorage, times(1)).getFriendIds(1L);
+
+        userService.addFriends(2L, 6L);
+        assertEquals(List.of(3L, 6L), ids(userService.getRecommendations(1L, 10)));
+
+        userService.deleteFriend(1L, 2L);
+        assertEquals(List.of(), ids(userService.getRecommendations(1L, 10)));
+    }
+
+    @Test
+    @DisplayName("Бюджет работы пропускает списки друзей, которые в него не помещаются")
+    void shouldCapWorkPerRequest() {
+        userService = service(10);
+        userService.addFriends(1L, 2L);
+        userService.addFriends(1L, 3L);
+        for (long id = 10; id < 30; id++) {
+            userService.addFriends(2L, id);
+        }
+        userService.addFriends(3L, 4L);
+
+        assertEquals(List.of(4L), ids(userService.getRecommendations(1L, 10)));
+    }
+
+    private UserService service(long maxWork) {
+        ActivityFeed feed = ServiceFixtures.activityFeed(userStorage);
+        return new UserService(userStorage,
+                new WeightedCache<>(100, 10_000, List::size),
+                new WeightedCache<>(100, 10_000, ids -> ids.length),
+                maxWork, ServiceFixtures.PARALLEL_COUNTER, feed, ServiceFixtures.filmService(new InMemoryFilmStorage(), userStorage, feed));
+    }
+
+    private List<Long> bruteForce(long id, int limit) {
+        Set<Long> friends = userStorage.getById(id).orElseThrow().getFriends();
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Long friendId : friends) {
+            for (Long candidate : userStorage.getById(friendId).orElseThrow().getFriends()) {
+                if (candidate != id && !friends.contains(candidate)) {
+                    counts.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+}
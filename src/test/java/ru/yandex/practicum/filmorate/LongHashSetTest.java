@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashSetTest {
+
+    @Test
+    @DisplayName("Множество ведёт себя как HashSet при случайных операциях")
+    void shouldBehaveLikeHashSet() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(2_000) - 1_000;
+            if (i % 1_000 == 0) {
+                value = random.nextBoolean() ? 0L : Long.MIN_VALUE;
+            }
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        assertEquals(expected, set);
+        assertEquals(expected, new HashSet<>(set));
+        assertEquals(expected.size(), set.toLongArray().length);
+    }
+
+    @Test
+    @DisplayName("Обход не видит элемент дважды при изменениях во время обхода")
+    void shouldIterateSnapshotWithoutDuplicates() {
+        LongHashSet set = new LongHashSet(List.of(1L, 2L, 3L));
+        Set<Long> seen = new HashSet<>();
+
+        Iterator<Long> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            Long value = iterator.next();
+            assertTrue(seen.add(value));
+            set.remove(value);
+            for (long i = 10; i < 100; i++) {
+                set.add(i);
+            }
+        }
+
+        assertTrue(seen.containsAll(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    @DisplayName("Лайки сериализуются в JSON массивом чисел")
+    void shouldKeepJsonShape() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Film film = new Film();
+        film.setName("Film");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.getLikes().add(5L);
+
+        String json = mapper.writeValueAsString(film);
+        Film restored = mapper.readValue(json, Film.class);
+
+        assertTrue(json.contains("\"likes\":[5]"));
+        assertInstanceOf(LongHashSet.class, restored.getLikes());
+        assertEquals(Set.of(5L), restored.getLikes());
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сравнение объёма кучи, занимаемого лайками и друзьями в LongHashSet и HashSet.
+ * Запуск: mvn test -Pbenchmark -Dtest=LongSetFootprintBenchmark
+ */
+public class LongSetFootprintBenchmark {
+
+    private static final int EDGES_PER_SET = 100;
+    private static final int USERS = 1_000_000;
+
+    @Test
+    @DisplayName("LongHashSet занимает меньше памяти, чем HashSet<Long>")
+    void compareFootprint() {
+        System.out.printf("%12s %16s %16s %10s%n", "edges", "HashSet<Long>", "LongHashSet", "ratio");
+        for (int edges : new int[]{10_000, 1_000_000, 10_000_000}) {
+            long boxed = measure(() -> fill(edges, HashSet::new));
+            long primitive = measure(() -> fill(edges, LongHashSet::new));
+
+            System.out.printf("%12d %16d %16d %10.2f%n", edges, boxed, primitive, (double) boxed / primitive);
+            assertTrue(primitive < boxed);
+        }
+    }
+
+    private static Set<Long>[] fill(int edges, Supplier<Set<Long>> factory) {
+        Random random = new Random(edges);
+        int sets = Math.max(1, edges / EDGES_PER_SET);
+        @SuppressWarnings("unchecked")
+        Set<Long>[] result = new Set[sets];
+        for (int i = 0; i < sets; i++) {
+            result[i] = factory.get();
+        }
+        for (int edge = 0; edge < edges; edge++) {
+            Set<Long> set = result[edge % sets];
+            while (!addPrimitive(set, random.nextInt(USERS) + 1L)) {
+                // повтор при совпадении случайного id
+            }
+        }
+        return result;
+    }
+
+    private static boolean addPrimitive(Set<Long> set, long value) {
+        return set instanceof LongHashSet longSet ? longSet.add(value) : set.add(value);
+    }
+
+    /**
+     * Возвращает прирост занятой кучи после построения структуры, которая удерживается до замера.
+     */
+    private static long measure(Supplier<Object> builder) {
+        long before = usedHeap();
+        Object retained = builder.get();
+        long after = usedHeap();
+        assertNotNull(retained);
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
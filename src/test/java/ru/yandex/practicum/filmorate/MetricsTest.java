@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.user.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+public class MetricsTest {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    @DisplayName("Prometheus отдаёт задержки запросов, таймеры хранилищ, счётчики ошибок и размеры")
+    void shouldExposePrometheusMetrics() {
+        User user = new User();
+        user.setEmail("metrics@mail.ru");
+        user.setLogin("metrics");
+        assertEquals(HttpStatus.OK, restTemplate.postForEntity("/users", user, User.class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.postForEntity("/users", user, String.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity("/users/by-login?login=nobody", String.class)
+                .getStatusCode());
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+        String metrics = response.getBody();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(metrics);
+        assertTrue(metrics.contains("http_server_requests_seconds{"));
+        assertTrue(metrics.contains("quantile=\"0.999\""));
+        assertTrue(metrics.contains("http_server_requests_seconds_bucket{"));
+        assertTrue(metrics.contains("filmorate_storage_seconds_count{"));
+        assertTrue(metrics.contains("method=\"create\""));
+        assertTrue(metrics.contains("filmorate_service_seconds_count{"));
+        assertTrue(metrics.contains("filmorate_errors_total{exception=\"NotFoundException\",} 1.0"));
+        assertTrue(metrics.contains("filmorate_errors_total{exception=\"DuplicatedDataException\",} 1.0"));
+        assertTrue(metrics.contains("filmorate_users 1.0"));
+        assertTrue(metrics.contains("filmorate_films 0.0"));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+
+import java.time.LocalDate;
+
+/**
+ * Фильмы и пользователи для тестов. Даты фиксированы, чтобы результат не зависел от дня запуска.
+ */
+public final class ModelFixtures {
+
+    public static final LocalDate RELEASE_DATE = LocalDate.of(2000, 1, 1);
+    public static final LocalDate BIRTHDAY = LocalDate.of(1990, 1, 1);
+    public static final int DURATION = 90;
+    public static final String DESCRIPTION = "Description";
+
+    private ModelFixtures() {
+    }
+
+    public static Film film(String name) {
+        return film(name, DESCRIPTION);
+    }
+
+    public static Film film(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(RELEASE_DATE);
+        film.setDuration(DURATION);
+        return film;
+    }
+
+    public static Film film(String name, LocalDate releaseDate) {
+        Film film = film(name);
+        film.setReleaseDate(releaseDate);
+        return film;
+    }
+
+    /**
+     * Копирует фильм: хранилища сохраняют переданный объект, поэтому каждому нужен свой.
+     *
+     * @param source фильм
+     * @return копия фильма с тем же id.
+     */
+    public static Film copy(Film source) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setGenres(source.getGenres());
+        film.setRating(source.getRating());
+        return film;
+    }
+
+    /**
+     * Создаёт пользователя с почтой login@mail.ru.
+     *
+     * @param login логин
+     * @return пользователь без id.
+     */
+    public static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(BIRTHDAY);
+        return user;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.NdjsonWriter;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка памяти при выгрузке миллиона фильмов в NDJSON.
+ * Запуск: mvn test -Pbenchmark -Dtest=NdjsonExportBenchmark
+ */
+public class NdjsonExportBenchmark {
+
+    private static final int FILMS = 1_000_000;
+    private static final int SAMPLE_EVERY = 100_000;
+
+    @Test
+    @DisplayName("Выгрузка миллиона фильмов в NDJSON не увеличивает кучу пропорционально каталогу")
+    void shouldExportMillionFilmsWithConstantMemory() throws Exception {
+        FilmStorage filmStorage = new InMemoryFilmStorage();
+        LocalDate releaseDate = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film");
+            film.setDescription("Description");
+            film.setReleaseDate(releaseDate);
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        NdjsonWriter writer = new NdjsonWriter(objectMapper);
+        SamplingOutputStream output = new SamplingOutputStream();
+
+        long baseline = output.usedHeap();
+        long written = writer.write(filmStorage.stream(), output);
+
+        assertEquals(FILMS, written);
+        assertEquals(FILMS, output.lines);
+        long growth = output.peakHeap - baseline;
+        assertTrue(growth < output.bytes / 10,
+                "Рост кучи " + growth + " байт при выгрузке " + output.bytes + " байт");
+    }
+
+    /**
+     * Поток, который отбрасывает данные, считает строки и периодически замеряет занятую кучу.
+     */
+    private static class SamplingOutputStream extends OutputStream {
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private long bytes;
+        private long lines;
+        private long peakHeap;
+
+        @Override
+        public void write(int b) {
+            count(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                count(buffer[i]);
+            }
+        }
+
+        private void count(int b) {
+            bytes++;
+            if (b == '\n' && ++lines % SAMPLE_EVERY == 0) {
+                peakHeap = Math.max(peakHeap, usedHeap());
+            }
+        }
+
+        long usedHeap() {
+            System.gc();
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.NdjsonWriter;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NdjsonExportTest {
+
+    private static final int FILMS = 1_000;
+
+    @Test
+    @DisplayName("Выгрузка пишет каждый фильм отдельной строкой JSON в порядке id")
+    void shouldWriteOneFilmPerLine() throws Exception {
+        FilmStorage filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long written = new NdjsonWriter(objectMapper).write(filmStorage.stream(), output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(FILMS, written);
+        assertEquals(FILMS, lines.length);
+        for (int i = 0; i < FILMS; i++) {
+            Film film = objectMapper.readValue(lines[i], Film.class);
+            assertEquals(i + 1, film.getId());
+            assertEquals("Film " + i, film.getName());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularChart;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class PopularChartTest {
+
+    private static final int FILMS = 20;
+
+    FilmStorage filmStorage;
+    UserStorage userStorage;
+    FilmService filmService;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = spy(new InMemoryFilmStorage());
+        userStorage = new InMemoryUserStorage();
+        filmService = ServiceFixtures.filmService(filmStorage, userStorage, 10, Duration.ZERO,
+                ServiceFixtures.activityFeed(userStorage));
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setEmail("chart" + i + "@mail.ru");
+            user.setLogin("chart" + i);
+            userStorage.create(user);
+        }
+    }
+
+    @Test
+    @DisplayName("Сериализованный рейтинг совпадает с сериализацией Jackson любой длины")
+    void shouldMatchJacksonOutput() throws Exception {
+        filmService.addLike(5L, 1L);
+        filmService.addLike(5L, 2L);
+        filmService.addLike(7L, 1L);
+
+        for (int count : new int[]{1, 3, 10, 15, 50}) {
+            assertEquals(ServiceFixtures.OBJECT_MAPPER.writeValueAsString(filmService.getTopFilms(count)), render(count));
+        }
+        assertEquals("[]", renderEmpty());
+    }
+
+    @Test
+    @DisplayName("Рейтинг перестраивается только после изменения каталога")
+    void shouldRebuildOnlyAfterChanges() {
+        PopularChart first = filmService.getPopularChart(10);
+        assertSame(first, filmService.getPopularChart(5));
+        verify(filmStorage, times(1)).getPopular(anyInt());
+
+        filmService.addLike(3L, 1L);
+        PopularChart second = filmService.getPopularChart(10);
+        assertNotSame(first, second);
+        assertNotEquals(first.getETag(), second.getETag());
+        assertTrue(render(1).contains("\"id\":3"));
+    }
+
+    @Test
+    @DisplayName("Одновременные читатели после изменения ждут одну перестройку")
+    void shouldSingleFlightConcurrentRebuilds() throws Exception {
+        filmService.getPopularChart(10);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return invocation.callRealMethod();
+        }).when(filmStorage).getPopular(anyInt());
+        filmService.addLike(2L, 1L);
+
+        int readers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<PopularChart>> charts = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                charts.add(executor.submit(() -> filmService.getPopularChart(10)));
+            }
+            loading.await();
+            Thread.sleep(100);
+            release.countDown();
+
+            PopularChart chart = charts.get(0).get();
+            for (Future<PopularChart> future : charts) {
+                assertSame(chart, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(filmStorage, times(2)).getPopular(anyInt());
+    }
+
+    @Test
+    @DisplayName("С допустимым отставанием рейтинг не перестраивается на каждый лайк")
+    void shouldServeRecentChartWithinStaleness() {
+        FilmService lagging = ServiceFixtures.filmService(filmStorage, userStorage, 10, Duration.ofHours(1),
+                ServiceFixtures.activityFeed(userStorage));
+        PopularChart chart = lagging.getPopularChart(10);
+
+        lagging.addLike(4L, 1L);
+        lagging.addLike(4L, 2L);
+
+        assertSame(chart, lagging.getPopularChart(10));
+        verify(filmStorage, times(1)).getPopular(anyInt());
+    }
+
+    private String render(int count) {
+        try {
+            PopularChart chart = filmService.getPopularChart(count);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            chart.writeTo(count, output);
+            assertEquals(output.size(), chart.contentLength(count));
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private String renderEmpty() {
+        try {
+            PopularChart chart = ServiceFixtures.filmService(new InMemoryFilmStorage(), userStorage,
+                    ServiceFixtures.activityFeed(userStorage)).getPopularChart(10);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            chart.writeTo(10, output);
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.LongSetType;
+import ru.yandex.practicum.filmorate.util.RoaringLongSet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+
+public class RoaringLongSetTest {
+
+    @Test
+    @DisplayName("Битовое множество ведёт себя как HashSet на разреженных и плотных данных")
+    void shouldBehaveLikeHashSet() {
+        Random random = new Random(11);
+        RoaringLongSet set = new RoaringLongSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long value = randomValue(random, i);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        assertEquals(expected, set);
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(),
+                Arrays.stream(set.toLongArray()).sorted().toArray());
+    }
+
+    @Test
+    @DisplayName("Пересечение по контейнерам совпадает с retainAll")
+    void shouldIntersectLikeRetainAll() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20; round++) {
+            RoaringLongSet first = new RoaringLongSet();
+            RoaringLongSet second = new RoaringLongSet();
+            LongHashSet hashed = new LongHashSet();
+            Set<Long> expected = new HashSet<>();
+
+            for (int i = 0; i < 30_000; i++) {
+                long value = randomValue(random, i + round);
+                first.add(value);
+                expected.add(value);
+            }
+            for (int i = 0; i < 30_000; i++) {
+                long value = randomValue(random, i + round * 7);
+                second.add(value);
+                hashed.add(value);
+            }
+            expected.retainAll(second);
+
+            assertEquals(expected, toSet(LongSet.intersect(first, second)));
+            assertEquals(expected, toSet(LongSet.intersect(hashed, first)));
+        }
+    }
+
+    @Test
+    @DisplayName("Общие лайки фильмов считаются по битовым множествам")
+    void shouldFindCommonLikersWithBitmapStorage() {
+        FilmStorage filmStorage = new InMemoryFilmStorage(LongSetType.BITMAP);
+        Film film = filmStorage.create(film("Film"));
+        Film other = filmStorage.create(film("Other"));
+
+        for (long userId = 1; userId <= 10_000; userId++) {
+            filmStorage.addLike(film.getId(), userId);
+            if (userId % 3 == 0) {
+                filmStorage.addLike(other.getId(), userId);
+            }
+        }
+
+        long[] common = filmStorage.getCommonLikerIds(film.getId(), other.getId());
+
+        assertInstanceOf(RoaringLongSet.class, film.getLikes());
+        assertEquals(3_333, common.length);
+        assertTrue(Arrays.stream(common).allMatch(userId -> userId % 3 == 0));
+    }
+
+    /**
+     * Чередует разреженные значения, плотные интервалы и значения из разных контейнеров.
+     */
+    private static long randomValue(Random random, int step) {
+        return switch (step % 4) {
+            case 0 -> random.nextLong();
+            case 1 -> random.nextInt(70_000);
+            case 2 -> 200_000 + random.nextInt(5_000);
+            default -> 1_000_000 + step % 20_000;
+        };
+    }
+
+    private static Set<Long> toSet(long[] values) {
+        Set<Long> set = new HashSet<>();
+        for (long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpHeaders;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import ru.yandex.practicum.filmorate.config.SampledHttpLogStrategy;
+import ru.yandex.practicum.filmorate.controller.NdjsonWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SampledHttpLogStrategyTest {
+
+    @Test
+    @DisplayName("Без выборки записываются только ответы с ошибкой, запрос и ответ одним сообщением")
+    void shouldAlwaysWriteErrorsAndSkipUnsampledSuccesses() throws Exception {
+        SampledHttpLogStrategy strategy = new SampledHttpLogStrategy(0);
+        HttpRequest request = mock(HttpRequest.class);
+        Sink sink = mock(Sink.class);
+
+        strategy.write(mock(Precorrelation.class), request, sink);
+        strategy.write(mock(Correlation.class), request, response(200), sink);
+        verifyNoInteractions(sink);
+
+        Correlation correlation = mock(Correlation.class);
+        HttpResponse notFound = response(404);
+        strategy.write(correlation, request, notFound, sink);
+        verify(sink).writeBoth(correlation, request, notFound);
+    }
+
+    @Test
+    @DisplayName("При полной выборке запрос записывается сразу, ответ отдельно")
+    void shouldWriteEveryExchangeWhenFullySampled() throws Exception {
+        SampledHttpLogStrategy strategy = new SampledHttpLogStrategy(1);
+        HttpRequest request = mock(HttpRequest.class);
+        Sink sink = mock(Sink.class);
+        Precorrelation precorrelation = mock(Precorrelation.class);
+        Correlation correlation = mock(Correlation.class);
+        HttpResponse ok = response(200);
+
+        strategy.write(precorrelation, request, sink);
+        strategy.write(correlation, request, ok, sink);
+
+        verify(sink).write(precorrelation, request);
+        verify(sink).write(correlation, request, ok);
+    }
+
+    @Test
+    @DisplayName("Тело потокового ответа не буферизуется")
+    void shouldNotBufferStreamingResponses() throws Exception {
+        SampledHttpLogStrategy strategy = new SampledHttpLogStrategy(0.5);
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getHeaders()).thenReturn(HttpHeaders.of("Accept", NdjsonWriter.MEDIA_TYPE));
+        HttpResponse response = response(200);
+
+        strategy.process(request, response);
+
+        verify(response).withoutBody();
+        verify(response, never()).withBody();
+    }
+
+    @Test
+    @DisplayName("Тела обмена вне выборки не буферизуются, в выборке — буферизуются")
+    void shouldBufferBodiesOnlyOfSampledExchanges() throws Exception {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.withBody()).thenReturn(request);
+        when(request.withoutBody()).thenReturn(request);
+        when(request.getHeaders()).thenReturn(HttpHeaders.empty());
+
+        HttpResponse skipped = response(200);
+        SampledHttpLogStrategy none = new SampledHttpLogStrategy(0);
+        none.process(none.process(request), skipped);
+        verify(request).withoutBody();
+        verify(skipped).withoutBody();
+        verify(skipped, never()).withBody();
+
+        HttpResponse sampled = response(200);
+        SampledHttpLogStrategy all = new SampledHttpLogStrategy(1);
+        all.process(all.process(request), sampled);
+        verify(request).withBody();
+        verify(sampled).withBody();
+    }
+
+    @Test
+    @DisplayName("Доля выборки вне диапазона от 0 до 1 отклоняется")
+    void shouldRejectInvalidSampleRate() {
+        assertThrows(IllegalArgumentException.class, () -> new SampledHttpLogStrategy(1.5));
+    }
+
+    private static HttpResponse response(int status) {
+        HttpResponse response = mock(HttpResponse.class);
+        when(response.getStatus()).thenReturn(status);
+        return response;
+    }
+}
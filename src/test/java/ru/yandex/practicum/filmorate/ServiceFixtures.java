@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.ActivityFeed;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ParallelCounter;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.WeightedCache;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Сборка сервисов для тестов и бенчмарков с настройками по умолчанию из application.properties.
+ */
+public final class ServiceFixtures {
+
+    public static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+    public static final int CHART_SIZE = 100;
+    public static final int NEIGHBOURS = 50;
+    public static final long RECOMMENDATION_WORK = 1_000_000;
+    public static final long CACHE_ENTRIES = 100_000;
+    public static final long CACHE_WEIGHT = 5_000_000;
+    public static final int FEED_CAPACITY = 200;
+
+    /**
+     * Общий пул подсчёта рекомендаций: его потоки — демоны и не мешают завершению тестов.
+     */
+    public static final ParallelCounter PARALLEL_COUNTER = new ParallelCounter(0);
+
+    private ServiceFixtures() {
+    }
+
+    public static ActivityFeed activityFeed(UserStorage userStorage) {
+        return new ActivityFeed(userStorage, FEED_CAPACITY);
+    }
+
+    public static FilmService filmService(FilmStorage filmStorage, UserStorage userStorage, ActivityFeed feed) {
+        return filmService(filmStorage, userStorage, CHART_SIZE, Duration.ZERO, feed);
+    }
+
+    public static FilmService filmService(FilmStorage filmStorage, UserStorage userStorage,
+                                          int chartSize, Duration chartMaxStaleness, ActivityFeed feed) {
+        return new FilmService(filmStorage, userStorage, OBJECT_MAPPER, chartSize, chartMaxStaleness,
+                NEIGHBOURS, RECOMMENDATION_WORK, PARALLEL_COUNTER, feed);
+    }
+
+    public static UserService userService(UserStorage userStorage, ActivityFeed feed) {
+        return userService(userStorage, filmService(new InMemoryFilmStorage(), userStorage, feed), feed);
+    }
+
+    public static UserService userService(UserStorage userStorage, FilmService filmService, ActivityFeed feed) {
+        return userService(userStorage, new WeightedCache<>(CACHE_ENTRIES, CACHE_WEIGHT, List::size),
+                filmService, feed);
+    }
+
+    public static UserService userService(UserStorage userStorage, WeightedCache<List<User>> friendListCache,
+                                          ActivityFeed feed) {
+        return userService(userStorage, friendListCache, filmService(new InMemoryFilmStorage(), userStorage, feed),
+                feed);
+    }
+
+    private static UserService userService(UserStorage userStorage, WeightedCache<List<User>> friendListCache,
+                                           FilmService filmService, ActivityFeed feed) {
+        return new UserService(userStorage, friendListCache,
+                new WeightedCache<>(CACHE_ENTRIES, CACHE_WEIGHT, ids -> ids.length), RECOMMENDATION_WORK, PARALLEL_COUNTER, feed,
+                filmService);
+    }
+}
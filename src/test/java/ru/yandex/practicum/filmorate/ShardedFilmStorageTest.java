@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.film.PopularFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.ShardedFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.copy;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+
+public class ShardedFilmStorageTest {
+
+    private static final String[] WORDS = {"матрица", "space", "драма", "кот", "odyssey"};
+
+    FilmStorage expected;
+    ShardedFilmStorage sharded;
+
+    @BeforeEach
+    void setUp() {
+        expected = new InMemoryFilmStorage();
+        sharded = new ShardedFilmStorage(4);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        sharded.destroy();
+    }
+
+    @Test
+    @DisplayName("Разделённое хранилище отвечает так же, как одно хранилище, после случайных изменений")
+    void shouldMatchSingleStorage() {
+        Random random = new Random(23);
+        for (int i = 0; i < 200; i++) {
+            Film film = randomFilm(random);
+            assertEquals(expected.create(copy(film)).getId(), sharded.create(film).getId());
+        }
+        for (int i = 0; i < 2_000; i++) {
+            long filmId = random.nextInt(210) + 1;
+            long userId = random.nextInt(50) + 1;
+            switch (random.nextInt(5)) {
+                case 0, 1 -> {
+                    if (expected.getById(filmId).isPresent()) {
+                        expected.addLike(filmId, userId);
+                        sharded.addLike(filmId, userId);
+                    }
+                }
+                case 2 -> {
+                    long[] filmIds = {filmId, random.nextInt(210) + 1, filmId};
+                    long[] userIds = {userId, userId, userId + 1};
+                    assertArrayEquals(expected.addLikes(filmIds, userIds), sharded.addLikes(filmIds, userIds));
+                }
+                case 3 -> {
+                    if (expected.getById(filmId).isPresent()) {
+                        Film patch = randomFilm(random);
+                        patch.setId(filmId);
+                        expected.update(copy(patch));
+                        sharded.update(patch);
+                    }
+                }
+                default -> {
+                    if (random.nextInt(20) == 0 && expected.getById(filmId).isPresent()) {
+                        expected.delete(filmId);
+                        sharded.delete(filmId);
+                    }
+                }
+            }
+        }
+        assertEquals(expected.deleteUserLikes(7L), sharded.deleteUserLikes(7L));
+
+        assertEquals(expected.getAll(), sharded.getAll());
+        assertEquals(expected.stream().toList(), sharded.stream().toList());
+        assertEquals(pages(expected), pages(sharded));
+        assertEquals(expected.size(), sharded.size());
+        assertEquals(expected.likeCount(), sharded.likeCount());
+        assertEquals(ids(expected.getPopular(25)), ids(sharded.getPopular(25)));
+        for (Genre genre : Genre.values()) {
+            PopularFilter filter = PopularFilter.of(Set.of(genre), Mpa.values()[genre.ordinal() % 5], null);
+            assertEquals(ids(expected.getPopular(10, filter)), ids(sharded.getPopular(10, filter)));
+        }
+        assertEquals(ids(expected.getReleased(LocalDate.of(2001, 1, 1), LocalDate.of(2003, 6, 30), 40)),
+                ids(sharded.getReleased(LocalDate.of(2001, 1, 1), LocalDate.of(2003, 6, 30), 40)));
+        for (String word : WORDS) {
+            assertEquals(Set.copyOf(ids(expected.search(word, 1_000))), Set.copyOf(ids(sharded.search(word, 1_000))));
+            assertTrue(sharded.search(word, 5).size() <= 5);
+        }
+        for (long userId = 1; userId <= 51; userId++) {
+            assertEquals(expected.getLikedFilmIds(userId), sharded.getLikedFilmIds(userId));
+        }
+        long[] probe = {1, 2, 3, 150, 500, -1};
+        assertEquals(expected.findExistingIds(probe), sharded.findExistingIds(probe));
+    }
+
+    @Test
+    @DisplayName("Операции с одним фильмом выполняются в его сегменте, в том числе для пар из разных сегментов")
+    void shouldRouteByFilmId() {
+        Film first = sharded.create(randomFilm(new Random(1)));
+        Film second = sharded.create(randomFilm(new Random(2)));
+        sharded.addLike(first.getId(), 10L);
+        sharded.addLike(second.getId(), 10L);
+        sharded.addLike(second.getId(), 11L);
+
+        assertArrayEquals(new long[]{10L}, sharded.getCommonLikerIds(first.getId(), second.getId()));
+        assertEquals(Set.of(first.getId(), second.getId()), sharded.getLikedFilmIds(10L));
+        assertEquals(List.of(second.getId(), first.getId()), ids(sharded.getPopular(10)));
+        assertThrows(NotFoundException.class, () -> sharded.getCommonLikerIds(first.getId(), 99L));
+        assertThrows(NotFoundException.class, () -> sharded.addLike(99L, 10L));
+    }
+
+    private static List<Long> pages(FilmStorage storage) {
+        List<Long> ids = new ArrayList<>();
+        Page<Film> page = storage.getPage(0, 7);
+        while (true) {
+            ids.addAll(ids(page.getItems()));
+            if (page.getNextCursor() == null) {
+                return ids;
+            }
+            page = storage.getPage(page.getNextCursor(), 7);
+        }
+    }
+
+    private static Film randomFilm(Random random) {
+        Film film = film(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)],
+                WORDS[random.nextInt(WORDS.length)]);
+        film.setReleaseDate(ModelFixtures.RELEASE_DATE.plusDays(random.nextInt(2_000)));
+        film.setGenres(EnumSet.of(Genre.values()[random.nextInt(Genre.values().length)],
+                Genre.values()[random.nextInt(Genre.values().length)]));
+        film.setRating(Mpa.values()[random.nextInt(Mpa.values().length)]);
+        return film;
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
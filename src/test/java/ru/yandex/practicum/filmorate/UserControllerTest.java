@@ -151,7 +151,7 @@ public class UserControllerTest {
 
         User user2 = new User();
         user2.setEmail("@email12");
-        user2.setLogin("login");
+        user2.setLogin("login2");
         user2.setName("name");
         user.setBirthday(LocalDate.of(2000, 10, 10));
 
@@ -162,4 +162,57 @@ public class UserControllerTest {
 
         assertEquals(2, users.size());
     }
+
+    @Test
+    @DisplayName("Электронная почта уникальна без учёта регистра")
+    void shouldThrowIfEmailExistsInOtherCase() {
+        userStorage.create(user);
+
+        User user2 = new User();
+        user2.setEmail("@EMAIL");
+        user2.setLogin("Login2");
+
+        assertThrows(DuplicatedDataException.class, () -> userStorage.create(user2));
+        assertTrue(userStorage.findByLogin("Login2").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Проверка на существование логина")
+    void shouldThrowIfLoginExists() {
+        userStorage.create(user);
+
+        User user2 = new User();
+        user2.setEmail("@Email2");
+        user2.setLogin("Login");
+
+        DuplicatedDataException exception = assertThrows(
+                DuplicatedDataException.class,
+                () -> userStorage.create(user2)
+        );
+
+        assertEquals("Этот логин уже используется", exception.getMessage());
+        assertTrue(userStorage.findByEmail("@Email2").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Индексы email и логина обновляются при изменении и удалении пользователя")
+    void shouldKeepIndexesInSyncOnUpdateAndDelete() {
+        User created = userStorage.create(user);
+
+        User patch = new User();
+        patch.setId(created.getId());
+        patch.setEmail("new@Mail.ru");
+        patch.setLogin("NewLogin");
+        userStorage.update(patch);
+
+        assertTrue(userStorage.findByEmail("@Email").isEmpty());
+        assertTrue(userStorage.findByLogin("Login").isEmpty());
+        assertEquals(created, userStorage.findByEmail("NEW@mail.ru").orElseThrow());
+        assertEquals(created, userStorage.findByLogin("NewLogin").orElseThrow());
+
+        userStorage.delete(created.getId());
+
+        assertTrue(userStorage.findByEmail("new@mail.ru").isEmpty());
+        assertTrue(userStorage.findByLogin("NewLogin").isEmpty());
+    }
 }
@@ -0,0 +1,282 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Пропускная способность и хвостовые задержки HTTP-запросов на платформенных и виртуальных потоках Tomcat.
+ * Каждое соединение держит собственный клиентский поток с keep-alive, поэтому число соединений
+ * равно числу одновременных запросов. Сценарии: чтение друзей из памяти и лайк с fsync журнала
+ * на каждую запись, который блокирует поток так же, как запрос к базе данных.
+ * Запуск: mvn test -Pbenchmark -Dtest=VirtualThreadLoadBenchmark [-Dconnections=1000,10000]
+ * Для 10 тысяч соединений предел открытых файлов (ulimit -n) должен быть больше 20 тысяч:
+ * клиент и сервер работают в одном процессе.
+ */
+public class VirtualThreadLoadBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+    private static final int MAX_CONNECTIONS = 20_000;
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long RUN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Платформенные и виртуальные потоки при 1 и 10 тысячах соединений")
+    void compareThreadModes() throws Exception {
+        int[] connections = Arrays.stream(System.getProperty("connections", "1000,10000").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim()))
+                .toArray();
+        System.out.printf("%-10s %-8s %11s %12s %10s %10s %10s %8s%n",
+                "scenario", "threads", "connections", "req/s", "p50 ms", "p99 ms", "p999 ms", "errors");
+        for (Scenario scenario : Scenario.values()) {
+            for (boolean virtual : new boolean[]{false, true}) {
+                try (ConfigurableApplicationContext context = start(scenario, virtual)) {
+                    int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                    fill(context);
+                    for (int count : connections) {
+                        Result result = load(port, scenario, count);
+                        System.out.printf("%-10s %-8s %11d %12.0f %10.2f %10.2f %10.2f %8d%n",
+                                scenario.name().toLowerCase(), virtual ? "virtual" : "platform", count,
+                                result.throughput(), result.percentile(0.5), result.percentile(0.99),
+                                result.percentile(0.999), result.errors());
+                        assertTrue(result.latencies().length > 0);
+                    }
+                }
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(Scenario scenario, boolean virtual) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.max-connections=" + MAX_CONNECTIONS,
+                        "server.tomcat.accept-count=10000",
+                        "server.tomcat.keep-alive-timeout=60s",
+                        "server.tomcat.max-keep-alive-requests=-1",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "logging.level.root=WARN",
+                        "logging.level.org.zalando.logbook=OFF",
+                        "filmorate.storage.durability.enabled=" + (scenario == Scenario.LIKE),
+                        "filmorate.storage.durability.dir=" + dir.resolve(scenario + "-" + virtual),
+                        "filmorate.storage.durability.fsync=ALWAYS",
+                        "filmorate.storage.durability.snapshot-interval=0s")
+                .run();
+    }
+
+    private void fill(ConfigurableApplicationContext context) {
+        FilmStorage films = context.getBean(FilmStorage.class);
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            films.create(film);
+        }
+        UserStorage users = context.getBean(UserStorage.class);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            users.create(user);
+        }
+    }
+
+    private Result load(int port, Scenario scenario, int connections) throws Exception {
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> futures = new ArrayList<>(connections);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                futures.add(clients.submit(() -> {
+                    try (Socket socket = new Socket()) {
+                        try {
+                            socket.connect(new InetSocketAddress("localhost", port), 60_000);
+                        } finally {
+                            connected.countDown();
+                        }
+                        started.await();
+                        return requests(socket, scenario, errors);
+                    }
+                }));
+            }
+            connected.await();
+            started.countDown();
+        }
+
+        long[] latencies = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] samples = future.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + samples.length);
+            System.arraycopy(samples, 0, latencies, offset, samples.length);
+        }
+        Arrays.sort(latencies);
+        return new Result(latencies, errors.get());
+    }
+
+    /**
+     * Отправляет запросы по одному соединению до конца замера.
+     *
+     * @return задержки запросов после прогрева, в наносекундах.
+     */
+    private static long[] requests(Socket socket, Scenario scenario, AtomicLong errors) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long measureFrom = System.nanoTime() + WARMUP_NANOS;
+        long deadline = measureFrom + RUN_NANOS;
+        long[] latencies = new long[64];
+        int count = 0;
+        while (true) {
+            long begin = System.nanoTime();
+            if (begin > deadline) {
+                break;
+            }
+            out.write(scenario.request(random).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            if (readResponse(in) != 200) {
+                errors.incrementAndGet();
+            }
+            if (begin >= measureFrom) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count << 1);
+                }
+                latencies[count++] = System.nanoTime() - begin;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Читает ответ HTTP/1.1 с телом фиксированной длины или частями.
+     *
+     * @return код ответа.
+     */
+    private static int readResponse(InputStream in) throws IOException {
+        String status = readLine(in);
+        int code = Integer.parseInt(status.substring(9, 12));
+        long length = 0;
+        boolean chunked = false;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            String lower = header.toLowerCase();
+            if (lower.startsWith("content-length:")) {
+                length = Long.parseLong(header.substring(15).trim());
+            } else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) {
+                chunked = true;
+            }
+        }
+        if (!chunked) {
+            skip(in, length);
+            return code;
+        }
+        for (long chunk = Long.parseLong(readLine(in).trim(), 16); chunk > 0;
+             chunk = Long.parseLong(readLine(in).trim(), 16)) {
+            skip(in, chunk);
+            readLine(in);
+        }
+        readLine(in);
+        return code;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b < 0) {
+                throw new EOFException("Соединение закрыто сервером");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void skip(InputStream in, long length) throws IOException {
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Соединение закрыто сервером");
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    private enum Scenario {
+        /**
+         * Чтение списка друзей из памяти: короткий запрос без ожидания ввода-вывода.
+         */
+        READ {
+            @Override
+            String request(ThreadLocalRandom random) {
+                return "GET /users/" + random.nextLong(1, USERS + 1) + "/friends HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            }
+        },
+        /**
+         * Лайк с ожиданием fsync журнала: поток блокируется на вводе-выводе.
+         */
+        LIKE {
+            @Override
+            String request(ThreadLocalRandom random) {
+                return "PUT /films/" + random.nextLong(1, FILMS + 1) + "/like/" + random.nextLong(1, USERS + 1)
+                        + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n";
+            }
+        };
+
+        abstract String request(ThreadLocalRandom random);
+    }
+
+    private record Result(long[] latencies, long errors) {
+
+        double throughput() {
+            return latencies.length / (RUN_NANOS / 1e9);
+        }
+
+        double percentile(double quantile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            return latencies[(int) Math.min(latencies.length - 1, quantile * latencies.length)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import ru.yandex.practicum.filmorate.model.user.User;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+public class VirtualThreadModeTest {
+
+    @Autowired
+    ServletWebServerApplicationContext context;
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    @DisplayName("В режиме виртуальных потоков Tomcat обрабатывает запросы на виртуальных потоках")
+    void shouldHandleRequestsOnVirtualThreads() {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        assertInstanceOf(VirtualThreadExecutor.class,
+                webServer.getTomcat().getConnector().getProtocolHandler().getExecutor());
+
+        User user = new User();
+        user.setEmail("virtual@mail.ru");
+        user.setLogin("virtual");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        assertEquals(HttpStatus.OK, restTemplate.postForEntity("/users", user, User.class).getStatusCode());
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/users", String.class).getStatusCode());
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.wal.DurabilityManager;
+import ru.yandex.practicum.filmorate.storage.wal.FsyncPolicy;
+import ru.yandex.practicum.filmorate.util.LongSetType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Время восстановления хранилища фильмов из журнала на 10 млн записей и из снимка того же состояния.
+ * Запуск: mvn test -Pbenchmark -Dtest=WalRecoveryBenchmark
+ */
+public class WalRecoveryBenchmark {
+
+    private static final int RECORDS = 10_000_000;
+    private static final int FILMS = 100_000;
+    private static final int USERS = 1_000_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Восстановление 10 млн записей журнала")
+    void measureRecovery() throws Exception {
+        DurabilityManager durability = manager();
+        FilmStorage storage = new InMemoryFilmStorage(LongSetType.HASH, durability);
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            storage.create(film);
+        }
+        Random random = new Random(42);
+        for (int i = FILMS; i < RECORDS; i++) {
+            storage.addLike(random.nextLong(FILMS) + 1, random.nextLong(USERS) + 1);
+        }
+        long likes = totalLikes(storage);
+        durability.destroy();
+        System.out.printf("log: %d records, %d MB%n", RECORDS, directorySize() >> 20);
+
+        long start = System.nanoTime();
+        DurabilityManager recoveredDurability = manager();
+        FilmStorage recovered = new InMemoryFilmStorage(LongSetType.HASH, recoveredDurability);
+        double logSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("recovery from log: %.2f s, %.0f records/s%n", logSeconds, RECORDS / logSeconds);
+        assertEquals(FILMS, recovered.getAll().size());
+        assertEquals(likes, totalLikes(recovered));
+
+        recoveredDurability.snapshot();
+        recoveredDurability.destroy();
+        System.out.printf("snapshot: %d MB%n", directorySize() >> 20);
+
+        start = System.nanoTime();
+        DurabilityManager snapshotDurability = manager();
+        FilmStorage fromSnapshot = new InMemoryFilmStorage(LongSetType.HASH, snapshotDurability);
+        double snapshotSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("recovery from snapshot: %.2f s%n", snapshotSeconds);
+        assertEquals(likes, totalLikes(fromSnapshot));
+        snapshotDurability.destroy();
+    }
+
+    private DurabilityManager manager() {
+        return new DurabilityManager(true, dir, FsyncPolicy.NEVER, Duration.ZERO, Duration.ZERO);
+    }
+
+    private static long totalLikes(FilmStorage storage) {
+        return storage.stream().mapToLong(film -> film.getLikes().size()).sum();
+    }
+
+    private long directorySize() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.wal.DurabilityManager;
+import ru.yandex.practicum.filmorate.storage.wal.FsyncPolicy;
+import ru.yandex.practicum.filmorate.util.LongSetType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Задержка записи лайка при разных политиках fsync журнала и без журнала.
+ * Запуск: mvn test -Pbenchmark -Dtest=WalWriteLatencyBenchmark
+ */
+public class WalWriteLatencyBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 1_000_000;
+    private static final long RUN_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final int MAX_SAMPLES = 2_000_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Задержка addLike для каждой политики fsync")
+    void measureWriteLatency() throws Exception {
+        System.out.printf("%-10s %8s %12s %10s %10s %10s%n", "policy", "threads", "ops/s", "p50 us", "p99 us", "p999 us");
+        for (int threads : new int[]{1, 8}) {
+            run("disabled", threads, new DurabilityManager());
+            for (FsyncPolicy policy : FsyncPolicy.values()) {
+                Path logDir = Files.createDirectories(dir.resolve(policy.name() + "-" + threads));
+                run(policy.name(), threads,
+                        new DurabilityManager(true, logDir, policy, Duration.ofSeconds(1), Duration.ZERO));
+            }
+        }
+    }
+
+    private void run(String name, int threads, DurabilityManager durability) throws Exception {
+        FilmStorage storage = new InMemoryFilmStorage(LongSetType.HASH, durability);
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            storage.create(film);
+        }
+
+        long[][] samples = new long[threads][];
+        int[] counts = new int[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                long[] latencies = new long[MAX_SAMPLES / threads];
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long deadline = System.nanoTime() + RUN_NANOS;
+                int count = 0;
+                while (count < latencies.length) {
+                    long start = System.nanoTime();
+                    if (start > deadline) {
+                        break;
+                    }
+                    storage.addLike(random.nextLong(1, FILMS + 1), random.nextLong(1, USERS + 1));
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                samples[worker] = latencies;
+                counts[worker] = count;
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        durability.destroy();
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(samples[t], 0, all, offset, counts[t]);
+            offset += counts[t];
+        }
+        Arrays.sort(all);
+        assertTrue(total > 0);
+        System.out.printf("%-10s %8d %12.0f %10.1f %10.1f %10.1f%n", name, threads,
+                total / (RUN_NANOS / 1e9), percentile(all, 0.5), percentile(all, 0.99), percentile(all, 0.999));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, quantile * sorted.length)] / 1_000.0;
+    }
+}
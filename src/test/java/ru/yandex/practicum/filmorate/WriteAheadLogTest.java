@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.ShardedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.wal.DurabilityManager;
+import ru.yandex.practicum.filmorate.storage.wal.FsyncPolicy;
+import ru.yandex.practicum.filmorate.util.LongSetType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.ModelFixtures.film;
+
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    final List<DurabilityManager> managers = new ArrayList<>();
+    final List<ShardedFilmStorage> shardedStorages = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (ShardedFilmStorage storage : shardedStorages) {
+            storage.destroy();
+        }
+        for (DurabilityManager manager : managers) {
+            manager.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Фильмы, пользователи, лайки и дружба восстанавливаются из журнала после сбоя")
+    void shouldRecoverStateFromLog() {
+        DurabilityManager durability = manager();
+        FilmStorage films = new InMemoryFilmStorage(LongSetType.HASH, durability);
+        UserStorage users = new InMemoryUserStorage(LongSetType.HASH, durability);
+        fill(films, users);
+
+        FilmStorage recoveredFilms = new InMemoryFilmStorage(LongSetType.HASH, manager());
+        UserStorage recoveredUsers = new InMemoryUserStorage(LongSetType.HASH, manager());
+
+        assertSameState(films, users, recoveredFilms, recoveredUsers);
+    }
+
+    @Test
+    @DisplayName("Снимок заменяет старые сегменты, изменения после снимка восстанавливаются поверх него")
+    void shouldRecoverFromSnapshotAndTail() throws IOException {
+        DurabilityManager durability = manager();
+        InMemoryFilmStorage films = new InMemoryFilmStorage(LongSetType.BITMAP, durability);
+        InMemoryUserStorage users = new InMemoryUserStorage(LongSetType.BITMAP, durability);
+        fill(films, users);
+
+        durability.snapshot();
+        assertEquals(2, countFiles(".log"));
+        assertEquals(2, countFiles(".snapshot"));
+
+        films.deleteLike(1L, 2L);
+        users.deleteFriend(1L, 2L);
+        Film film = film("After snapshot");
+        films.create(film);
+
+        FilmStorage recoveredFilms = new InMemoryFilmStorage(LongSetType.BITMAP, manager());
+        UserStorage recoveredUsers = new InMemoryUserStorage(LongSetType.BITMAP, manager());
+
+        assertSameState(films, users, recoveredFilms, recoveredUsers);
+        assertEquals(film.getId() + 1, recoveredFilms.create(film("Next")).getId());
+    }
+
+    @Test
+    @DisplayName("Сегменты разделённого хранилища восстанавливаются каждый из своего журнала")
+    void shouldRecoverShardedStorage() {
+        DurabilityManager durability = manager();
+        FilmStorage films = sharded(durability);
+        UserStorage users = new InMemoryUserStorage(LongSetType.HASH, durability);
+        fill(films, users);
+
+        FilmStorage recoveredFilms = sharded(manager());
+        UserStorage recoveredUsers = new InMemoryUserStorage(LongSetType.HASH, manager());
+
+        assertSameState(films, users, recoveredFilms, recoveredUsers);
+        assertEquals(6L, recoveredFilms.create(film("Next")).getId());
+    }
+
+    @Test
+    @DisplayName("Оборванная последняя запись отбрасывается, предыдущие восстанавливаются")
+    void shouldDropTornTail() throws IOException, InterruptedException {
+        DurabilityManager durability = manager();
+        FilmStorage films = new InMemoryFilmStorage(LongSetType.HASH, durability);
+        films.create(film("First"));
+        films.create(film("Second"));
+        durability.destroy();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("films-")).findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);
+
+        FilmStorage recovered = new InMemoryFilmStorage(LongSetType.HASH, manager());
+
+        assertEquals(2, recovered.getAll().size());
+        assertEquals(3L, recovered.create(film("Third")).getId());
+    }
+
+    private DurabilityManager manager() {
+        DurabilityManager manager = new DurabilityManager(true, dir, FsyncPolicy.ALWAYS, Duration.ZERO, Duration.ZERO);
+        managers.add(manager);
+        return manager;
+    }
+
+    private ShardedFilmStorage sharded(DurabilityManager durability) {
+        ShardedFilmStorage storage = new ShardedFilmStorage(3, LongSetType.HASH, durability);
+        shardedStorages.add(storage);
+        return storage;
+    }
+
+    private void fill(FilmStorage films, UserStorage users) {
+        for (int i = 1; i <= 5; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, i));
+            users.create(user);
+
+            Film film = film("Film " + i);
+            film.setGenres(Set.of(Genre.values()[i]));
+            film.setRating(Mpa.values()[i - 1]);
+            films.create(film);
+        }
+        for (long film = 1; film <= 5; film++) {
+            for (long user = 1; user <= film; user++) {
+                films.addLike(film, user);
+            }
+        }
+        films.deleteLike(5L, 1L);
+        films.addLikes(new long[]{1, 1}, new long[]{2, 3});
+        users.addFriend(1L, 2L);
+        users.addFriend(1L, 3L);
+        users.addFriends(new long[]{4}, new long[]{5});
+        users.deleteFriend(1L, 3L);
+
+        User patch = new User();
+        patch.setId(2L);
+        patch.setEmail("renamed@mail.ru");
+        users.update(patch);
+        Film filmPatch = new Film();
+        filmPatch.setId(2L);
+        filmPatch.setName("Renamed");
+        films.update(filmPatch);
+
+        films.delete(3L);
+        users.addFriend(2L, 3L);
+        users.delete(3L);
+        films.deleteUserLikes(3L);
+    }
+
+    private void assertSameState(FilmStorage films, UserStorage users,
+                                 FilmStorage recoveredFilms, UserStorage recoveredUsers) {
+        assertEquals(films.getAll(), recoveredFilms.getAll());
+        assertEquals(films.getPopular(10).stream().map(Film::getId).toList(),
+                recoveredFilms.getPopular(10).stream().map(Film::getId).toList());
+
+        List<User> expected = new ArrayList<>(users.getAll());
+        List<User> actual = new ArrayList<>(recoveredUsers.getAll());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getEmail(), actual.get(i).getEmail());
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getFriends(), actual.get(i).getFriends());
+        }
+        assertEquals(2L, recoveredUsers.findByEmail("Renamed@mail.ru").orElseThrow().getId());
+        assertTrue(recoveredUsers.findByEmail("user2@mail.ru").isEmpty());
+    }
+
+    private long countFiles(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).count();
+        }
+    }
+}